@@ -0,0 +1,30 @@
+package io.phongsouvanh.bank;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line (all of them by default) with the allocation profiler,
+ * so every result carries its {@code gc.alloc.rate.norm} next to the score.
+ * Any JMH option is accepted, e.g. {@code OperationServiceBenchmark -t 8 -rf json}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if(commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+
+        Runner runner = new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()
+        );
+        if(commandLine.shouldList()) runner.list();
+        else runner.run();
+    }
+}
@@ -0,0 +1,49 @@
+package io.phongsouvanh.bank.account;
+
+import io.phongsouvanh.bank.exceptions.NegativeAmountException;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmountBenchmark {
+
+    private String text;
+    private BigDecimal wholeValue;
+    private BigDecimal centsValue;
+    private long minorUnits;
+
+    @Setup
+    public void setUp() {
+        text = "1234.56";
+        wholeValue = new BigDecimal(1234);
+        centsValue = new BigDecimal(text);
+        minorUnits = 123_456;
+    }
+
+    @Benchmark
+    public Amount fromText() throws NegativeAmountException {
+        return new Amount(new BigDecimal(text));
+    }
+
+    @Benchmark
+    public Amount fromWholeValue() throws NegativeAmountException {
+        return new Amount(wholeValue);
+    }
+
+    @Benchmark
+    public Amount fromCentsValue() throws NegativeAmountException {
+        return new Amount(centsValue);
+    }
+
+    @Benchmark
+    public Amount fromMinorUnits() throws NegativeAmountException {
+        return Amount.ofMinorUnits(minorUnits);
+    }
+}
@@ -0,0 +1,66 @@
+package io.phongsouvanh.bank.account;
+
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedPointBenchmark {
+
+    private final UUID accountId = UUID.randomUUID();
+    private final LocalDateTime date = LocalDateTime.now();
+    private Amount amount;
+    private BigDecimal balance;
+    private long balanceMinorUnits;
+
+    @Setup
+    public void setUp() throws Exception {
+        amount = new Amount(new BigDecimal("12.34"));
+        balance = new BigDecimal("98765.43");
+        balanceMinorUnits = MinorUnits.of(balance);
+    }
+
+    @Benchmark
+    public Operation bigDecimalDeposit() {
+        BigDecimal oldBalance = Optional.of(balance).orElse(BigDecimal.ZERO);
+        BigDecimal newBalance = oldBalance.add(amount.getValue());
+        return new Operation(accountId, OperationType.DEPOSIT, amount, date, newBalance);
+    }
+
+    @Benchmark
+    public Operation fixedPointDeposit() {
+        long newBalance = MinorUnits.add(balanceMinorUnits, amount.getMinorUnits());
+        return new Operation(accountId, OperationType.DEPOSIT, amount, date, MinorUnits.toBigDecimal(newBalance));
+    }
+
+    @Benchmark
+    public Operation bigDecimalWithdraw() {
+        BigDecimal oldBalance = Optional.of(balance).orElse(BigDecimal.ZERO);
+        BigDecimal newBalance = oldBalance.subtract(amount.getValue());
+        if(newBalance.compareTo(BigDecimal.ZERO) <= 0) return null;
+        return new Operation(accountId, OperationType.WITHDRAWAL, amount, date, newBalance);
+    }
+
+    @Benchmark
+    public Operation fixedPointWithdraw() {
+        long newBalance = MinorUnits.subtract(balanceMinorUnits, amount.getMinorUnits());
+        if(newBalance <= 0) return null;
+        return new Operation(accountId, OperationType.WITHDRAWAL, amount, date, MinorUnits.toBigDecimal(newBalance));
+    }
+
+    @Benchmark
+    public long minorUnitsOfStoredBalance() {
+        return MinorUnits.of(balance);
+    }
+}
@@ -0,0 +1,65 @@
+package io.phongsouvanh.bank.engine;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.service.DefaultOperationService;
+import io.phongsouvanh.bank.service.OperationService;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 32 callers depositing on 1024 accounts, through the sharded engine with 1 to 32 shards,
+ * or through {@link DefaultOperationService} (shards = 0) as the lock-per-call baseline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(32)
+public class ShardedOperationServiceBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+        @Param({"0", "1", "2", "4", "8", "16", "32"})
+        int shards;
+
+        OperationService service;
+        UUID[] accountIds;
+        Amount amount;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            InMemoryOperationDao operationDao = new InMemoryOperationDao();
+            service = shards == 0
+                    ? new DefaultOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), lines -> {})
+                    : new ShardedOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), lines -> {}, shards);
+            accountIds = new UUID[ACCOUNTS];
+            for (int i = 0; i < ACCOUNTS; i++) accountIds[i] = UUID.randomUUID();
+            amount = Amount.ofMinorUnits(100);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws Exception {
+            if(service instanceof AutoCloseable closeable) closeable.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        int next;
+    }
+
+    @Benchmark
+    public Operation deposit(Engine engine, Caller caller) {
+        caller.next = (caller.next + 1) & (ACCOUNTS - 1);
+        return engine.service.deposit(engine.accountIds[caller.next], engine.amount);
+    }
+}
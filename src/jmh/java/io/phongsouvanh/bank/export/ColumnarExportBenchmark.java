@@ -0,0 +1,143 @@
+package io.phongsouvanh.bank.export;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporting {@code accounts} histories of {@code operationsPerAccount} operations as columns, plain or deflated,
+ * against rendering them as grid statements, and reading the columns back as primitives or as {@link Operation}s.
+ * The size of each export is printed when the trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ColumnarExportBenchmark {
+
+    @Param({"1000"})
+    private int accounts;
+
+    @Param({"1000"})
+    private int operationsPerAccount;
+
+    @Param({"false", "true"})
+    private boolean deflated;
+
+    private List<List<Operation>> histories;
+    private byte[] export;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        OperationType[] types = OperationType.values();
+        histories = new ArrayList<>(accounts);
+        for (int account = 0; account < accounts; account++) {
+            UUID accountId = UUID.randomUUID();
+            LocalDateTime date = LocalDateTime.now().minusYears(3);
+            long balance = 1_000_000_00L;
+            List<Operation> history = new ArrayList<>(operationsPerAccount);
+            for (int i = 0; i < operationsPerAccount; i++) {
+                OperationType type = types[random.nextInt(types.length)];
+                long amount = random.nextLong(1, 500_00);
+                balance += type.isDebit() ? -amount : amount;
+                date = date.plusSeconds(random.nextInt(1, 86_400)).withNano(random.nextInt(1_000) * 1_000_000);
+                history.add(new Operation(accountId, type, Amount.ofMinorUnits(amount), date, MinorUnits.toBigDecimal(balance)));
+            }
+            histories.add(history);
+        }
+        export = writeColumns(new ByteArrayOutputStream()).toByteArray();
+        CountingOutputStream text = new CountingOutputStream();
+        writeText(text);
+        long rows = (long) accounts * operationsPerAccount;
+        System.out.printf("%ncolumnar%s: %.1f bytes per operation, grid text: %.1f bytes per operation%n",
+                deflated ? " deflated" : "", (double) export.length / rows, (double) text.count / rows);
+    }
+
+    @Benchmark
+    public long writeColumnar() throws IOException {
+        return writeColumns(new CountingOutputStream()).count;
+    }
+
+    @Benchmark
+    public long writeGridText() throws IOException {
+        if(deflated) return 0;
+        CountingOutputStream out = new CountingOutputStream();
+        writeText(out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long readColumns() throws IOException {
+        long sum = 0;
+        try (ColumnarOperationReader reader = new ColumnarOperationReader(new ByteArrayInputStream(export))) {
+            OperationColumns block;
+            while ((block = reader.readBlock()) != null) {
+                for (int row = 0; row < block.size(); row++) {
+                    sum += block.balanceMinorUnits(row);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readOperations() throws IOException {
+        try (ColumnarOperationReader reader = new ColumnarOperationReader(new ByteArrayInputStream(export))) {
+            return reader.operations().count();
+        }
+    }
+
+    private <T extends OutputStream> T writeColumns(T out) throws IOException {
+        try (ColumnarOperationWriter writer = new ColumnarOperationWriter(out, deflated)) {
+            for (List<Operation> history : histories) {
+                writer.writeAll(history.stream());
+            }
+        }
+        return out;
+    }
+
+    private void writeText(OutputStream out) throws IOException {
+        StatementGridFormatter formatter = new StatementGridFormatter();
+        for (List<Operation> history : histories) {
+            Operation last = history.get(history.size() - 1);
+            for (String line : (Iterable<String>) formatter.format(last.accountId(), LocalDate.now(), last.balance(), history.stream())::iterator) {
+                out.write(line.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.phongsouvanh.bank.feed;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.service.DefaultOperationService;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Deposit latency without a change feed, with a feed followed by a subscriber keeping up, and with one taking 100 µs per
+ * operation, which soon lags out of the ring and is resubscribed to the live tail.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperationFeedBenchmark {
+
+    @Param({"none", "fast", "slow"})
+    private String subscriber;
+
+    private final UUID accountId = UUID.randomUUID();
+    private Amount amount;
+    private ExecutorService executor;
+    private OperationFeed feed;
+    private DefaultOperationService service;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        amount = new Amount(BigDecimal.ONE);
+        executor = Executors.newSingleThreadExecutor();
+        feed = subscriber.equals("none") ? null : new OperationFeed(OperationFeed.DEFAULT_CAPACITY, executor);
+        if(feed != null) feed.subscribe(new Follower(subscriber.equals("slow") ? TimeUnit.MICROSECONDS.toNanos(100) : 0));
+        service = new DefaultOperationService(new InMemoryOperationDao(), Clock.systemUTC(), new StatementGridFormatter(),
+                lines -> { }, null, feed);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if(feed != null) feed.close();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object deposit() {
+        return service.deposit(accountId, amount);
+    }
+
+    private class Follower implements Flow.Subscriber<SequencedOperation> {
+
+        private final long delayNanos;
+
+        private Follower(long delayNanos) {
+            this.delayNanos = delayNanos;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(SequencedOperation item) {
+            if(delayNanos > 0) LockSupport.parkNanos(delayNanos);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            feed.subscribe(new Follower(delayNanos));
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
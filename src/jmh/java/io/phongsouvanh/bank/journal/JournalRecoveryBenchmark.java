@@ -0,0 +1,94 @@
+package io.phongsouvanh.bank.journal;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to reopen a journal of {@code records} operations over {@code accounts} accounts, replaying every segment or only
+ * those left after a snapshot. The heap retained per account by the reopened journal, which keeps the record numbers of
+ * every account in an {@link AccountIndex} behind its {@link UUID} in a {@code ConcurrentHashMap}, is printed when the
+ * trial starts; balances are off-heap and not counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JournalRecoveryBenchmark {
+
+    @Param({"10000000"})
+    private int records;
+
+    @Param({"100000"})
+    private int accounts;
+
+    @Param({"false", "true"})
+    private boolean compacted;
+
+    private Path directory;
+    private JournalOptions options;
+
+    @Setup(Level.Trial)
+    public void writeJournal() throws Exception {
+        directory = Files.createTempDirectory("journal-recovery");
+        options = JournalOptions.of(directory).withGroupCommit(0, Duration.ZERO);
+
+        UUID[] accountIds = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) accountIds[i] = UUID.randomUUID();
+        Amount amount = Amount.ofMinorUnits(100);
+        LocalDateTime date = LocalDateTime.now();
+
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            for (int i = 0; i < records; i++) {
+                UUID accountId = accountIds[i % accounts];
+                operationDao.save(new Operation(accountId, OperationType.DEPOSIT, amount, date, MinorUnits.toBigDecimal((i / accounts + 1) * 100L)));
+            }
+            if(compacted) {
+                operationDao.snapshot();
+                operationDao.compact();
+            }
+        }
+
+        JournalOperationDao reopened = JournalOperationDao.open(options);
+        long withJournal = usedHeap();
+        int recoveredAccounts = reopened.getAccountIds().size();
+        reopened.close();
+        reopened = null;
+        System.out.printf("%nReopened journal: %.1f heap bytes per account, %d records per account%n",
+                (double) (withJournal - usedHeap()) / recoveredAccounts, records / accounts);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteJournal() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public JournalOperationDao recover() throws IOException {
+        JournalOperationDao operationDao = JournalOperationDao.open(options);
+        operationDao.close();
+        return operationDao;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
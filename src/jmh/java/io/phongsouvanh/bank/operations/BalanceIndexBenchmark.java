@@ -0,0 +1,81 @@
+package io.phongsouvanh.bank.operations;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance lookups and updates in {@link BalanceIndex} against a {@code ConcurrentHashMap<UUID, Long>}.
+ * The footprint per account of each, measured as the heap retained after a full GC for the map, its own {@link UUID} keys
+ * included, and as the off-heap tables for the index, is printed when the trial starts. The journal still keeps its
+ * record numbers on the heap, see {@code JournalRecoveryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class BalanceIndexBenchmark {
+
+    @Param({"10000000"})
+    private int accounts;
+
+    private UUID[] accountIds;
+    private ConcurrentHashMap<UUID, Long> map;
+    private BalanceIndex index;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        accountIds = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) accountIds[i] = UUID.randomUUID();
+
+        long before = usedHeap();
+        map = new ConcurrentHashMap<>();
+        for (int i = 0; i < accounts; i++) {
+            map.put(new UUID(accountIds[i].getMostSignificantBits(), accountIds[i].getLeastSignificantBits()), (long) i * 100);
+        }
+        long mapBytes = usedHeap() - before;
+
+        before = usedHeap();
+        index = new BalanceIndex();
+        for (int i = 0; i < accounts; i++) index.put(accountIds[i], (long) i * 100);
+        long indexHeapBytes = usedHeap() - before;
+
+        System.out.printf("%nConcurrentHashMap: %.1f heap bytes per account, keys included%n", (double) mapBytes / accounts);
+        System.out.printf("BalanceIndex: %.1f off-heap bytes per account, %d heap bytes in total%n",
+                (double) index.offHeapBytes() / accounts, indexHeapBytes);
+    }
+
+    @Benchmark
+    public long mapGet() {
+        Long balance = map.get(accountIds[ThreadLocalRandom.current().nextInt(accounts)]);
+        return balance == null ? 0 : balance;
+    }
+
+    @Benchmark
+    public long indexGet() {
+        return index.get(accountIds[ThreadLocalRandom.current().nextInt(accounts)], 0);
+    }
+
+    @Benchmark
+    public Long mapPut() {
+        int i = ThreadLocalRandom.current().nextInt(accounts);
+        return map.put(accountIds[i], (long) i);
+    }
+
+    @Benchmark
+    public void indexPut() {
+        int i = ThreadLocalRandom.current().nextInt(accounts);
+        index.put(accountIds[i], i);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,69 @@
+package io.phongsouvanh.bank.operations;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One month of a ten-year history, by filtering the whole history or through the time index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DateRangeQueryBenchmark {
+
+    @Param({"10"})
+    private int minutesBetweenOperations;
+
+    private final UUID accountId = UUID.randomUUID();
+    private final InMemoryOperationDao operationDao = new InMemoryOperationDao();
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup
+    public void setUp() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2012, 1, 1, 0, 0);
+        LocalDateTime end = start.plusYears(10);
+        Amount amount = Amount.ofMinorUnits(100);
+        long balance = 0;
+        for (LocalDateTime date = start; date.isBefore(end); date = date.plusMinutes(minutesBetweenOperations)) {
+            balance += 100;
+            operationDao.save(new Operation(accountId, OperationType.DEPOSIT, amount, date, MinorUnits.toBigDecimal(balance)));
+        }
+        from = LocalDateTime.of(2016, 6, 1, 0, 0);
+        to = from.plusMonths(1);
+    }
+
+    @Benchmark
+    public List<Operation> monthFromWholeHistory() {
+        return operationDao.getAllAccountOperationsById(accountId).stream()
+                .filter(operation -> !operation.date().isBefore(from) && operation.date().isBefore(to))
+                .toList();
+    }
+
+    @Benchmark
+    public BigDecimal openingBalanceFromWholeHistory() {
+        return operationDao.getAllAccountOperationsById(accountId).stream()
+                .filter(operation -> operation.date().isBefore(from))
+                .reduce(BigDecimal.ZERO, (balance, operation) -> balance.add(operation.amount().getValue()), BigDecimal::add);
+    }
+
+    @Benchmark
+    public OperationPage monthFromTimeIndex() {
+        return operationDao.getOperations(accountId, from, to, Integer.MAX_VALUE, null);
+    }
+
+    @Benchmark
+    public BigDecimal openingBalanceFromTimeIndex() {
+        return operationDao.getBalanceBefore(accountId, from);
+    }
+}
@@ -0,0 +1,63 @@
+package io.phongsouvanh.bank.operations;
+
+import io.phongsouvanh.bank.account.Amount;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryOperationDaoBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedDao {
+        InMemoryOperationDao operationDao;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            operationDao = new InMemoryOperationDao();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        UUID accountId;
+        Operation operation;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            accountId = UUID.randomUUID();
+            operation = new Operation(accountId, OperationType.DEPOSIT, new Amount(BigDecimal.ONE), LocalDateTime.now(), BigDecimal.TEN);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Operation save1Writer(SharedDao dao, Writer writer) {
+        return dao.operationDao.save(writer.operation);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Operation save8Writers(SharedDao dao, Writer writer) {
+        return dao.operationDao.save(writer.operation);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Operation save64Writers(SharedDao dao, Writer writer) {
+        return dao.operationDao.save(writer.operation);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public BigDecimal balance8Readers(SharedDao dao, Writer writer) {
+        return dao.operationDao.getAccountBalanceById(writer.accountId);
+    }
+}
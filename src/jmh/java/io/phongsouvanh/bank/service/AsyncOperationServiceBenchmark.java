@@ -0,0 +1,163 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.*;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Synchronous service, synchronous service on a platform thread pool, and virtual thread facade,
+ * all on a DAO whose writes wait {@code ioMicros} outside of any lock, like a remote database would.
+ * A request is a burst of {@code requests} deposits spread over {@code accounts} accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncOperationServiceBenchmark {
+
+    @Param({"200"})
+    private int ioMicros;
+
+    @Param({"1000"})
+    private int requests;
+
+    @Param({"100"})
+    private int accounts;
+
+    private UUID[] accountIds;
+    private Amount amount;
+    private DefaultOperationService service;
+    private ExecutorService platformPool;
+    private VirtualThreadOperationService asyncService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        accountIds = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) accountIds[i] = UUID.randomUUID();
+        amount = new Amount(BigDecimal.ONE);
+        service = new DefaultOperationService(new RemoteOperationDao(new InMemoryOperationDao(), ioMicros), Clock.systemUTC(), new StatementGridFormatter(), lines -> {});
+        platformPool = Executors.newFixedThreadPool(16);
+        asyncService = new VirtualThreadOperationService(service, 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        platformPool.shutdown();
+        asyncService.close();
+    }
+
+    @Benchmark
+    public Operation burstSync() {
+        Operation last = null;
+        for (int i = 0; i < requests; i++) {
+            last = service.deposit(accountIds[i % accounts], amount);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public Object burstPlatformPool() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            UUID accountId = accountIds[i % accounts];
+            futures[i] = CompletableFuture.supplyAsync(() -> service.deposit(accountId, amount), platformPool);
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    public Object burstVirtualThreads() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+        for (int i = 0; i < requests; i++) {
+            futures[i] = asyncService.deposit(accountIds[i % accounts], amount);
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Operation singleSync() {
+        return service.deposit(accountIds[0], amount);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Operation singleVirtualThread() {
+        return asyncService.deposit(accountIds[0], amount).join();
+    }
+
+    static class RemoteOperationDao implements OperationDao {
+
+        private final OperationDao delegate;
+        private final long ioNanos;
+
+        RemoteOperationDao(OperationDao delegate, int ioMicros) {
+            this.delegate = delegate;
+            this.ioNanos = TimeUnit.MICROSECONDS.toNanos(ioMicros);
+        }
+
+        @Override
+        public Operation save(Operation operation) {
+            LockSupport.parkNanos(ioNanos);
+            return delegate.save(operation);
+        }
+
+        /**
+         * One round trip for the whole batch, as a multi-row insert would.
+         */
+        @Override
+        public List<Operation> saveAll(List<Operation> operations) {
+            LockSupport.parkNanos(ioNanos);
+            return delegate.saveAll(operations);
+        }
+
+        @Override
+        public BigDecimal getAccountBalanceById(UUID accountId) {
+            LockSupport.parkNanos(ioNanos);
+            return delegate.getAccountBalanceById(accountId);
+        }
+
+        @Override
+        public List<Operation> getAllAccountOperationsById(UUID accountId) {
+            LockSupport.parkNanos(ioNanos);
+            return delegate.getAllAccountOperationsById(accountId);
+        }
+
+        @Override
+        public Set<UUID> getAccountIds() {
+            return delegate.getAccountIds();
+        }
+
+        @Override
+        public <E extends Exception> Operation append(UUID accountId, OperationFactory<E> factory) throws E {
+            LockSupport.parkNanos(ioNanos);
+            return delegate.append(accountId, factory);
+        }
+
+        @Override
+        public List<Operation> appendAll(UUID accountId, LongFunction<List<Operation>> factory) {
+            LockSupport.parkNanos(ioNanos);
+            return delegate.appendAll(accountId, factory);
+        }
+
+        @Override
+        public <E extends Exception> Transfer appendTransfer(UUID debitedAccountId, UUID creditedAccountId, TransferFactory<E> factory) throws E {
+            LockSupport.parkNanos(ioNanos);
+            return delegate.appendTransfer(debitedAccountId, creditedAccountId, factory);
+        }
+    }
+}
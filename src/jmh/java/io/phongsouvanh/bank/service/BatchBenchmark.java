@@ -0,0 +1,60 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.statements.StatementConsolePrinter;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"10000"})
+    private int items;
+
+    @Param({"100"})
+    private int accounts;
+
+    private List<BatchItem> batch;
+    private DefaultOperationService service;
+
+    @Setup(Level.Trial)
+    public void createBatch() {
+        UUID[] accountIds = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) accountIds[i] = UUID.randomUUID();
+        batch = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            batch.add(BatchItem.deposit(accountIds[i % accounts], new BigDecimal("1234.56")));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createService() {
+        service = new DefaultOperationService(new InMemoryOperationDao(), Clock.systemUTC(), new StatementGridFormatter(), new StatementConsolePrinter());
+    }
+
+    @Benchmark
+    public List<BatchResult> applyBatch() {
+        return service.applyBatch(batch);
+    }
+
+    @Benchmark
+    public int singleCalls() throws Exception {
+        for (BatchItem item : batch) {
+            service.deposit(item.accountId(), new Amount(item.amount()));
+        }
+        return batch.size();
+    }
+}
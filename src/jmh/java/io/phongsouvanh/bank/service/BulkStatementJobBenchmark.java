@@ -0,0 +1,74 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Month-end statements of {@code accounts} accounts with {@code operations} operations each in the month,
+ * written to files with 1 (sequential) to 64 statements in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BulkStatementJobBenchmark {
+
+    @Param({"2000"})
+    private int accounts;
+
+    @Param({"100"})
+    private int operations;
+
+    @Param({"1", "16", "64"})
+    private int maxInFlight;
+
+    private final LocalDate from = LocalDate.of(2022, 10, 1);
+    private final LocalDate to = LocalDate.of(2022, 10, 31);
+    private BulkStatementJob job;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        InMemoryOperationDao operationDao = new InMemoryOperationDao();
+        Amount amount = Amount.ofMinorUnits(1_000);
+        for (int a = 0; a < accounts; a++) {
+            UUID accountId = UUID.randomUUID();
+            for (int i = 0; i < operations; i++) {
+                LocalDateTime date = from.atStartOfDay().plusMinutes(i * 400L);
+                operationDao.save(new Operation(accountId, OperationType.DEPOSIT, amount, date, MinorUnits.toBigDecimal((i + 1) * 1_000L)));
+            }
+        }
+        job = new BulkStatementJob(operationDao, Clock.systemUTC(), new StatementGridFormatter(), maxInFlight);
+        directory = Files.createTempDirectory("bulk-statements");
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStatements() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public BulkStatementReport monthEnd() throws Exception {
+        return job.run(directory, from, to, progress -> {});
+    }
+}
@@ -0,0 +1,65 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.statements.StatementConsolePrinter;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an idempotency key on a deposit: plain deposits, deposits with a fresh key, which fill the cache up to its maximum size
+ * and then evict on every call, and replays of a key already seen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IdempotencyBenchmark {
+
+    private IdempotentOperationService service;
+    private UUID accountId;
+    private Amount amount;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        service = new IdempotentOperationService(
+                new DefaultOperationService(new InMemoryOperationDao(), Clock.systemUTC(), new StatementGridFormatter(), new StatementConsolePrinter()),
+                new IdempotencyCache(IdempotencyCache.DEFAULT_MAXIMUM_SIZE, Duration.ofHours(1), Clock.systemUTC())
+        );
+        accountId = UUID.randomUUID();
+        amount = Amount.ofMinorUnits(1_234);
+        keys = new String[1 << 20];
+        for (int i = 0; i < keys.length; i++) keys[i] = UUID.randomUUID().toString();
+        service.deposit(accountId, amount, "replayed");
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStats() {
+        System.out.println(service.cacheStats());
+    }
+
+    @Benchmark
+    public Operation withoutKey() {
+        return service.deposit(accountId, amount);
+    }
+
+    @Benchmark
+    public Operation newKey() {
+        return service.deposit(accountId, amount, keys[next++ & (keys.length - 1)]);
+    }
+
+    @Benchmark
+    public Operation replayedKey() {
+        return service.deposit(accountId, amount, "replayed");
+    }
+}
@@ -0,0 +1,64 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posting the interest and fee of 10k accounts one {@code deposit}/{@code withdraw} call at a time, each reading
+ * the balance first, or with a {@link MonthEndPostingJob}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MonthEndPostingBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final BigDecimal RATE = new BigDecimal("0.0025");
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-11-01T02:00:00Z"), ZoneId.of("UTC"));
+    private final Clock octoberClock = Clock.fixed(Instant.parse("2022-10-31T18:00:00Z"), ZoneId.of("UTC"));
+    private Amount fee;
+    private InMemoryOperationDao operationDao;
+    private DefaultOperationService service;
+
+    @Setup(Level.Invocation)
+    public void setUp() throws Exception {
+        fee = new Amount(new BigDecimal("2.00"));
+        operationDao = new InMemoryOperationDao();
+        service = new DefaultOperationService(operationDao, clock, null, lines -> {});
+        DefaultOperationService octoberService = new DefaultOperationService(operationDao, octoberClock, null, lines -> {});
+        for (int i = 1; i <= ACCOUNTS; i++) {
+            octoberService.deposit(UUID.randomUUID(), new Amount(new BigDecimal(i + 10)));
+        }
+    }
+
+    @Benchmark
+    public void perAccountCalls() throws Exception {
+        for (UUID accountId : operationDao.getAccountIds()) {
+            long balance = MinorUnits.of(operationDao.getBalanceBefore(accountId, LocalDateTime.of(2022, 11, 1, 0, 0)));
+            long interest = BigDecimal.valueOf(balance).multiply(RATE).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+            if(interest > 0) service.deposit(accountId, Amount.ofMinorUnits(interest));
+            service.withdraw(accountId, fee);
+        }
+    }
+
+    @Benchmark
+    public MonthEndPostingReport postingJob() {
+        return new MonthEndPostingJob(service, RATE, fee).run(YearMonth.of(2022, 10));
+    }
+}
@@ -0,0 +1,92 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.metrics.OperationMetrics;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.InstrumentedOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.statements.StatementConsolePrinter;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits and withdrawals through {@link DefaultOperationService} on an in-memory DAO,
+ * either on one account per thread or with every thread hammering the same account.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OperationServiceBenchmark {
+
+    private static final long OPENING_BALANCE = 1_000_000_000_00L;
+
+    @State(Scope.Benchmark)
+    public static class Bank {
+        @Param({"false", "true"})
+        boolean instrumented;
+
+        OperationService service;
+        UUID sharedAccountId;
+        Amount amount;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            OperationDao operationDao = new InMemoryOperationDao();
+            if(instrumented) {
+                OperationMetrics metrics = new OperationMetrics();
+                operationDao = new InstrumentedOperationDao(operationDao, metrics);
+                service = new InstrumentedOperationService(
+                        new DefaultOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), new StatementConsolePrinter()), metrics
+                );
+            } else {
+                service = new DefaultOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), new StatementConsolePrinter());
+            }
+            sharedAccountId = UUID.randomUUID();
+            amount = Amount.ofMinorUnits(1_234);
+            service.deposit(sharedAccountId, Amount.ofMinorUnits(OPENING_BALANCE));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        UUID accountId;
+
+        @Setup(Level.Iteration)
+        public void setUp(Bank bank) throws Exception {
+            accountId = UUID.randomUUID();
+            bank.service.deposit(accountId, Amount.ofMinorUnits(OPENING_BALANCE));
+        }
+    }
+
+    @Benchmark
+    public Operation deposit(Bank bank, Client client) {
+        return bank.service.deposit(client.accountId, bank.amount);
+    }
+
+    @Benchmark
+    public Operation withdraw(Bank bank, Client client) throws OutOfBalanceException {
+        return bank.service.withdraw(client.accountId, bank.amount);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public Operation contendedDeposit(Bank bank) {
+        return bank.service.deposit(bank.sharedAccountId, bank.amount);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public Operation contendedWithdraw(Bank bank) throws OutOfBalanceException {
+        return bank.service.withdraw(bank.sharedAccountId, bank.amount);
+    }
+}
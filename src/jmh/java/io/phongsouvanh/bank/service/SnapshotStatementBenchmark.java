@@ -0,0 +1,83 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import io.phongsouvanh.bank.statements.StatementPrinter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Deposits on an account alone, then while another thread keeps printing the statement of the same account from a snapshot.
+ * The account starts each iteration with {@code history} operations and grows with the deposits, so statements get longer
+ * as the iteration goes. Lines are only consumed, not printed.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotStatementBenchmark {
+
+    @Param({"10000"})
+    private int history;
+
+    private final UUID accountId = UUID.randomUUID();
+    private Amount amount;
+    private DefaultOperationService service;
+    private volatile Blackhole blackhole;
+
+    @Setup(Level.Iteration)
+    public void setUp(Blackhole blackhole) throws Exception {
+        this.blackhole = blackhole;
+        amount = new Amount(BigDecimal.ONE);
+        StatementPrinter printer = new StatementPrinter() {
+            @Override
+            public void print(List<String> formattedStatement) {
+                formattedStatement.forEach(this::consume);
+            }
+
+            @Override
+            public void print(Stream<String> formattedStatement) {
+                formattedStatement.forEach(this::consume);
+            }
+
+            private void consume(String line) {
+                SnapshotStatementBenchmark.this.blackhole.consume(line);
+            }
+        };
+        service = new DefaultOperationService(new InMemoryOperationDao(), Clock.systemUTC(), new StatementGridFormatter(), printer);
+        for (int i = 0; i < history; i++) {
+            service.deposit(accountId, amount);
+        }
+    }
+
+    @Benchmark
+    @Group("alone")
+    public Operation depositAlone() {
+        return service.deposit(accountId, amount);
+    }
+
+    @Benchmark
+    @Group("withStatements")
+    @GroupThreads(1)
+    public Operation deposit() {
+        return service.deposit(accountId, amount);
+    }
+
+    @Benchmark
+    @Group("withStatements")
+    @GroupThreads(1)
+    public void printStatement() {
+        service.printAccountStatement(accountId);
+    }
+}
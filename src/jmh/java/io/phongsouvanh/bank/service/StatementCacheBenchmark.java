@@ -0,0 +1,69 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.statements.RenderedStatementCache;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import io.phongsouvanh.bank.statements.StatementPrinter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A customer refreshing their statement after each new deposit, the statement formatted afresh from the whole history
+ * or from the rows kept by a {@link RenderedStatementCache}. Lines are only consumed, not printed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+    @Param({"100", "10000"})
+    private int operations;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private final UUID accountId = UUID.randomUUID();
+    private Amount amount;
+    private DefaultOperationService service;
+    private Blackhole blackhole;
+
+    @Setup(Level.Iteration)
+    public void setUp(Blackhole blackhole) throws Exception {
+        this.blackhole = blackhole;
+        amount = new Amount(BigDecimal.ONE);
+        StatementGridFormatter formatter = new StatementGridFormatter();
+        StatementPrinter printer = new StatementPrinter() {
+            @Override
+            public void print(List<String> formattedStatement) {
+                formattedStatement.forEach(blackhole::consume);
+            }
+
+            @Override
+            public void print(Stream<String> formattedStatement) {
+                formattedStatement.forEach(blackhole::consume);
+            }
+        };
+        service = new DefaultOperationService(new InMemoryOperationDao(), Clock.systemUTC(), formatter, printer,
+                cached ? new RenderedStatementCache(formatter) : null);
+        for (int i = 0; i < operations; i++) {
+            service.deposit(accountId, amount);
+        }
+    }
+
+    @Benchmark
+    public void depositThenPrint() {
+        service.deposit(accountId, amount);
+        service.printAccountStatement(accountId);
+    }
+}
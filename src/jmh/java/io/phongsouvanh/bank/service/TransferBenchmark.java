@@ -0,0 +1,66 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.statements.StatementConsolePrinter;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random transfers among {@code hotAccounts} accounts from 4 threads, as atomic transfers
+ * and as the withdrawal then deposit they used to be made of.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+public class TransferBenchmark {
+
+    private static final long OPENING_BALANCE = 1_000_000_000_00L;
+
+    @Param({"2", "16", "1024"})
+    private int hotAccounts;
+
+    private OperationService service;
+    private UUID[] accountIds;
+    private Amount amount;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        service = new DefaultOperationService(new InMemoryOperationDao(), Clock.systemUTC(), new StatementGridFormatter(), new StatementConsolePrinter());
+        accountIds = new UUID[hotAccounts];
+        for (int i = 0; i < hotAccounts; i++) {
+            accountIds[i] = UUID.randomUUID();
+            service.deposit(accountIds[i], Amount.ofMinorUnits(OPENING_BALANCE));
+        }
+        amount = Amount.ofMinorUnits(1_234);
+    }
+
+    @Benchmark
+    public Transfer transfer() throws OutOfBalanceException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(hotAccounts);
+        int to = (from + 1 + random.nextInt(hotAccounts - 1)) % hotAccounts;
+        return service.transfer(accountIds[from], accountIds[to], amount);
+    }
+
+    @Benchmark
+    public Operation withdrawThenDeposit() throws OutOfBalanceException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(hotAccounts);
+        int to = (from + 1 + random.nextInt(hotAccounts - 1)) % hotAccounts;
+        service.withdraw(accountIds[from], amount);
+        return service.deposit(accountIds[to], amount);
+    }
+}
@@ -0,0 +1,88 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.journal.JournalOperationDao;
+import io.phongsouvanh.bank.journal.JournalOptions;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.operations.WriteBehindOperationDao;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latency of a deposit on a DAO whose calls wait {@code ioMicros} like a remote database would, used directly
+ * or behind a {@link WriteBehindOperationDao} logging to memory or to a journal on disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBehindBenchmark {
+
+    @Param({"remote", "writeBehindMemoryLog", "writeBehindJournalLog"})
+    private String dao;
+
+    @Param({"200"})
+    private int ioMicros;
+
+    @Param({"100"})
+    private int accounts;
+
+    private UUID[] accountIds;
+    private Amount amount;
+    private int next;
+    private Path directory;
+    private JournalOperationDao journal;
+    private WriteBehindOperationDao writeBehind;
+    private DefaultOperationService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        accountIds = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) accountIds[i] = UUID.randomUUID();
+        amount = new Amount(BigDecimal.ONE);
+
+        OperationDao remote = new AsyncOperationServiceBenchmark.RemoteOperationDao(new InMemoryOperationDao(), ioMicros);
+        OperationDao operationDao = switch (dao) {
+            case "remote" -> remote;
+            case "writeBehindMemoryLog" -> writeBehind = new WriteBehindOperationDao(remote, new InMemoryOperationDao());
+            case "writeBehindJournalLog" -> {
+                directory = Files.createTempDirectory("write-behind");
+                journal = JournalOperationDao.open(JournalOptions.of(directory));
+                yield writeBehind = new WriteBehindOperationDao(remote, journal);
+            }
+            default -> throw new IllegalArgumentException(dao);
+        };
+        service = new DefaultOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), lines -> {});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if(writeBehind != null) writeBehind.close();
+        if(journal != null) journal.close();
+        if(directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public Operation deposit() {
+        next = (next + 1) % accounts;
+        return service.deposit(accountIds[next], amount);
+    }
+}
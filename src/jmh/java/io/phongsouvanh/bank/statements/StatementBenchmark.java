@@ -0,0 +1,54 @@
+package io.phongsouvanh.bank.statements;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int operations;
+
+    private final UUID accountId = UUID.randomUUID();
+    private final LocalDate date = LocalDate.now();
+    private List<Operation> history;
+
+    @Setup
+    public void setUp() throws Exception {
+        history = new ArrayList<>(operations);
+        LocalDateTime start = LocalDateTime.now().minusYears(10);
+        Amount amount = Amount.ofMinorUnits(100);
+        for (int i = 0; i < operations; i++) {
+            history.add(new Operation(accountId, OperationType.DEPOSIT, amount, start.plusMinutes(i), MinorUnits.toBigDecimal((i + 1) * 100L)));
+        }
+    }
+
+    @Benchmark
+    public Statement addOneByOne() {
+        Statement statement = new Statement(accountId, date);
+        for (Operation operation : history) {
+            statement.add(operation);
+        }
+        return statement;
+    }
+
+    @Benchmark
+    public Statement fromList() {
+        return new Statement(accountId, date, history);
+    }
+}
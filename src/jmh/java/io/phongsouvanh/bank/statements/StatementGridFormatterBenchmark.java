@@ -0,0 +1,59 @@
+package io.phongsouvanh.bank.statements;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementGridFormatterBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int operations;
+
+    private final StatementGridFormatter formatter = new StatementGridFormatter();
+    private final LegacyStatementGridFormatter legacyFormatter = new LegacyStatementGridFormatter();
+    private Statement statement;
+
+    @Setup
+    public void setUp() throws Exception {
+        UUID accountId = UUID.randomUUID();
+        List<Operation> history = new ArrayList<>(operations);
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        long balance = 0;
+        for (int i = 0; i < operations; i++) {
+            boolean withdrawal = i % 3 == 2;
+            Amount amount = Amount.ofMinorUnits(withdrawal ? 1_050 : 12_345);
+            balance += withdrawal ? -amount.getMinorUnits() : amount.getMinorUnits();
+            OperationType type = withdrawal ? OperationType.WITHDRAWAL : OperationType.DEPOSIT;
+            history.add(new Operation(accountId, type, amount, start.plusMinutes(i), MinorUnits.toBigDecimal(balance)));
+        }
+        statement = new Statement(accountId, LocalDate.now(), history);
+        if(!formatter.format(statement).equals(legacyFormatter.format(statement))) {
+            throw new IllegalStateException("Rendering differs from the legacy formatter");
+        }
+    }
+
+    @Benchmark
+    public List<String> legacy() {
+        return legacyFormatter.format(statement);
+    }
+
+    @Benchmark
+    public List<String> current() {
+        return formatter.format(statement);
+    }
+}
@@ -0,0 +1,88 @@
+package io.phongsouvanh.bank.statements;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Printing a statement of {@code lines} grid lines to a file: {@code System.out.println} per line, redirected
+ * to the file as a shell would, against the buffered console, stream and file channel printers.
+ * Files are truncated before each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementPrinterBenchmark {
+
+    @Param({"20", "1000"})
+    private int lines;
+
+    private List<String> statement;
+    private Path file;
+    private PrintStream standardOut;
+    private PrintStream redirectedOut;
+    private FileOutputStream fileOutputStream;
+    private StatementConsolePrinter consolePrinter;
+    private StatementStreamPrinter streamPrinter;
+    private StatementFilePrinter filePrinter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        statement = IntStream.range(0, lines)
+                .mapToObj(i -> String.format("|  %-15s %-25s %-25s %-30s  |", "DEPOSIT", "2022-10-25 15:30:00", "+" + i + ".00€", (i * 10) + ".00€"))
+                .toList();
+        file = Files.createTempFile("statement", ".txt");
+        standardOut = System.out;
+        consolePrinter = new StatementConsolePrinter();
+    }
+
+    @Setup(Level.Iteration)
+    public void openFile() throws IOException {
+        redirectedOut = new PrintStream(new BufferedOutputStream(new FileOutputStream(file.toFile()), 8192), true);
+        System.setOut(redirectedOut);
+        fileOutputStream = new FileOutputStream(file.toFile());
+        streamPrinter = new StatementStreamPrinter(fileOutputStream);
+        filePrinter = new StatementFilePrinter(file);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeFile() throws IOException {
+        System.setOut(standardOut);
+        redirectedOut.close();
+        fileOutputStream.close();
+        filePrinter.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void printlnPerLine() {
+        statement.forEach(System.out::println);
+    }
+
+    @Benchmark
+    public void bufferedConsole() {
+        consolePrinter.print(statement.stream());
+    }
+
+    @Benchmark
+    public void outputStream() {
+        streamPrinter.print(statement.stream());
+    }
+
+    @Benchmark
+    public void fileChannel() {
+        filePrinter.print(statement.stream());
+    }
+}
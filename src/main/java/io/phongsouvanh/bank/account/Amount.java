@@ -3,32 +3,45 @@ package io.phongsouvanh.bank.account;
 import io.phongsouvanh.bank.exceptions.NegativeAmountException;
 
 import java.math.BigDecimal;
-import java.util.Objects;
 
+/**
+ * Non-negative amount of money, at most as fine as a cent. Two amounts are equal when they hold the same number of cents,
+ * whatever the scale of their values, so {@code 10}, {@code 10.0} and {@code 10.00} are the same amount.
+ */
 public class Amount {
 
     private final BigDecimal value;
+    private final long minorUnits;
 
     public Amount(BigDecimal value) throws NegativeAmountException {
         if(value.compareTo(BigDecimal.ZERO) < 0) throw new NegativeAmountException();
         this.value = value;
+        this.minorUnits = MinorUnits.of(value);
+    }
+
+    public static Amount ofMinorUnits(long minorUnits) throws NegativeAmountException {
+        return new Amount(MinorUnits.toBigDecimal(minorUnits));
     }
 
     public BigDecimal getValue() {
         return value;
     }
 
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Amount amount = (Amount) o;
-        return Objects.equals(value, amount.value);
+        return minorUnits == amount.minorUnits;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return Long.hashCode(minorUnits);
     }
 
     @Override
@@ -0,0 +1,47 @@
+package io.phongsouvanh.bank.account;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point arithmetic on amounts expressed as a {@code long} count of cents.
+ * Every operation is overflow-checked and throws {@link ArithmeticException} instead of wrapping.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    private static final long FACTOR = 100;
+
+    private MinorUnits() {
+    }
+
+    public static long of(BigDecimal value) {
+        if(value.scale() == 0) return Math.multiplyExact(value.longValueExact(), FACTOR);
+        return value.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static long add(long left, long right) {
+        return Math.addExact(left, right);
+    }
+
+    public static long subtract(long left, long right) {
+        return Math.subtractExact(left, right);
+    }
+
+    public static StringBuilder appendTo(StringBuilder builder, long minorUnits) {
+        if(minorUnits < 0) builder.append('-');
+        long units = Math.abs(minorUnits / FACTOR);
+        int cents = (int) Math.abs(minorUnits % FACTOR);
+        builder.append(units).append('.');
+        if(cents < 10) builder.append('0');
+        return builder.append(cents);
+    }
+
+    public static String toString(long minorUnits) {
+        return appendTo(new StringBuilder(24), minorUnits).toString();
+    }
+}
@@ -0,0 +1,97 @@
+package io.phongsouvanh.bank.engine;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Deposit, withdrawal or transfer travelling from a caller to the shard owning its account, or to the lowest of the two
+ * shards of a transfer. A transfer across shards also names the other shard and the account it holds there, which the
+ * coordinating shard asks for with a hold, itself a command carrying a {@link TransferHandoff}.
+ * {@code operation}, {@code credit} and {@code error} are written by the shard thread before completing the future.
+ */
+final class Command {
+
+    private final UUID accountId;
+    private final OperationType type;
+    private final Amount amount;
+    private final UUID creditedAccountId;
+    private final Shard partner;
+    private final UUID heldAccountId;
+    private final TransferHandoff handoff;
+    private final CompletableFuture<Operation> result = new CompletableFuture<>();
+    Operation operation;
+    Operation credit;
+    Exception error;
+
+    Command(UUID accountId, OperationType type, Amount amount) {
+        this(accountId, type, amount, null, null, null, null);
+    }
+
+    private Command(UUID accountId, OperationType type, Amount amount, UUID creditedAccountId, Shard partner, UUID heldAccountId,
+                    TransferHandoff handoff) {
+        this.accountId = accountId;
+        this.type = type;
+        this.amount = amount;
+        this.creditedAccountId = creditedAccountId;
+        this.partner = partner;
+        this.heldAccountId = heldAccountId;
+        this.handoff = handoff;
+    }
+
+    /**
+     * @param partner shard owning {@code heldAccountId}, one of the two accounts, or {@code null} if both belong to the same shard
+     */
+    static Command transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount, Shard partner, UUID heldAccountId) {
+        return new Command(debitedAccountId, OperationType.TRANSFER_OUT, amount, creditedAccountId, partner, heldAccountId, null);
+    }
+
+    static Command hold(UUID accountId, TransferHandoff handoff) {
+        return new Command(accountId, null, null, null, null, null, handoff);
+    }
+
+    UUID accountId() {
+        return accountId;
+    }
+
+    OperationType type() {
+        return type;
+    }
+
+    Amount amount() {
+        return amount;
+    }
+
+    UUID creditedAccountId() {
+        return creditedAccountId;
+    }
+
+    Shard partner() {
+        return partner;
+    }
+
+    UUID heldAccountId() {
+        return heldAccountId;
+    }
+
+    TransferHandoff handoff() {
+        return handoff;
+    }
+
+    CompletableFuture<Operation> result() {
+        return result;
+    }
+
+    void complete() {
+        if(error != null) result.completeExceptionally(error);
+        else result.complete(operation);
+    }
+
+    void fail(RuntimeException e) {
+        if(handoff != null) handoff.reject(e);
+        result.completeExceptionally(e);
+    }
+}
@@ -0,0 +1,291 @@
+package io.phongsouvanh.bank.engine;
+
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single thread owning the balances of its accounts. It drains up to {@code batchSize} commands at a time,
+ * applies them in queue order, saves the resulting operations with one {@link OperationDao#saveAll(List)}
+ * and only then completes the commands, so a caller never observes an operation that is not persisted.
+ * Transfers between two of its accounts are applied like any command; transfers across shards are coordinated
+ * by the lower shard, the higher one holding its account meanwhile.
+ * A failure, such as the balance of an account failing to load, fails the commands concerned but never the thread.
+ */
+final class Shard implements Runnable {
+
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final OperationDao operationDao;
+    private final Clock clock;
+    private final MpscRingBuffer<Command> commands;
+    private final int batchSize;
+    private final Map<UUID, AccountState> accounts = new HashMap<>();
+    private final List<Command> batch;
+    private final List<Operation> operations;
+    private final Thread thread;
+    private LocalDateTime lastDate = LocalDateTime.MIN;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    Shard(int id, OperationDao operationDao, Clock clock, int queueCapacity, int batchSize) {
+        this.operationDao = operationDao;
+        this.clock = clock;
+        this.commands = new MpscRingBuffer<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+        this.operations = new ArrayList<>(batchSize);
+        this.thread = new Thread(this, "shard-" + id);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Waits for room in the queue when it is full, which slows producers down to the pace of the shard.
+     */
+    void submit(Command command) {
+        while (!commands.offer(command)) {
+            if(!running) throw new RejectedExecutionException("The shard is stopped");
+            Thread.yield();
+        }
+        if(sleeping) LockSupport.unpark(thread);
+        if(stopped) rejectRemaining();
+    }
+
+    /**
+     * Applies the commands already queued, then stops.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join();
+    }
+
+    @Override
+    public void run() {
+        int idleSpins = 0;
+        while (running || !commands.isEmpty()) {
+            Command command;
+            while (batch.size() < batchSize && (command = commands.poll()) != null) {
+                batch.add(command);
+            }
+            if(batch.isEmpty()) {
+                idleSpins = idle(idleSpins);
+                continue;
+            }
+            idleSpins = 0;
+            try {
+                apply();
+            } catch (RuntimeException e) {
+                batch.forEach(failed -> failed.fail(e));
+                batch.clear();
+                operations.clear();
+            }
+        }
+        stopped = true;
+        rejectRemaining();
+    }
+
+    /**
+     * Fails the commands that made it into the queue after the thread exited. Once it has,
+     * submitters take turns as the consumer, hence the lock.
+     */
+    private synchronized void rejectRemaining() {
+        Command command;
+        while ((command = commands.poll()) != null) {
+            command.fail(new RejectedExecutionException("The shard is stopped"));
+        }
+    }
+
+    private int idle(int idleSpins) {
+        if(idleSpins < SPINS_BEFORE_PARKING) {
+            Thread.onSpinWait();
+            return idleSpins + 1;
+        }
+        sleeping = true;
+        if(running && commands.isEmpty()) LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        sleeping = false;
+        return idleSpins;
+    }
+
+    /**
+     * Commands are saved in segments: the operations before a transfer across shards, or before a hold, are saved
+     * and completed first, so that the history of every account is saved in the order of its balances.
+     */
+    private void apply() {
+        LocalDateTime date = now();
+        int segmentStart = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            if(command.handoff() != null || command.partner() != null) {
+                save(segmentStart, i);
+                segmentStart = i + 1;
+                if(command.handoff() != null) hold(command);
+                else transferAcross(command);
+                date = now();
+                continue;
+            }
+            try {
+                if(command.creditedAccountId() != null) transferWithin(command, date);
+                else applyOne(command, date);
+            } catch (OutOfBalanceException | RuntimeException e) {
+                command.error = e;
+            }
+        }
+        save(segmentStart, batch.size());
+        batch.clear();
+    }
+
+    private void applyOne(Command command, LocalDateTime date) throws OutOfBalanceException {
+        AccountState account = accounts.computeIfAbsent(command.accountId(), this::load);
+        long amount = command.amount().getMinorUnits();
+        long newBalance = command.type() == OperationType.WITHDRAWAL
+                ? MinorUnits.subtract(account.balance, amount)
+                : MinorUnits.add(account.balance, amount);
+        if(command.type() == OperationType.WITHDRAWAL && newBalance <= 0) throw new OutOfBalanceException();
+
+        account.balance = newBalance;
+        command.operation = new Operation(command.accountId(), command.type(), command.amount(), date, MinorUnits.toBigDecimal(newBalance));
+        operations.add(command.operation);
+    }
+
+    private void transferWithin(Command command, LocalDateTime date) throws OutOfBalanceException {
+        if(command.accountId().equals(command.creditedAccountId())) throw new IllegalArgumentException("Cannot transfer within account " + command.accountId());
+        AccountState debited = accounts.computeIfAbsent(command.accountId(), this::load);
+        AccountState credited = accounts.computeIfAbsent(command.creditedAccountId(), this::load);
+        long amount = command.amount().getMinorUnits();
+        long newDebitedBalance = MinorUnits.subtract(debited.balance, amount);
+        if(newDebitedBalance <= 0) throw new OutOfBalanceException();
+        long newCreditedBalance = MinorUnits.add(credited.balance, amount);
+
+        debited.balance = newDebitedBalance;
+        credited.balance = newCreditedBalance;
+        command.operation = new Operation(command.accountId(), OperationType.TRANSFER_OUT, command.amount(), date, MinorUnits.toBigDecimal(newDebitedBalance));
+        command.credit = new Operation(command.creditedAccountId(), OperationType.TRANSFER_IN, command.amount(), date, MinorUnits.toBigDecimal(newCreditedBalance));
+        operations.add(command.operation);
+        operations.add(command.credit);
+    }
+
+    /**
+     * Coordinates a transfer with the higher shard owning the other account: it holds that account, both legs are saved
+     * at once, then it applies its new balance. Shards only wait for higher shards, so they cannot wait for each other.
+     */
+    private void transferAcross(Command command) {
+        UUID debitedAccountId = command.accountId();
+        UUID creditedAccountId = command.creditedAccountId();
+        boolean debitedHeld = command.heldAccountId().equals(debitedAccountId);
+        UUID localAccountId = debitedHeld ? creditedAccountId : debitedAccountId;
+        TransferHandoff handoff = new TransferHandoff();
+        boolean saving = false;
+        try {
+            AccountState local = accounts.computeIfAbsent(localAccountId, this::load);
+            command.partner().submit(Command.hold(command.heldAccountId(), handoff));
+            long heldBalance = handoff.awaitHeld();
+
+            long amount = command.amount().getMinorUnits();
+            long newDebitedBalance = MinorUnits.subtract(debitedHeld ? heldBalance : local.balance, amount);
+            if(newDebitedBalance <= 0) throw new OutOfBalanceException();
+            long newCreditedBalance = MinorUnits.add(debitedHeld ? local.balance : heldBalance, amount);
+            LocalDateTime date = now();
+            if(handoff.heldLastDate().isAfter(date)) lastDate = date = handoff.heldLastDate();
+            Operation debit = new Operation(debitedAccountId, OperationType.TRANSFER_OUT, command.amount(), date, MinorUnits.toBigDecimal(newDebitedBalance));
+            Operation credit = new Operation(creditedAccountId, OperationType.TRANSFER_IN, command.amount(), date, MinorUnits.toBigDecimal(newCreditedBalance));
+
+            saving = true;
+            operationDao.saveAll(List.of(debit, credit));
+            local.balance = debitedHeld ? newCreditedBalance : newDebitedBalance;
+            handoff.commit(debitedHeld ? newDebitedBalance : newCreditedBalance, date);
+            command.operation = debit;
+            command.credit = credit;
+        } catch (OutOfBalanceException | RuntimeException e) {
+            command.error = e;
+            if(saving) {
+                accounts.remove(localAccountId);
+                handoff.reload();
+            }
+        } finally {
+            handoff.release();
+        }
+        command.complete();
+    }
+
+    /**
+     * Holds an account for a transfer coordinated by a lower shard, until it is saved or abandoned.
+     */
+    private void hold(Command hold) {
+        TransferHandoff handoff = hold.handoff();
+        AccountState account;
+        try {
+            account = accounts.computeIfAbsent(hold.accountId(), this::load);
+        } catch (RuntimeException e) {
+            handoff.reject(e);
+            return;
+        }
+        handoff.hold(account.balance, lastDate);
+        if(handoff.committed()) {
+            account.balance = handoff.newBalance();
+            if(handoff.date().isAfter(lastDate)) lastDate = handoff.date();
+        } else if(handoff.reloading()) {
+            accounts.remove(hold.accountId());
+        }
+    }
+
+    /**
+     * Current date, never before one this shard already used, so that its accounts stay in date order when the clock
+     * steps back. A transfer across shards is dated no earlier than the last date of either shard.
+     */
+    private LocalDateTime now() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        if(now.isAfter(lastDate)) lastDate = now;
+        return lastDate;
+    }
+
+    /**
+     * Saves the operations of the commands {@code [from, to)} of the batch and completes them.
+     */
+    private void save(int from, int to) {
+        try {
+            if(!operations.isEmpty()) operationDao.saveAll(operations);
+            for (int i = from; i < to; i++) {
+                batch.get(i).complete();
+            }
+        } catch (RuntimeException e) {
+            for (int i = from; i < to; i++) {
+                Command command = batch.get(i);
+                accounts.remove(command.accountId());
+                if(command.creditedAccountId() != null) accounts.remove(command.creditedAccountId());
+                command.fail(e);
+            }
+        } finally {
+            operations.clear();
+        }
+    }
+
+    private AccountState load(UUID accountId) {
+        AccountState account = new AccountState();
+        account.balance = MinorUnits.of(operationDao.getAccountBalanceById(accountId));
+        return account;
+    }
+
+    private static final class AccountState {
+        private long balance;
+    }
+}
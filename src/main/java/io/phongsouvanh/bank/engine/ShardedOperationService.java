@@ -0,0 +1,198 @@
+package io.phongsouvanh.bank.engine;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.service.BatchItem;
+import io.phongsouvanh.bank.service.BatchResult;
+import io.phongsouvanh.bank.service.DefaultOperationService;
+import io.phongsouvanh.bank.service.OperationService;
+import io.phongsouvanh.bank.service.TransferItem;
+import io.phongsouvanh.bank.service.TransferResult;
+import io.phongsouvanh.bank.statements.StatementFormatter;
+import io.phongsouvanh.bank.statements.StatementPrinter;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link OperationService} partitioning accounts by {@link UUID} hash across single-threaded {@link Shard}s.
+ * Each shard keeps the balances of its accounts in memory and is their only writer, so no lock is taken per call;
+ * callers hand their deposit or withdrawal over through a lock-free ring buffer and wait for the result.
+ * The engine must be the only writer of the accounts it serves, since balances are read from the DAO only once.
+ * Statements are read straight from the DAO, which holds every operation the engine has returned.
+ * A transfer is handed to the lower of the shards of its two accounts, which saves both legs at once while the other
+ * shard holds its account.
+ */
+public class ShardedOperationService implements OperationService, AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Shard[] shards;
+    private final OperationService statements;
+    private volatile boolean closed;
+
+    public ShardedOperationService(OperationDao operationDao, Clock clock, StatementFormatter formatter, StatementPrinter printer, int shardCount) {
+        this(operationDao, clock, formatter, printer, shardCount, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    public ShardedOperationService(OperationDao operationDao, Clock clock, StatementFormatter formatter, StatementPrinter printer,
+                                   int shardCount, int queueCapacity, int batchSize) {
+        if(shardCount <= 0) throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        if(batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.statements = new DefaultOperationService(operationDao, clock, formatter, printer);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, operationDao, clock, queueCapacity, batchSize);
+            shards[i].start();
+        }
+    }
+
+    @Override
+    public Operation deposit(UUID accountId, Amount amount) {
+        try {
+            return await(submit(new Command(accountId, OperationType.DEPOSIT, amount)));
+        } catch (OutOfBalanceException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Operation withdraw(UUID accountId, Amount amount) throws OutOfBalanceException {
+        return await(submit(new Command(accountId, OperationType.WITHDRAWAL, amount)));
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId) {
+        statements.printAccountStatement(accountId);
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, LocalDate from, LocalDate to) {
+        statements.printAccountStatement(accountId, from, to);
+    }
+
+    /**
+     * Submits every valid item before waiting for any, so the shards save them in as few batches as possible.
+     */
+    @Override
+    public List<BatchResult> applyBatch(List<BatchItem> items) {
+        List<Object> pending = new ArrayList<>(items.size());
+        for (BatchItem item : items) {
+            try {
+                if(item.type() != OperationType.DEPOSIT && item.type() != OperationType.WITHDRAWAL) {
+                    throw new IllegalArgumentException("Unsupported batch operation " + item.type());
+                }
+                pending.add(submit(new Command(item.accountId(), item.type(), new Amount(item.amount()))));
+            } catch (Exception e) {
+                pending.add(e);
+            }
+        }
+
+        List<BatchResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                if(pending.get(i) instanceof Exception e) throw e;
+                results.add(BatchResult.success(items.get(i), await((Command) pending.get(i))));
+            } catch (Exception e) {
+                results.add(BatchResult.failure(items.get(i), e));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public Transfer transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) throws OutOfBalanceException {
+        Command command = submitTransfer(debitedAccountId, creditedAccountId, amount);
+        return new Transfer(await(command), command.credit);
+    }
+
+    /**
+     * Submits every valid transfer before waiting for any, like {@link #applyBatch(List)}.
+     */
+    @Override
+    public List<TransferResult> applyTransfers(List<TransferItem> items) {
+        List<Object> pending = new ArrayList<>(items.size());
+        for (TransferItem item : items) {
+            try {
+                pending.add(submitTransfer(item.debitedAccountId(), item.creditedAccountId(), new Amount(item.amount())));
+            } catch (Exception e) {
+                pending.add(e);
+            }
+        }
+
+        List<TransferResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                if(pending.get(i) instanceof Exception e) throw e;
+                Command command = (Command) pending.get(i);
+                results.add(TransferResult.success(items.get(i), new Transfer(await(command), command.credit)));
+            } catch (Exception e) {
+                results.add(TransferResult.failure(items.get(i), e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Applies the commands already submitted and stops the shard threads. Interrupted while waiting for one, it still stops
+     * the others, then restores the interrupt status rather than throwing {@link InterruptedException} out of a
+     * try-with-resources.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        for (Shard shard : shards) {
+            try {
+                shard.stop();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+
+    private Command submit(Command command) {
+        if(closed) throw new RejectedExecutionException("The service is closed");
+        shards[shardOf(command.accountId())].submit(command);
+        return command;
+    }
+
+    private Command submitTransfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) {
+        if(debitedAccountId.equals(creditedAccountId)) throw new IllegalArgumentException("Cannot transfer within account " + debitedAccountId);
+        if(closed) throw new RejectedExecutionException("The service is closed");
+        int debitedShard = shardOf(debitedAccountId);
+        int creditedShard = shardOf(creditedAccountId);
+        Command command = debitedShard == creditedShard
+                ? Command.transfer(debitedAccountId, creditedAccountId, amount, null, null)
+                : Command.transfer(debitedAccountId, creditedAccountId, amount, shards[Math.max(debitedShard, creditedShard)],
+                        debitedShard > creditedShard ? debitedAccountId : creditedAccountId);
+        shards[Math.min(debitedShard, creditedShard)].submit(command);
+        return command;
+    }
+
+    int shardOf(UUID accountId) {
+        int hash = accountId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private static Operation await(Command command) throws OutOfBalanceException {
+        try {
+            return command.result().join();
+        } catch (CompletionException e) {
+            if(e.getCause() instanceof OutOfBalanceException outOfBalance) throw outOfBalance;
+            if(e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.phongsouvanh.bank.engine;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Meeting point of a transfer whose two accounts belong to different shards. The shard owning the other account holds it:
+ * it hands its balance and last date over and waits while the coordinating shard saves both legs, dated no earlier than
+ * either shard's last date, then applies the new balance if the transfer was saved, or reloads it if the save failed.
+ * Fields are published through the latches.
+ */
+final class TransferHandoff {
+
+    private final CountDownLatch held = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private long balance;
+    private LocalDateTime heldLastDate;
+    private RuntimeException error;
+    private boolean committed;
+    private boolean reload;
+    private long newBalance;
+    private LocalDateTime date;
+
+    /**
+     * Called by the holding shard: hands the balance over and waits for the coordinator to release the account.
+     */
+    void hold(long balance, LocalDateTime lastDate) {
+        this.balance = balance;
+        this.heldLastDate = lastDate;
+        held.countDown();
+        awaitUninterruptibly(released);
+    }
+
+    /**
+     * Called instead of {@link #hold(long, LocalDateTime)} when the account cannot be held.
+     */
+    void reject(RuntimeException error) {
+        this.error = error;
+        held.countDown();
+    }
+
+    /**
+     * Called by the coordinator: waits until the account is held and returns its balance.
+     */
+    long awaitHeld() {
+        awaitUninterruptibly(held);
+        if(error != null) throw error;
+        return balance;
+    }
+
+    LocalDateTime heldLastDate() {
+        return heldLastDate;
+    }
+
+    void commit(long newBalance, LocalDateTime date) {
+        this.newBalance = newBalance;
+        this.date = date;
+        this.committed = true;
+    }
+
+    void reload() {
+        this.reload = true;
+    }
+
+    void release() {
+        released.countDown();
+    }
+
+    boolean committed() {
+        return committed;
+    }
+
+    boolean reloading() {
+        return reload;
+    }
+
+    long newBalance() {
+        return newBalance;
+    }
+
+    LocalDateTime date() {
+        return date;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+}
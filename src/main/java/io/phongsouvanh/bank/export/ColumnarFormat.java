@@ -0,0 +1,57 @@
+package io.phongsouvanh.bank.export;
+
+/**
+ * Layout of a columnar operation export.
+ * <pre>
+ * file   : magic "OPCL"  version (1 byte)  flags (1 byte)  block*  end (int 0)
+ * block  : rows (int)  raw length (int)  stored length (int)  crc32c of the raw payload (int)  payload
+ * payload: account runs    varint run count, then per run: varint length, msb (8 bytes), lsb (8 bytes)
+ *          types           one byte per row
+ *          amounts         varint minor units per row
+ *          dates           zigzag varint delta of the epoch second, then varint nano, per row
+ *          balances        zigzag varint delta of the minor units per row
+ * </pre>
+ * Deltas start from zero in every block, so that blocks decode independently. With {@link #DEFLATED}
+ * the payload is stored deflated.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x4F50434C;
+    static final byte VERSION = 1;
+    static final byte DEFLATED = 1;
+    static final int BLOCK_HEADER_BYTES = 4 * Integer.BYTES;
+
+    private ColumnarFormat() {
+    }
+
+    static int putVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void putLong(byte[] buffer, int position, long value) {
+        for (int i = 7; i >= 0; i--) {
+            buffer[position++] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    static long getLong(byte[] buffer, int position) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position + i] & 0xFF);
+        }
+        return value;
+    }
+}
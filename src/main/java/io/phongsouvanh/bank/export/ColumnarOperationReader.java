@@ -0,0 +1,175 @@
+package io.phongsouvanh.bank.export;
+
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static io.phongsouvanh.bank.export.ColumnarFormat.*;
+
+/**
+ * Reads back an export of {@link ColumnarOperationWriter} one block at a time.
+ * {@link #readBlock()} decodes straight into primitive columns, for scans that do not need {@link Operation} objects.
+ */
+public class ColumnarOperationReader implements Closeable {
+
+    private static final int TYPE_COUNT = OperationType.values().length;
+
+    private final DataInputStream in;
+    private final Inflater inflater;
+    private final CRC32C crc = new CRC32C();
+    private OperationColumns block = new OperationColumns(0);
+    private byte[] raw = new byte[0];
+    private byte[] stored = new byte[0];
+    private int position;
+    private boolean ended;
+
+    public ColumnarOperationReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if(this.in.readInt() != MAGIC) throw new IOException("Not a columnar operation export");
+        byte version = this.in.readByte();
+        if(version != VERSION) throw new IOException("Unsupported export version " + version);
+        this.inflater = (this.in.readByte() & DEFLATED) != 0 ? new Inflater() : null;
+    }
+
+    /**
+     * @return the next block, reusing the columns of the previous one, or {@code null} once the export is read
+     */
+    public OperationColumns readBlock() throws IOException {
+        if(ended) return null;
+        int rows = in.readInt();
+        if(rows == 0) {
+            ended = true;
+            return null;
+        }
+        int rawLength = in.readInt();
+        int storedLength = in.readInt();
+        int checksum = in.readInt();
+        if(rows < 0 || rawLength < 0 || storedLength < 0) throw new IOException("Corrupted block header");
+
+        if(block.types.length < rows) block = new OperationColumns(rows);
+        if(raw.length < rawLength) raw = new byte[rawLength];
+        if(inflater == null) {
+            in.readFully(raw, 0, rawLength);
+        } else {
+            if(stored.length < storedLength) stored = new byte[storedLength];
+            in.readFully(stored, 0, storedLength);
+            inflate(storedLength, rawLength);
+        }
+        crc.reset();
+        crc.update(raw, 0, rawLength);
+        if((int) crc.getValue() != checksum) throw new IOException("Corrupted block: checksum mismatch");
+
+        decode(rows);
+        if(position != rawLength) throw new IOException("Corrupted block: " + (rawLength - position) + " bytes left");
+        return block;
+    }
+
+    /**
+     * Lazily decodes the remaining operations. Reading errors are thrown as {@link UncheckedIOException}.
+     */
+    public Stream<Operation> operations() {
+        Spliterator<OperationColumns> blocks = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super OperationColumns> action) {
+                try {
+                    OperationColumns columns = readBlock();
+                    if(columns == null) return false;
+                    action.accept(columns);
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(blocks, false)
+                .flatMap(columns -> IntStream.range(0, columns.size()).mapToObj(columns::operation));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(inflater != null) inflater.end();
+        in.close();
+    }
+
+    private void inflate(int storedLength, int rawLength) throws IOException {
+        inflater.reset();
+        inflater.setInput(stored, 0, storedLength);
+        try {
+            if(inflater.inflate(raw, 0, rawLength) != rawLength || !inflater.finished()) {
+                throw new IOException("Corrupted block: unexpected deflated length");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted block", e);
+        }
+    }
+
+    private void decode(int rows) throws IOException {
+        OperationColumns columns = block;
+        position = 0;
+        int runs = (int) varLong();
+        int row = 0;
+        for (int run = 0; run < runs; run++) {
+            int length = (int) varLong();
+            if(length <= 0 || row + length > rows) throw new IOException("Corrupted block: account run of " + length + " rows");
+            long msb = getLong(raw, position);
+            long lsb = getLong(raw, position + Long.BYTES);
+            position += 2 * Long.BYTES;
+            for (int end = row + length; row < end; row++) {
+                columns.accountMsb[row] = msb;
+                columns.accountLsb[row] = lsb;
+            }
+        }
+        if(row != rows) throw new IOException("Corrupted block: account runs cover " + row + " of " + rows + " rows");
+
+        for (row = 0; row < rows; row++) {
+            byte type = raw[position++];
+            if(type < 0 || type >= TYPE_COUNT) throw new IOException("Corrupted block: unknown operation type " + type);
+            columns.types[row] = type;
+        }
+        for (row = 0; row < rows; row++) {
+            columns.amounts[row] = varLong();
+        }
+        long second = 0;
+        for (row = 0; row < rows; row++) {
+            second += unZigZag(varLong());
+            columns.epochSeconds[row] = second;
+            columns.nanos[row] = (int) varLong();
+        }
+        long balance = 0;
+        for (row = 0; row < rows; row++) {
+            balance += unZigZag(varLong());
+            columns.balances[row] = balance;
+        }
+        columns.size = rows;
+    }
+
+    private long varLong() {
+        byte[] bytes = raw;
+        int p = position;
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[p++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        position = p;
+        return value;
+    }
+}
@@ -0,0 +1,188 @@
+package io.phongsouvanh.bank.export;
+
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationDao;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+import static io.phongsouvanh.bank.export.ColumnarFormat.*;
+
+/**
+ * Streams operations to the columnar format described in {@link ColumnarFormat}.
+ * Only the current block of {@code blockRows} operations is held in memory, whatever the length of the histories written.
+ */
+public class ColumnarOperationWriter implements Closeable {
+
+    public static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    private static final int MAX_ROW_BYTES = 1 + 10 + 10 + 5 + 10;
+    private static final int MAX_RUN_BYTES = 10 + 2 * Long.BYTES;
+
+    private final DataOutputStream out;
+    private final OperationColumns block;
+    private final Deflater deflater;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] raw;
+    private byte[] stored;
+    private long rows;
+    private boolean closed;
+
+    public ColumnarOperationWriter(OutputStream out, boolean deflated) throws IOException {
+        this(out, deflated, DEFAULT_BLOCK_ROWS);
+    }
+
+    public ColumnarOperationWriter(OutputStream out, boolean deflated, int blockRows) throws IOException {
+        if(blockRows <= 0) throw new IllegalArgumentException("blockRows must be positive: " + blockRows);
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.block = new OperationColumns(blockRows);
+        this.deflater = deflated ? new Deflater(Deflater.BEST_SPEED) : null;
+        this.raw = new byte[blockRows * (MAX_ROW_BYTES + MAX_RUN_BYTES) + 10];
+        this.stored = deflated ? new byte[raw.length] : raw;
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeByte(deflated ? DEFLATED : 0);
+    }
+
+    /**
+     * Writes the history of every account of the DAO, account after account, most recent operation first.
+     *
+     * @return the number of operations written
+     */
+    public static long export(OperationDao operationDao, OutputStream out, boolean deflated) throws IOException {
+        try (ColumnarOperationWriter writer = new ColumnarOperationWriter(out, deflated)) {
+            for (UUID accountId : operationDao.getAccountIds()) {
+                try (Stream<Operation> operations = operationDao.streamAccountOperationsById(accountId)) {
+                    writer.writeAll(operations);
+                }
+            }
+            return writer.rows();
+        }
+    }
+
+    public void write(Operation operation) throws IOException {
+        if(closed) throw new IllegalStateException("The writer is closed");
+        block.add(operation);
+        rows++;
+        if(block.isFull()) flushBlock();
+    }
+
+    public void writeAll(Stream<Operation> operations) throws IOException {
+        try {
+            operations.forEachOrdered(operation -> {
+                try {
+                    write(operation);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Writes the last block and the end marker, then closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) return;
+        closed = true;
+        try {
+            flushBlock();
+            out.writeInt(0);
+        } finally {
+            if(deflater != null) deflater.end();
+            out.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        int size = block.size;
+        if(size == 0) return;
+
+        int rawLength = encode(size);
+        crc.reset();
+        crc.update(raw, 0, rawLength);
+        int storedLength = deflater == null ? rawLength : deflate(rawLength);
+
+        out.writeInt(size);
+        out.writeInt(rawLength);
+        out.writeInt(storedLength);
+        out.writeInt((int) crc.getValue());
+        out.write(stored, 0, storedLength);
+        block.size = 0;
+    }
+
+    private int encode(int size) {
+        int position = encodeAccountRuns(size);
+        for (int row = 0; row < size; row++) {
+            raw[position++] = block.types[row];
+        }
+        for (int row = 0; row < size; row++) {
+            position = putVarLong(raw, position, block.amounts[row]);
+        }
+        long previousSecond = 0;
+        for (int row = 0; row < size; row++) {
+            position = putVarLong(raw, position, zigZag(block.epochSeconds[row] - previousSecond));
+            position = putVarLong(raw, position, block.nanos[row]);
+            previousSecond = block.epochSeconds[row];
+        }
+        long previousBalance = 0;
+        for (int row = 0; row < size; row++) {
+            position = putVarLong(raw, position, zigZag(block.balances[row] - previousBalance));
+            previousBalance = block.balances[row];
+        }
+        return position;
+    }
+
+    /**
+     * Accounts come in long runs, an account history being written at once: only the changes of account are stored.
+     */
+    private int encodeAccountRuns(int size) {
+        int runs = 0;
+        for (int row = 0; row < size; row++) {
+            if(row == 0 || !sameAccount(row - 1, row)) runs++;
+        }
+        int position = putVarLong(raw, 0, runs);
+        int runStart = 0;
+        for (int row = 1; row <= size; row++) {
+            if(row < size && sameAccount(row - 1, row)) continue;
+            position = putVarLong(raw, position, row - runStart);
+            putLong(raw, position, block.accountMsb[runStart]);
+            putLong(raw, position + Long.BYTES, block.accountLsb[runStart]);
+            position += 2 * Long.BYTES;
+            runStart = row;
+        }
+        return position;
+    }
+
+    private boolean sameAccount(int row, int other) {
+        return block.accountMsb[row] == block.accountMsb[other] && block.accountLsb[row] == block.accountLsb[other];
+    }
+
+    private int deflate(int rawLength) {
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if(length == stored.length) stored = Arrays.copyOf(stored, stored.length * 2);
+            length += deflater.deflate(stored, length, stored.length - length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,90 @@
+package io.phongsouvanh.bank.export;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.exceptions.NegativeAmountException;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * One block of operations held as primitive columns, dates in UTC and amounts in minor units.
+ * Readers reuse the same instance for every block, so rows must be consumed before reading the next one.
+ */
+public final class OperationColumns {
+
+    private static final OperationType[] TYPES = OperationType.values();
+
+    int size;
+    final long[] accountMsb;
+    final long[] accountLsb;
+    final byte[] types;
+    final long[] amounts;
+    final long[] epochSeconds;
+    final int[] nanos;
+    final long[] balances;
+
+    OperationColumns(int capacity) {
+        this.accountMsb = new long[capacity];
+        this.accountLsb = new long[capacity];
+        this.types = new byte[capacity];
+        this.amounts = new long[capacity];
+        this.epochSeconds = new long[capacity];
+        this.nanos = new int[capacity];
+        this.balances = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public UUID accountId(int row) {
+        return new UUID(accountMsb[row], accountLsb[row]);
+    }
+
+    public OperationType type(int row) {
+        return TYPES[types[row]];
+    }
+
+    public long amountMinorUnits(int row) {
+        return amounts[row];
+    }
+
+    public LocalDateTime date(int row) {
+        return LocalDateTime.ofEpochSecond(epochSeconds[row], nanos[row], ZoneOffset.UTC);
+    }
+
+    public long balanceMinorUnits(int row) {
+        return balances[row];
+    }
+
+    public Operation operation(int row) {
+        try {
+            return new Operation(accountId(row), type(row), Amount.ofMinorUnits(amounts[row]), date(row), MinorUnits.toBigDecimal(balances[row]));
+        } catch (NegativeAmountException e) {
+            throw new IllegalStateException("Negative amount in row " + row, e);
+        }
+    }
+
+    boolean isFull() {
+        return size == types.length;
+    }
+
+    /**
+     * Converts the balance before taking the row, so that a balance without exact minor units leaves the columns unchanged.
+     */
+    void add(Operation operation) {
+        long balance = MinorUnits.of(operation.balance());
+        int row = size++;
+        accountMsb[row] = operation.accountId().getMostSignificantBits();
+        accountLsb[row] = operation.accountId().getLeastSignificantBits();
+        types[row] = (byte) operation.type().ordinal();
+        amounts[row] = operation.amount().getMinorUnits();
+        epochSeconds[row] = operation.date().toEpochSecond(ZoneOffset.UTC);
+        nanos[row] = operation.date().getNano();
+        balances[row] = balance;
+    }
+}
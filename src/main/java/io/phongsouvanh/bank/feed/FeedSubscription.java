@@ -0,0 +1,161 @@
+package io.phongsouvanh.bank.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cursor of a subscriber in the ring of an {@link OperationFeed}, delivering single operations, or batches of up to
+ * {@code maxBatchSize} operations if positive.
+ * <p>
+ * Signals are delivered by one task at a time on the feed's executor: {@code work} counts the signals received since the task
+ * started, so that one arriving while it delivers makes it loop once more instead of starting another.
+ */
+final class FeedSubscription<T> implements Flow.Subscription, Runnable {
+
+    private final OperationFeed feed;
+    private final Flow.Subscriber<? super T> subscriber;
+    private final int maxBatchSize;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger work = new AtomicInteger();
+    private long cursor;
+    private volatile Throwable error;
+    private volatile boolean done;
+
+    FeedSubscription(OperationFeed feed, Flow.Subscriber<? super T> subscriber, long fromSequence, int maxBatchSize) {
+        this.feed = feed;
+        this.subscriber = subscriber;
+        this.cursor = fromSequence;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    void start() {
+        subscriber.onSubscribe(this);
+        if(cursor < 0) {
+            error = new IllegalArgumentException("Negative sequence: " + cursor);
+        } else if(cursor > feed.reservedSequence()) {
+            error = new IllegalArgumentException("Sequence " + cursor + " is not reserved yet, the next one is " + feed.reservedSequence());
+        } else if(cursor < feed.publishedSequence() && feed.at(cursor) == null) {
+            error = new IllegalStateException("Sequence " + cursor + " is no longer retained, the feed keeps the last " + feed.capacity());
+        }
+        schedule();
+    }
+
+    @Override
+    public void request(long n) {
+        if(n <= 0) {
+            error = new IllegalArgumentException("Non-positive request: " + n);
+        } else {
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+        }
+        schedule();
+    }
+
+    @Override
+    public void cancel() {
+        terminate();
+    }
+
+    void schedule() {
+        if(done || work.getAndIncrement() != 0) return;
+        try {
+            feed.execute(this);
+        } catch (RejectedExecutionException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        int missed = 1;
+        do {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+            missed = work.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drain() {
+        while (!done) {
+            Throwable failure = error;
+            if(failure != null) {
+                fail(failure);
+                return;
+            }
+            long published = feed.publishedSequence();
+            if(cursor >= published) {
+                if(cursor >= feed.end()) {
+                    terminate();
+                    subscriber.onComplete();
+                }
+                return;
+            }
+            if(published - cursor > feed.capacity()) {
+                fail(overflow());
+                return;
+            }
+            if(demand.get() == 0) return;
+            if(!deliver(published)) return;
+        }
+    }
+
+    /**
+     * Delivers the next operation, or the next batch, below {@code published}. Cancelled sequences are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean deliver(long published) {
+        if(maxBatchSize == 0) {
+            SequencedOperation operation = next();
+            if(operation == null) return false;
+            if(operation.operation() == null) return true;
+            demand.decrementAndGet();
+            subscriber.onNext((T) operation);
+            return true;
+        }
+
+        List<SequencedOperation> batch = new ArrayList<>((int) Math.min(maxBatchSize, published - cursor));
+        while (cursor < published && batch.size() < maxBatchSize) {
+            SequencedOperation operation = next();
+            if(operation == null) return false;
+            if(operation.operation() != null) batch.add(operation);
+        }
+        if(batch.isEmpty()) return true;
+        demand.decrementAndGet();
+        subscriber.onNext((T) batch);
+        return true;
+    }
+
+    /**
+     * The operation at the cursor, moved past it, or {@code null} after failing the subscription if it was overwritten.
+     */
+    private SequencedOperation next() {
+        SequencedOperation operation = feed.at(cursor);
+        if(operation == null) {
+            fail(overflow());
+            return null;
+        }
+        cursor++;
+        return operation;
+    }
+
+    private IllegalStateException overflow() {
+        return new IllegalStateException("Subscriber lagged more than " + feed.capacity() + " operations behind, at sequence " + cursor);
+    }
+
+    private void fail(Throwable failure) {
+        if(done) return;
+        terminate();
+        subscriber.onError(failure);
+    }
+
+    private void terminate() {
+        done = true;
+        feed.remove(this);
+    }
+}
@@ -0,0 +1,220 @@
+package io.phongsouvanh.bank.feed;
+
+import io.phongsouvanh.bank.operations.Operation;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change feed of the operations saved, so that consumers such as fraud checks are pushed new operations instead of polling
+ * histories.
+ * <p>
+ * Operations are numbered in a single sequence and kept in a ring of the last {@code capacity} ones shared by every subscriber.
+ * A subscription is only a cursor in the ring: a subscriber may lag up to {@code capacity} operations behind, and may subscribe
+ * from any sequence still in the ring to resume where it stopped. Operations are delivered on {@code executor} within the demand
+ * requested, one by one or in {@link #batches(int) batches}. Writers never wait for subscribers: a subscriber lagging further
+ * than the ring is cancelled with an error.
+ * <p>
+ * Writers number operations in two steps, so that the sequence follows the order of each account's history: they
+ * {@link #reserve(int) reserve} sequences while they hold the account, then {@link #publish(long, List) publish} the operations
+ * once saved, or {@link #cancel(long, int) cancel} the sequences if the save failed. An operation is delivered once every
+ * lower sequence is published or cancelled.
+ * <p>
+ * Sequences start from {@code firstSequence}, which a feed recreated after a restart sets past the last sequence of the
+ * previous one, so that the sequences consumers resume from still designate the same operations. Subscribing from a
+ * sequence not reserved yet is rejected rather than waiting for it.
+ */
+public class OperationFeed implements Flow.Publisher<SequencedOperation>, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final SequencedOperation[] ring;
+    private final int mask;
+    private final Executor executor;
+    private final CopyOnWriteArrayList<FeedSubscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+    private final TreeMap<Long, SequencedOperation> outOfOrder = new TreeMap<>();
+    private final AtomicLong reserved;
+    private volatile long published;
+    private volatile long end = Long.MAX_VALUE;
+
+    public OperationFeed() {
+        this(DEFAULT_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param capacity operations kept for replay and lagging subscribers, a power of two
+     */
+    public OperationFeed(int capacity, Executor executor) {
+        this(capacity, executor, 0);
+    }
+
+    /**
+     * @param firstSequence sequence of the first operation, e.g. the one following the last sequence of a previous feed
+     */
+    public OperationFeed(int capacity, Executor executor, long firstSequence) {
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        if(firstSequence < 0) throw new IllegalArgumentException("firstSequence must not be negative: " + firstSequence);
+        this.ring = new SequencedOperation[capacity];
+        this.mask = capacity - 1;
+        this.executor = executor;
+        this.reserved = new AtomicLong(firstSequence);
+        this.published = firstSequence;
+    }
+
+    /**
+     * Subscribes to the operations published from now on.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super SequencedOperation> subscriber) {
+        start(new FeedSubscription<>(this, subscriber, published, 0));
+    }
+
+    /**
+     * Subscribes from {@code fromSequence}, which must still be in the ring unless it is yet to be published, and be
+     * reserved already or be the next one to be.
+     */
+    public void subscribe(Flow.Subscriber<? super SequencedOperation> subscriber, long fromSequence) {
+        start(new FeedSubscription<>(this, subscriber, fromSequence, 0));
+    }
+
+    /**
+     * The same feed, delivered in batches of up to {@code maxBatchSize} operations, each batch counting as one item of demand.
+     */
+    public Flow.Publisher<List<SequencedOperation>> batches(int maxBatchSize) {
+        checkBatchSize(maxBatchSize);
+        return subscriber -> start(new FeedSubscription<>(this, subscriber, published, maxBatchSize));
+    }
+
+    public Flow.Publisher<List<SequencedOperation>> batches(int maxBatchSize, long fromSequence) {
+        checkBatchSize(maxBatchSize);
+        return subscriber -> start(new FeedSubscription<>(this, subscriber, fromSequence, maxBatchSize));
+    }
+
+    /**
+     * Reserves {@code count} consecutive sequences and returns the first one. Lock-free, since writers call it while
+     * holding an account; once the feed is closed the counter is negative, so late reservations fail.
+     */
+    public long reserve(int count) {
+        long first = reserved.getAndAdd(count);
+        if(first < 0) throw new IllegalStateException("The feed is closed");
+        return first;
+    }
+
+    /**
+     * Publishes the operations saved under sequences reserved from {@code firstSequence}.
+     */
+    public void publish(long firstSequence, List<Operation> operations) {
+        synchronized (this) {
+            for (int i = 0; i < operations.size(); i++) {
+                place(new SequencedOperation(firstSequence + i, operations.get(i)));
+            }
+        }
+        signal();
+    }
+
+    /**
+     * Gives up sequences reserved for operations that could not be saved.
+     */
+    public void cancel(long firstSequence, int count) {
+        synchronized (this) {
+            for (int i = 0; i < count; i++) {
+                place(new SequencedOperation(firstSequence + i, null));
+            }
+        }
+        signal();
+    }
+
+    /**
+     * Sequence the next operation will be published under.
+     */
+    public long publishedSequence() {
+        return published;
+    }
+
+    public int subscribers() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops reserving sequences. Subscribers complete once delivered the operations of the sequences already reserved.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if(end == Long.MAX_VALUE) end = reserved.getAndSet(Long.MIN_VALUE);
+        }
+        signal();
+    }
+
+    int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * Sequence the next reservation will start from, or the end of the feed once closed.
+     */
+    long reservedSequence() {
+        long next = reserved.get();
+        return next >= 0 ? next : end;
+    }
+
+    long end() {
+        return end;
+    }
+
+    /**
+     * The operation published under {@code sequence}, below {@link #publishedSequence()}, or {@code null} if already overwritten.
+     */
+    SequencedOperation at(long sequence) {
+        SequencedOperation operation = ring[(int) sequence & mask];
+        return operation != null && operation.sequence() == sequence ? operation : null;
+    }
+
+    void execute(FeedSubscription<?> subscription) {
+        executor.execute(subscription);
+    }
+
+    void remove(FeedSubscription<?> subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    private void start(FeedSubscription<?> subscription) {
+        subscriptions.add(subscription);
+        subscription.start();
+    }
+
+    /**
+     * Writes the operation to the ring if it is the next one, followed by those of the next sequences that were waiting.
+     * The ring slot is written before {@code published} moves past it, so readers never see a slot ahead of its publication.
+     */
+    private void place(SequencedOperation operation) {
+        long next = published;
+        if(operation.sequence() != next) {
+            outOfOrder.put(operation.sequence(), operation);
+            return;
+        }
+        ring[(int) next & mask] = operation;
+        next++;
+        SequencedOperation waiting;
+        while ((waiting = outOfOrder.remove(next)) != null) {
+            ring[(int) next & mask] = waiting;
+            next++;
+        }
+        published = next;
+    }
+
+    private void signal() {
+        for (FeedSubscription<?> subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+
+    private static void checkBatchSize(int maxBatchSize) {
+        if(maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+    }
+}
@@ -0,0 +1,9 @@
+package io.phongsouvanh.bank.feed;
+
+import io.phongsouvanh.bank.operations.Operation;
+
+/**
+ * An operation of the change feed, with its position in the feed: consumers resume after a restart by subscribing
+ * from the sequence following the last one they processed.
+ */
+public record SequencedOperation(long sequence, Operation operation) { }
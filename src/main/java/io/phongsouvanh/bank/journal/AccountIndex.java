@@ -0,0 +1,80 @@
+package io.phongsouvanh.bank.journal;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Journal record numbers of a single account; its balance lives in the journal's {@link io.phongsouvanh.bank.operations.BalanceIndex}.
+ * Only written under the journal lock; readers see a consistent prefix through the volatile {@code size}, and the
+ * volatile array, possibly grown since, with every record copied into it.
+ */
+final class AccountIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile long[] records = new long[INITIAL_CAPACITY];
+    private volatile int size;
+    private volatile long lastRecord = -1;
+
+    void add(long record) {
+        int currentSize = size;
+        long[] current = records;
+        if(currentSize == current.length) {
+            current = Arrays.copyOf(current, currentSize << 1);
+            records = current;
+        }
+        current[currentSize] = record;
+        lastRecord = record;
+        size = currentSize + 1;
+    }
+
+    void restore(long snapshotLastRecord) {
+        lastRecord = snapshotLastRecord;
+    }
+
+    long lastRecord() {
+        return lastRecord;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Record number at {@code position}, which must be below a {@link #size()} read beforehand.
+     */
+    long record(int position) {
+        return records[position];
+    }
+
+    /**
+     * Position of the first record numbered at or after {@code recordNumber} among the first {@code size} ones.
+     */
+    int positionOf(long recordNumber, int size) {
+        long[] current = records;
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if(current[middle] < recordNumber) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * The first {@code size} record numbers; {@code size} must have been read beforehand.
+     */
+    long[] records(int currentSize) {
+        return Arrays.copyOf(records, currentSize);
+    }
+
+    /**
+     * The first {@code size} record numbers, most recent first; {@code size} must have been read beforehand.
+     */
+    LongStream descendingRecords(int currentSize) {
+        long[] current = records;
+        return IntStream.range(0, currentSize).mapToLong(i -> current[currentSize - 1 - i]);
+    }
+}
@@ -0,0 +1,590 @@
+package io.phongsouvanh.bank.journal;
+
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.AccountSnapshot;
+import io.phongsouvanh.bank.operations.BalanceIndex;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationCursor;
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.operations.OperationFactory;
+import io.phongsouvanh.bank.operations.OperationPage;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.operations.TransferFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * {@link OperationDao} persisting every operation to an append-only journal of memory-mapped,
+ * fixed-size records split into segment files.
+ * Appends are serialized on the journal and fsynced in groups of {@link JournalOptions#syncEvery()} records
+ * and/or every {@link JournalOptions#syncInterval()}.
+ * <p>
+ * Per-account record numbers are kept in memory, balances off-heap in a {@link BalanceIndex}. {@link #snapshot()} checkpoints every balance,
+ * after which {@link #compact()} moves the segments covered by every snapshot kept, the previous one included as a fallback,
+ * to the archive directory.
+ * {@link #open(JournalOptions)} loads the latest readable snapshot and replays only the live segments, truncating a
+ * torn tail record, along with the first leg of a transfer whose second leg never made it to disk.
+ * <p>
+ * Operation history is therefore served from the live segments only: once compacted, histories, snapshots and the full
+ * statements printed from them start at the oldest live operation of the account, while its balance, and the opening
+ * balance of period statements, still account for the archived ones.
+ */
+public class JournalOperationDao implements OperationDao, Closeable {
+
+    private final JournalOptions options;
+    private final ConcurrentMap<UUID, AccountIndex> accounts = new ConcurrentHashMap<>();
+    private final BalanceIndex balances = new BalanceIndex();
+    private final ByteBuffer writeBuffer = JournalRecord.allocate();
+    private final ByteBuffer checkBuffer = JournalRecord.allocate();
+    private final Object snapshotLock = new Object();
+    private final ScheduledExecutorService scheduler;
+
+    private volatile SegmentTable segments = new SegmentTable(0, new JournalSegment[0]);
+    private volatile SnapshotMetrics lastSnapshot;
+    private long nextRecord;
+    private long snapshotRecord;
+    private long archivableRecord;
+    private long unsyncedRecords;
+    private boolean closed;
+
+    private JournalOperationDao(JournalOptions options) {
+        this.options = options;
+        boolean scheduled = !options.syncInterval().isZero() || !options.snapshotInterval().isZero();
+        this.scheduler = !scheduled ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static JournalOperationDao open(JournalOptions options) throws IOException {
+        Files.createDirectories(options.directory());
+        JournalOperationDao dao = new JournalOperationDao(options);
+        dao.recover();
+        dao.schedule(options.syncInterval(), dao::sync);
+        dao.schedule(options.snapshotInterval(), dao::snapshotAndCompact);
+        return dao;
+    }
+
+    @Override
+    public synchronized Operation save(Operation operation) {
+        checkDates(List.of(operation));
+        write(operation, indexOf(operation.accountId()), false, true);
+        return operation;
+    }
+
+    @Override
+    public synchronized <E extends Exception> Operation append(UUID accountId, OperationFactory<E> factory) throws E {
+        AccountIndex index = indexOf(accountId);
+        Operation operation = factory.create(balanceOf(accountId));
+        checkDates(List.of(operation));
+        write(operation, index, false, true);
+        return operation;
+    }
+
+    @Override
+    public synchronized List<Operation> saveAll(List<Operation> operations) {
+        checkDates(operations);
+        for (Operation operation : operations) {
+            write(operation, indexOf(operation.accountId()), false, false);
+        }
+        commit();
+        return operations;
+    }
+
+    @Override
+    public synchronized List<Operation> appendAll(UUID accountId, LongFunction<List<Operation>> factory) {
+        AccountIndex index = indexOf(accountId);
+        List<Operation> operations = factory.apply(balanceOf(accountId));
+        checkDates(operations);
+        for (Operation operation : operations) {
+            write(operation, index, false, false);
+        }
+        commit();
+        return operations;
+    }
+
+    /**
+     * The journal lock already serializes every write, so no per-account lock is taken. The debit is flagged as continued
+     * by the credit, and both records are placed in existing segments before either is written.
+     */
+    @Override
+    public synchronized <E extends Exception> Transfer appendTransfer(UUID debitedAccountId, UUID creditedAccountId, TransferFactory<E> factory) throws E {
+        if(debitedAccountId.equals(creditedAccountId)) throw new IllegalArgumentException("Cannot transfer within account " + debitedAccountId);
+        AccountIndex debited = indexOf(debitedAccountId);
+        AccountIndex credited = indexOf(creditedAccountId);
+        Transfer transfer = factory.create(balanceOf(debitedAccountId), balanceOf(creditedAccountId));
+        checkDates(List.of(transfer.debit(), transfer.credit()));
+        segmentFor(nextRecord + 1);
+        write(transfer.debit(), debited, true, false);
+        write(transfer.credit(), credited, false, true);
+        return transfer;
+    }
+
+    @Override
+    public BigDecimal getAccountBalanceById(UUID accountId) {
+        long balance = balances.get(accountId, Long.MIN_VALUE);
+        return balance == Long.MIN_VALUE ? BigDecimal.ZERO : MinorUnits.toBigDecimal(balance);
+    }
+
+    /**
+     * Returns the operations of the account still held in the live segments of the journal.
+     * As in every read, the size of the index is read before the segments, which then hold every record it covers.
+     */
+    @Override
+    public List<Operation> getAllAccountOperationsById(UUID accountId) {
+        AccountIndex index = accounts.get(accountId);
+        if(index == null) return List.of();
+
+        int size = index.size();
+        SegmentTable table = segments;
+        ByteBuffer record = JournalRecord.allocate();
+        List<Operation> operations = new ArrayList<>(size);
+        for (long recordNumber : index.records(size)) {
+            if(recordNumber < table.firstRecord()) continue;
+            table.segment(recordNumber, options.segmentRecords()).read(slotOf(recordNumber), record);
+            operations.add(JournalRecord.decode(record));
+        }
+        return operations;
+    }
+
+    @Override
+    public Set<UUID> getAccountIds() {
+        return Collections.unmodifiableSet(accounts.keySet());
+    }
+
+    @Override
+    public Stream<Operation> streamAccountOperationsById(UUID accountId) {
+        AccountIndex index = accounts.get(accountId);
+        if(index == null) return Stream.empty();
+
+        int size = index.size();
+        SegmentTable table = segments;
+        ByteBuffer record = JournalRecord.allocate();
+        return index.descendingRecords(size)
+                .takeWhile(recordNumber -> recordNumber >= table.firstRecord())
+                .mapToObj(recordNumber -> {
+                    table.segment(recordNumber, options.segmentRecords()).read(slotOf(recordNumber), record);
+                    return JournalRecord.decode(record);
+                });
+    }
+
+    /**
+     * Lock-free: the snapshot covers the records indexed when it is taken, and its balance is the one of the most recent.
+     * When the account has no live record, the balance comes from the balance index, retried if a write got in meanwhile.
+     */
+    @Override
+    public AccountSnapshot snapshotAccount(UUID accountId) {
+        AccountIndex index = accounts.get(accountId);
+        if(index == null) return AccountSnapshot.empty(accountId);
+
+        while (true) {
+            int size = index.size();
+            SegmentTable table = segments;
+            long balance;
+            if(size > 0 && index.record(size - 1) >= table.firstRecord()) {
+                balance = JournalRecord.balance(read(index.record(size - 1), table, JournalRecord.allocate()));
+            } else {
+                balance = balanceOf(accountId);
+                if(index.size() != size) continue;
+            }
+            return new AccountSnapshot(accountId, size, MinorUnits.toBigDecimal(balance), () -> {
+                ByteBuffer record = JournalRecord.allocate();
+                return index.descendingRecords(size)
+                        .takeWhile(recordNumber -> recordNumber >= table.firstRecord())
+                        .mapToObj(recordNumber -> JournalRecord.decode(read(recordNumber, table, record)));
+            });
+        }
+    }
+
+    /**
+     * Counts archived operations too, like the version of {@link #snapshotAccount(UUID)}.
+     */
+    @Override
+    public long getAccountVersion(UUID accountId) {
+        AccountIndex index = accounts.get(accountId);
+        return index == null ? 0 : index.size();
+    }
+
+    /**
+     * Binary searches the account's record numbers, which are in date order, reading one record per probe.
+     * Archived operations are not returned, as with {@link #getAllAccountOperationsById(UUID)}.
+     */
+    @Override
+    public OperationPage getOperations(UUID accountId, LocalDateTime from, LocalDateTime to, int limit, OperationCursor cursor) {
+        if(limit <= 0) throw new IllegalArgumentException("limit must be positive: " + limit);
+        if(to.isBefore(from)) throw new IllegalArgumentException("Range ends before it starts: " + from + " - " + to);
+        AccountIndex index = accounts.get(accountId);
+        if(index == null) return new OperationPage(List.of(), null);
+
+        int size = index.size();
+        SegmentTable table = segments;
+        ByteBuffer record = JournalRecord.allocate();
+        int live = index.positionOf(table.firstRecord(), size);
+        int low = lowerBound(index, live, size, from, table, record);
+        int high = lowerBound(index, low, size, to, table, record);
+        if(cursor != null) high = Math.max(low, Math.min(high, cursor.position()));
+        int start = Math.max(low, high - limit);
+
+        List<Operation> operations = new ArrayList<>(high - start);
+        for (int position = high - 1; position >= start; position--) {
+            operations.add(JournalRecord.decode(read(index.record(position), table, record)));
+        }
+        return new OperationPage(Collections.unmodifiableList(operations), start > low ? new OperationCursor(start) : null);
+    }
+
+    /**
+     * Read from the last operation before {@code date}. When the operations before {@code date} are archived,
+     * returns the balance before the oldest live operation, consistently with the history still served.
+     */
+    @Override
+    public BigDecimal getBalanceBefore(UUID accountId, LocalDateTime date) {
+        AccountIndex index = accounts.get(accountId);
+        if(index == null) return BigDecimal.ZERO;
+
+        int size = index.size();
+        long balance = balanceOf(accountId);
+        SegmentTable table = segments;
+        ByteBuffer record = JournalRecord.allocate();
+        int live = index.positionOf(table.firstRecord(), size);
+        int position = lowerBound(index, live, size, date, table, record);
+        if(position > live) {
+            balance = JournalRecord.balance(read(index.record(position - 1), table, record));
+        } else if(position == 0) {
+            balance = 0;
+        } else if(position < size) {
+            balance = JournalRecord.balanceBefore(read(index.record(position), table, record));
+        }
+        return MinorUnits.toBigDecimal(balance);
+    }
+
+    public void sync() {
+        JournalSegment current;
+        synchronized (this) {
+            if(closed || segments.isEmpty()) return;
+            current = segments.last();
+            unsyncedRecords = 0;
+        }
+        current.force();
+    }
+
+    /**
+     * Writes a checkpoint of every account balance at the current end of the journal.
+     * Writers are only held while balances are copied, not while the file is written.
+     */
+    public SnapshotMetrics snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long start = System.nanoTime();
+            JournalSnapshot snapshot;
+            synchronized (this) {
+                if(closed) throw new IllegalStateException("Journal is closed");
+                if(!segments.isEmpty()) segments.last().force();
+                List<JournalSnapshot.Entry> entries = new ArrayList<>(accounts.size());
+                accounts.forEach((accountId, index) -> entries.add(new JournalSnapshot.Entry(accountId, balanceOf(accountId), index.lastRecord())));
+                snapshot = new JournalSnapshot(nextRecord, entries);
+            }
+
+            long size = snapshot.write(options.directory());
+            JournalSnapshot.deleteOlderThan(options.directory(), snapshot.nextRecord());
+            long oldestNextRecord = JournalSnapshot.oldestNextRecord(options.directory());
+            synchronized (this) {
+                snapshotRecord = Math.max(snapshotRecord, snapshot.nextRecord());
+                archivableRecord = Math.max(archivableRecord, Math.min(snapshotRecord, oldestNextRecord));
+            }
+            lastSnapshot = new SnapshotMetrics(
+                    snapshot.nextRecord(), snapshot.entries().size(), size, Duration.ofNanos(System.nanoTime() - start), 0
+            );
+            return lastSnapshot;
+        }
+    }
+
+    /**
+     * Moves to the archive directory every segment entirely covered by the snapshots kept, so that the journal can still be
+     * recovered from the previous snapshot if the latest one turns out unreadable. The segment currently written is never archived.
+     *
+     * @return the number of archived segments
+     */
+    public int compact() throws IOException {
+        synchronized (snapshotLock) {
+            List<JournalSegment> archived = new ArrayList<>();
+            synchronized (this) {
+                SegmentTable table = segments;
+                JournalSegment[] files = table.files();
+                int keepFrom = 0;
+                while (keepFrom < files.length - 1
+                        && files[keepFrom].firstRecord() + files[keepFrom].capacity() <= archivableRecord) {
+                    archived.add(files[keepFrom++]);
+                }
+                if(archived.isEmpty()) return 0;
+                segments = new SegmentTable(files[keepFrom].firstRecord(), Arrays.copyOfRange(files, keepFrom, files.length));
+            }
+
+            Files.createDirectories(options.archiveDirectory());
+            for (JournalSegment segment : archived) {
+                segment.close();
+                Files.move(segment.path(), options.archiveDirectory().resolve(segment.path().getFileName()), StandardCopyOption.ATOMIC_MOVE);
+            }
+            SnapshotMetrics metrics = lastSnapshot;
+            if(metrics != null) lastSnapshot = metrics.withArchivedSegments(metrics.archivedSegments() + archived.size());
+            return archived.size();
+        }
+    }
+
+    public Optional<SnapshotMetrics> lastSnapshot() {
+        return Optional.ofNullable(lastSnapshot);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(scheduler != null) scheduler.shutdownNow();
+        synchronized (snapshotLock) {
+            synchronized (this) {
+                if(closed) return;
+                closed = true;
+                for (JournalSegment segment : segments.files()) {
+                    segment.close();
+                }
+            }
+        }
+    }
+
+    private void snapshotAndCompact() {
+        try {
+            snapshot();
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (IllegalStateException e) {
+            if(!closed) throw e;
+        }
+    }
+
+    private void schedule(Duration interval, Runnable task) {
+        if(interval.isZero()) return;
+        long period = interval.toNanos();
+        scheduler.scheduleWithFixedDelay(task, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    private void write(Operation operation, AccountIndex index, boolean continued, boolean commit) {
+        if(closed) throw new IllegalStateException("Journal is closed");
+        long recordNumber = nextRecord;
+        JournalSegment segment = segmentFor(recordNumber);
+        JournalRecord.encode(writeBuffer, recordNumber + 1, operation, continued ? JournalRecord.CONTINUED : 0);
+        segment.write(slotOf(recordNumber), writeBuffer);
+        nextRecord = recordNumber + 1;
+        index.add(recordNumber);
+        balances.put(operation.accountId(), JournalRecord.balance(writeBuffer));
+        unsyncedRecords++;
+        if(commit) commit();
+    }
+
+    /**
+     * Rejects the write if one of its operations is dated before the last one of its account, live or earlier in the write,
+     * so that the records of every account stay in the date order {@link #lowerBound} relies on.
+     */
+    private void checkDates(List<Operation> operations) {
+        Map<UUID, LocalDateTime> lastDates = operations.size() > 1 ? new HashMap<>() : null;
+        for (Operation operation : operations) {
+            LocalDateTime lastDate = lastDates != null ? lastDates.get(operation.accountId()) : null;
+            if(lastDate == null) lastDate = lastLiveDate(operation.accountId());
+            if(lastDate != null && operation.date().isBefore(lastDate)) {
+                throw new IllegalArgumentException("Operation of account " + operation.accountId() + " dated " + operation.date()
+                        + " before its last operation, dated " + lastDate);
+            }
+            if(lastDates != null) lastDates.put(operation.accountId(), operation.date());
+        }
+    }
+
+    private LocalDateTime lastLiveDate(UUID accountId) {
+        AccountIndex index = accounts.get(accountId);
+        if(index == null) return null;
+        int size = index.size();
+        SegmentTable table = segments;
+        if(size == 0 || index.record(size - 1) < table.firstRecord()) return null;
+        return JournalRecord.date(read(index.record(size - 1), table, checkBuffer));
+    }
+
+    private void commit() {
+        if(options.syncEvery() > 0 && unsyncedRecords >= options.syncEvery()) {
+            segments.last().force();
+            unsyncedRecords = 0;
+        }
+    }
+
+    private int lowerBound(AccountIndex index, int low, int high, LocalDateTime date, SegmentTable table, ByteBuffer record) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if(JournalRecord.isBefore(read(index.record(middle), table, record), date)) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private ByteBuffer read(long recordNumber, SegmentTable table, ByteBuffer record) {
+        table.segment(recordNumber, options.segmentRecords()).read(slotOf(recordNumber), record);
+        return record;
+    }
+
+    private AccountIndex indexOf(UUID accountId) {
+        AccountIndex index = accounts.get(accountId);
+        return index != null ? index : accounts.computeIfAbsent(accountId, id -> new AccountIndex());
+    }
+
+    private long balanceOf(UUID accountId) {
+        return balances.get(accountId, 0);
+    }
+
+    private int slotOf(long recordNumber) {
+        return (int) (recordNumber % options.segmentRecords());
+    }
+
+    private JournalSegment segmentFor(long recordNumber) {
+        SegmentTable table = segments;
+        if(!table.isEmpty() && recordNumber < table.last().firstRecord() + options.segmentRecords()) {
+            return table.segment(recordNumber, options.segmentRecords());
+        }
+
+        try {
+            if(!table.isEmpty()) table.last().force();
+            long firstRecord = recordNumber - slotOf(recordNumber);
+            JournalSegment segment = JournalSegment.open(segmentPath(firstRecord), firstRecord, options.segmentRecords());
+            segments = table.isEmpty() ? new SegmentTable(firstRecord, new JournalSegment[]{segment}) : table.with(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long firstRecord) {
+        return options.directory().resolve(JournalSegment.fileName(firstRecord));
+    }
+
+    private synchronized void recover() throws IOException {
+        Optional<JournalSnapshot> snapshot = JournalSnapshot.readLatest(options.directory());
+        snapshot.ifPresent(loaded -> {
+            for (JournalSnapshot.Entry entry : loaded.entries()) {
+                indexOf(entry.accountId()).restore(entry.lastRecord());
+                balances.put(entry.accountId(), entry.balance());
+            }
+            snapshotRecord = loaded.nextRecord();
+        });
+        archivableRecord = Math.min(snapshotRecord, JournalSnapshot.oldestNextRecord(options.directory()));
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(options.directory())) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(JournalSegment.SUFFIX)).sorted().toList();
+        }
+        if(files.isEmpty()) {
+            if(snapshotRecord > 0) throw new IllegalStateException("Missing journal segments after snapshot " + snapshotRecord);
+            return;
+        }
+
+        long firstLiveRecord = firstRecordOf(files.get(0));
+        if(firstLiveRecord > snapshotRecord) {
+            throw new IllegalStateException("Missing journal segments before record " + firstLiveRecord);
+        }
+
+        ByteBuffer record = JournalRecord.allocate();
+        List<JournalSegment> recovered = new ArrayList<>();
+        List<RecoveredRecord> group = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            long firstRecord = firstLiveRecord + (long) i * options.segmentRecords();
+            if(!files.get(i).equals(segmentPath(firstRecord))) {
+                throw new IllegalStateException("Unexpected journal segment " + files.get(i));
+            }
+            JournalSegment segment = JournalSegment.open(files.get(i), firstRecord, options.segmentRecords());
+            recovered.add(segment);
+
+            int slot = 0;
+            while (slot < segment.capacity()) {
+                segment.read(slot, record);
+                if(!JournalRecord.isValid(record, firstRecord + slot + 1)) break;
+                group.add(new RecoveredRecord(firstRecord + slot, JournalRecord.accountId(record), JournalRecord.balance(record)));
+                if(!JournalRecord.isContinued(record)) {
+                    group.forEach(this::index);
+                    group.clear();
+                }
+                slot++;
+            }
+            nextRecord = firstRecord + slot;
+
+            if(slot < segment.capacity()) {
+                if(i != files.size() - 1) {
+                    throw new IllegalStateException("Corrupted journal segment " + files.get(i) + " at record " + slot);
+                }
+                segment.truncate(slot);
+            }
+        }
+        if(!group.isEmpty()) dropUnfinishedGroup(recovered, group.get(0).recordNumber());
+        if(nextRecord < snapshotRecord) {
+            throw new IllegalStateException("Journal ends at record " + nextRecord + " before snapshot " + snapshotRecord);
+        }
+        segments = new SegmentTable(firstLiveRecord, recovered.toArray(new JournalSegment[0]));
+    }
+
+    private void index(RecoveredRecord record) {
+        indexOf(record.accountId()).add(record.recordNumber());
+        balances.put(record.accountId(), record.balance());
+    }
+
+    /**
+     * Cuts the journal back to the first record of a group whose last record is missing.
+     * The group may start at the very end of the previous segment, in which case the last one is left empty and deleted.
+     */
+    private void dropUnfinishedGroup(List<JournalSegment> recovered, long firstRecord) throws IOException {
+        JournalSegment last = recovered.get(recovered.size() - 1);
+        while (last.firstRecord() > firstRecord) {
+            recovered.remove(recovered.size() - 1);
+            last.close();
+            Files.delete(last.path());
+            last = recovered.get(recovered.size() - 1);
+        }
+        last.truncate(slotOf(firstRecord));
+        nextRecord = firstRecord;
+    }
+
+    private static long firstRecordOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - JournalSegment.SUFFIX.length()));
+    }
+
+    private record RecoveredRecord(long recordNumber, UUID accountId, long balance) { }
+
+    private record SegmentTable(long firstRecord, JournalSegment[] files) {
+
+        boolean isEmpty() {
+            return files.length == 0;
+        }
+
+        JournalSegment last() {
+            return files[files.length - 1];
+        }
+
+        JournalSegment segment(long recordNumber, int segmentRecords) {
+            return files[(int) ((recordNumber - firstRecord) / segmentRecords)];
+        }
+
+        SegmentTable with(JournalSegment segment) {
+            JournalSegment[] grown = Arrays.copyOf(files, files.length + 1);
+            grown[files.length] = segment;
+            return new SegmentTable(firstRecord, grown);
+        }
+    }
+}
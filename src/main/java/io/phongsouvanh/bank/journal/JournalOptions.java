@@ -0,0 +1,49 @@
+package io.phongsouvanh.bank.journal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * @param directory        where journal segments and snapshots are stored, archived segments going to its {@code archive} child
+ * @param segmentRecords   number of records per segment file
+ * @param syncEvery        fsync after this many appended records, {@code 0} to rely on {@code syncInterval} and close only
+ * @param syncInterval     period of the background fsync, {@link Duration#ZERO} to disable it
+ * @param snapshotInterval period of the background snapshot and compaction, {@link Duration#ZERO} to disable it
+ */
+public record JournalOptions(Path directory, int segmentRecords, int syncEvery, Duration syncInterval, Duration snapshotInterval) {
+
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+
+    public JournalOptions {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(syncInterval);
+        Objects.requireNonNull(snapshotInterval);
+        if(segmentRecords <= 0 || segmentRecords > Integer.MAX_VALUE / JournalRecord.SIZE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentRecords);
+        }
+        if(syncEvery < 0) throw new IllegalArgumentException("Invalid sync batch: " + syncEvery);
+        if(syncInterval.isNegative()) throw new IllegalArgumentException("Invalid sync interval: " + syncInterval);
+        if(snapshotInterval.isNegative()) throw new IllegalArgumentException("Invalid snapshot interval: " + snapshotInterval);
+    }
+
+    public static JournalOptions of(Path directory) {
+        return new JournalOptions(directory, DEFAULT_SEGMENT_RECORDS, 1, Duration.ZERO, Duration.ZERO);
+    }
+
+    public JournalOptions withSegmentRecords(int segmentRecords) {
+        return new JournalOptions(directory, segmentRecords, syncEvery, syncInterval, snapshotInterval);
+    }
+
+    public JournalOptions withGroupCommit(int syncEvery, Duration syncInterval) {
+        return new JournalOptions(directory, segmentRecords, syncEvery, syncInterval, snapshotInterval);
+    }
+
+    public JournalOptions withSnapshotInterval(Duration snapshotInterval) {
+        return new JournalOptions(directory, segmentRecords, syncEvery, syncInterval, snapshotInterval);
+    }
+
+    Path archiveDirectory() {
+        return directory.resolve("archive");
+    }
+}
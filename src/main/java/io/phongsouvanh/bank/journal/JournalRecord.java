@@ -0,0 +1,131 @@
+package io.phongsouvanh.bank.journal;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.exceptions.NegativeAmountException;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-size binary layout of an {@link Operation} in the journal.
+ * <pre>
+ *  0 sequence   8 account msb  16 account lsb  24 amount  32 balance
+ * 40 epoch second  48 nano  52 type  53 flags  60 crc32c of bytes [0, 60)
+ * </pre>
+ * Amounts and balances are stored in minor units and dates as UTC epoch seconds.
+ * A record flagged {@link #CONTINUED} is only valid together with the next one, as the legs of a transfer are.
+ */
+final class JournalRecord {
+
+    static final int SIZE = 64;
+
+    private static final int SEQUENCE = 0;
+    private static final int ACCOUNT_MSB = 8;
+    private static final int ACCOUNT_LSB = 16;
+    private static final int AMOUNT = 24;
+    private static final int BALANCE = 32;
+    private static final int EPOCH_SECOND = 40;
+    private static final int NANO = 48;
+    private static final int TYPE = 52;
+    private static final int FLAGS = 53;
+    private static final int CHECKSUM = SIZE - Integer.BYTES;
+
+    static final byte CONTINUED = 1;
+
+    private static final OperationType[] TYPES = OperationType.values();
+
+    private JournalRecord() {
+    }
+
+    static ByteBuffer allocate() {
+        return ByteBuffer.allocate(SIZE);
+    }
+
+    static void encode(ByteBuffer record, long sequence, Operation operation) {
+        encode(record, sequence, operation, (byte) 0);
+    }
+
+    static void encode(ByteBuffer record, long sequence, Operation operation, byte flags) {
+        LocalDateTime date = operation.date();
+        record.putLong(SEQUENCE, sequence)
+                .putLong(ACCOUNT_MSB, operation.accountId().getMostSignificantBits())
+                .putLong(ACCOUNT_LSB, operation.accountId().getLeastSignificantBits())
+                .putLong(AMOUNT, operation.amount().getMinorUnits())
+                .putLong(BALANCE, MinorUnits.of(operation.balance()))
+                .putLong(EPOCH_SECOND, date.toEpochSecond(ZoneOffset.UTC))
+                .putInt(NANO, date.getNano())
+                .put(TYPE, (byte) operation.type().ordinal())
+                .put(FLAGS, flags)
+                .putShort(FLAGS + 1, (short) 0)
+                .putInt(FLAGS + 3, 0)
+                .putInt(CHECKSUM, checksum(record));
+    }
+
+    static boolean isValid(ByteBuffer record, long expectedSequence) {
+        return record.getLong(SEQUENCE) == expectedSequence
+                && record.getInt(CHECKSUM) == checksum(record)
+                && record.get(TYPE) >= 0 && record.get(TYPE) < TYPES.length;
+    }
+
+    static Operation decode(ByteBuffer record) {
+        try {
+            return new Operation(
+                    accountId(record),
+                    TYPES[record.get(TYPE)],
+                    Amount.ofMinorUnits(record.getLong(AMOUNT)),
+                    date(record),
+                    MinorUnits.toBigDecimal(balance(record))
+            );
+        } catch (NegativeAmountException e) {
+            throw new IllegalStateException("Corrupted journal record " + record.getLong(SEQUENCE), e);
+        }
+    }
+
+    static long sequence(ByteBuffer record) {
+        return record.getLong(SEQUENCE);
+    }
+
+    static UUID accountId(ByteBuffer record) {
+        return new UUID(record.getLong(ACCOUNT_MSB), record.getLong(ACCOUNT_LSB));
+    }
+
+    static boolean isContinued(ByteBuffer record) {
+        return (record.get(FLAGS) & CONTINUED) != 0;
+    }
+
+    static long balance(ByteBuffer record) {
+        return record.getLong(BALANCE);
+    }
+
+    /**
+     * Balance of the account right before this operation, derived from the record alone.
+     */
+    static long balanceBefore(ByteBuffer record) {
+        long amount = record.getLong(AMOUNT);
+        return TYPES[record.get(TYPE)].isDebit()
+                ? MinorUnits.add(balance(record), amount)
+                : MinorUnits.subtract(balance(record), amount);
+    }
+
+    static LocalDateTime date(ByteBuffer record) {
+        return LocalDateTime.ofEpochSecond(record.getLong(EPOCH_SECOND), record.getInt(NANO), ZoneOffset.UTC);
+    }
+
+    static boolean isBefore(ByteBuffer record, LocalDateTime date) {
+        long epochSecond = record.getLong(EPOCH_SECOND);
+        long dateEpochSecond = date.toEpochSecond(ZoneOffset.UTC);
+        return epochSecond < dateEpochSecond || epochSecond == dateEpochSecond && record.getInt(NANO) < date.getNano();
+    }
+
+    private static int checksum(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), record.arrayOffset(), CHECKSUM);
+        return (int) crc.getValue();
+    }
+}
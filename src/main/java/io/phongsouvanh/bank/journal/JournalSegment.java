@@ -0,0 +1,84 @@
+package io.phongsouvanh.bank.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One journal file holding {@code capacity} fixed-size records, memory-mapped in full.
+ * Record {@code slot} of the segment lives at byte {@code slot * JournalRecord.SIZE}.
+ */
+final class JournalSegment implements Closeable {
+
+    static final String SUFFIX = ".journal";
+
+    private final Path path;
+    private final long firstRecord;
+    private final int capacity;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    private JournalSegment(Path path, long firstRecord, int capacity, FileChannel channel) throws IOException {
+        this.path = path;
+        this.firstRecord = firstRecord;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = map();
+    }
+
+    static JournalSegment open(Path path, long firstRecord, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new JournalSegment(path, firstRecord, capacity, channel);
+    }
+
+    static String fileName(long firstRecord) {
+        return String.format("%020d%s", firstRecord, SUFFIX);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long firstRecord() {
+        return firstRecord;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void write(int slot, ByteBuffer record) {
+        buffer.put(slot * JournalRecord.SIZE, record, 0, JournalRecord.SIZE);
+    }
+
+    void read(int slot, ByteBuffer record) {
+        buffer.get(slot * JournalRecord.SIZE, record.array(), record.arrayOffset(), JournalRecord.SIZE);
+    }
+
+    /**
+     * Cuts the file right after {@code slots} records, dropping a torn or stale tail,
+     * then maps it again so the freed slots read back as zeros.
+     */
+    void truncate(int slots) throws IOException {
+        channel.truncate((long) slots * JournalRecord.SIZE);
+        buffer = map();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private MappedByteBuffer map() throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * JournalRecord.SIZE);
+    }
+}
@@ -0,0 +1,139 @@
+package io.phongsouvanh.bank.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact checkpoint of every account balance and last record number at a given journal position.
+ * <pre>
+ * header:  magic int, version int, next record long, account count int
+ * entry:   account msb long, account lsb long, balance long, last record long
+ * trailer: crc32c int of everything before it
+ * </pre>
+ */
+record JournalSnapshot(long nextRecord, List<Entry> entries) {
+
+    record Entry(UUID accountId, long balance, long lastRecord) {
+    }
+
+    private static final int MAGIC = 0x534e4150;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int ENTRY_SIZE = 4 * Long.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String SUFFIX = ".snapshot";
+
+    static String fileName(long nextRecord) {
+        return String.format("%020d%s", nextRecord, SUFFIX);
+    }
+
+    long write(Path directory) throws IOException {
+        Path target = directory.resolve(fileName(nextRecord));
+        Path temporary = directory.resolve(fileName(nextRecord) + ".tmp");
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(nextRecord).putInt(entries.size());
+            for (Entry entry : entries) {
+                if(buffer.remaining() < ENTRY_SIZE) flush(channel, buffer, crc);
+                buffer.putLong(entry.accountId().getMostSignificantBits())
+                        .putLong(entry.accountId().getLeastSignificantBits())
+                        .putLong(entry.balance())
+                        .putLong(entry.lastRecord());
+            }
+            flush(channel, buffer, crc);
+            buffer.putInt((int) crc.getValue()).flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return Files.size(target);
+    }
+
+    /**
+     * Loads the most recent readable snapshot of the directory, skipping incomplete or corrupted ones.
+     */
+    static Optional<JournalSnapshot> readLatest(Path directory) throws IOException {
+        List<Path> snapshots;
+        try (Stream<Path> listing = Files.list(directory)) {
+            snapshots = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((left, right) -> right.compareTo(left))
+                    .toList();
+        }
+        for (Path snapshot : snapshots) {
+            Optional<JournalSnapshot> loaded = read(snapshot);
+            if(loaded.isPresent()) return loaded;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes every snapshot older than the given one, keeping it and its immediate predecessor as a fallback.
+     */
+    static void deleteOlderThan(Path directory, long nextRecord) throws IOException {
+        List<Path> older;
+        try (Stream<Path> listing = Files.list(directory)) {
+            older = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .filter(path -> path.getFileName().toString().compareTo(fileName(nextRecord)) < 0)
+                    .sorted((left, right) -> right.compareTo(left))
+                    .toList();
+        }
+        for (Path snapshot : older.subList(Math.min(1, older.size()), older.size())) {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Next record of the oldest snapshot in the directory, readable or not, or {@code Long.MAX_VALUE} if there is none.
+     * Recovering from any snapshot kept needs the segments from there on.
+     */
+    static long oldestNextRecord(Path directory) throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .mapToLong(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                    .min()
+                    .orElse(Long.MAX_VALUE);
+        }
+    }
+
+    private static Optional<JournalSnapshot> read(Path path) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(path));
+        if(content.remaining() < HEADER_SIZE + Integer.BYTES) return Optional.empty();
+
+        int checksumPosition = content.limit() - Integer.BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(content.array(), 0, checksumPosition);
+        if((int) crc.getValue() != content.getInt(checksumPosition)) return Optional.empty();
+        if(content.getInt() != MAGIC || content.getInt() != VERSION) return Optional.empty();
+
+        long nextRecord = content.getLong();
+        int count = content.getInt();
+        if((long) count * ENTRY_SIZE != checksumPosition - HEADER_SIZE) return Optional.empty();
+
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new Entry(new UUID(content.getLong(), content.getLong()), content.getLong(), content.getLong()));
+        }
+        return Optional.of(new JournalSnapshot(nextRecord, entries));
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,17 @@
+package io.phongsouvanh.bank.journal;
+
+import java.time.Duration;
+
+/**
+ * @param nextRecord        number of journal records covered by the snapshot
+ * @param accounts          number of accounts written
+ * @param sizeBytes         size of the snapshot file
+ * @param duration          time spent capturing and writing the snapshot
+ * @param archivedSegments  segments moved to the archive by the compaction that followed, if any
+ */
+public record SnapshotMetrics(long nextRecord, int accounts, long sizeBytes, Duration duration, int archivedSegments) {
+
+    SnapshotMetrics withArchivedSegments(int archived) {
+        return new SnapshotMetrics(nextRecord, accounts, sizeBytes, duration, archived);
+    }
+}
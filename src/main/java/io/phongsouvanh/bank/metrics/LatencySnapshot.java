@@ -0,0 +1,7 @@
+package io.phongsouvanh.bank.metrics;
+
+/**
+ * Call count and latency percentiles of one timed method, in nanoseconds.
+ */
+public record LatencySnapshot(long count, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+}
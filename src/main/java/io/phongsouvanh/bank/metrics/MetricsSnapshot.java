@@ -0,0 +1,11 @@
+package io.phongsouvanh.bank.metrics;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record MetricsSnapshot(Instant takenAt, Map<OperationMetrics.Timer, LatencySnapshot> latencies, long outOfBalanceRejections) {
+
+    public LatencySnapshot latency(OperationMetrics.Timer timer) {
+        return latencies.get(timer);
+    }
+}
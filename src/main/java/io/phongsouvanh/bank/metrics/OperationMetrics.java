@@ -0,0 +1,59 @@
+package io.phongsouvanh.bank.metrics;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Call counts and latencies of the service and DAO methods, shared by the instrumented decorators.
+ * Recording is a couple of atomic increments; only {@link #snapshot()} allocates.
+ */
+public class OperationMetrics {
+
+    public enum Timer {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+        BATCH,
+        STATEMENT,
+        SAVE,
+        APPEND,
+        BALANCE,
+        HISTORY
+    }
+
+    private static final Timer[] TIMERS = Timer.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[TIMERS.length];
+    private final AtomicLong outOfBalanceRejections = new AtomicLong();
+    private final Clock clock;
+
+    public OperationMetrics() {
+        this(Clock.systemUTC());
+    }
+
+    public OperationMetrics(Clock clock) {
+        this.clock = clock;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void recordSince(Timer timer, long startNanos) {
+        histograms[timer.ordinal()].recordSince(startNanos);
+    }
+
+    public void countOutOfBalanceRejection() {
+        outOfBalanceRejections.incrementAndGet();
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<Timer, LatencySnapshot> latencies = new EnumMap<>(Timer.class);
+        for (Timer timer : TIMERS) {
+            latencies.put(timer, histograms[timer.ordinal()].snapshot());
+        }
+        return new MetricsSnapshot(clock.instant(), Collections.unmodifiableMap(latencies), outOfBalanceRejections.get());
+    }
+}
@@ -0,0 +1,162 @@
+package io.phongsouvanh.bank.operations;
+
+import io.phongsouvanh.bank.account.MinorUnits;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Append-only history of a single account.
+ * Writers are serialized on the ledger monitor, readers never lock: the volatile
+ * {@code size} is written last, so any reader that sees it also sees every operation
+ * stored below it. The array is volatile too, as a reader may see one grown after
+ * the size it read, which must then come with the operations copied into it.
+ * Operations are dated when appended, so the array is also the account's time index; one dated before the last
+ * operation, or whose balance has no exact minor units, is rejected before anything of its write is stored.
+ */
+class AccountLedger {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile Operation[] operations = new Operation[INITIAL_CAPACITY];
+    private volatile int size;
+    private volatile BigDecimal balance = BigDecimal.ZERO;
+    private long balanceMinorUnits;
+
+    synchronized void append(Operation operation) {
+        checkDate(lastDate(), operation);
+        store(operation, MinorUnits.of(operation.balance()));
+    }
+
+    synchronized <E extends Exception> Operation append(OperationFactory<E> factory) throws E {
+        Operation operation = factory.create(balanceMinorUnits);
+        checkDate(lastDate(), operation);
+        store(operation, MinorUnits.of(operation.balance()));
+        return operation;
+    }
+
+    synchronized List<Operation> appendAll(LongFunction<List<Operation>> factory) {
+        List<Operation> created = factory.apply(balanceMinorUnits);
+        storeAll(created, 0, created.size());
+        return created;
+    }
+
+    /**
+     * Holds both ledger monitors, the one of the lowest account id first, while the transfer is built and stored.
+     * Readers may see the debit a moment before the credit.
+     */
+    static <E extends Exception> Transfer transfer(AccountLedger debited, AccountLedger credited, boolean debitedFirst,
+                                                   TransferFactory<E> factory) throws E {
+        AccountLedger first = debitedFirst ? debited : credited;
+        AccountLedger second = debitedFirst ? credited : debited;
+        synchronized (first) {
+            synchronized (second) {
+                Transfer transfer = factory.create(debited.balanceMinorUnits, credited.balanceMinorUnits);
+                checkDate(debited.lastDate(), transfer.debit());
+                checkDate(credited.lastDate(), transfer.credit());
+                long debitedBalance = MinorUnits.of(transfer.debit().balance());
+                long creditedBalance = MinorUnits.of(transfer.credit().balance());
+                debited.store(transfer.debit(), debitedBalance);
+                credited.store(transfer.credit(), creditedBalance);
+                return transfer;
+            }
+        }
+    }
+
+    synchronized void appendAll(List<Operation> batch, int from, int to) {
+        storeAll(batch, from, to);
+    }
+
+    private void storeAll(List<Operation> batch, int from, int to) {
+        checkDates(batch, from, to);
+        long[] balances = new long[to - from];
+        for (int i = from; i < to; i++) {
+            balances[i - from] = MinorUnits.of(batch.get(i).balance());
+        }
+        for (int i = from; i < to; i++) {
+            store(batch.get(i), balances[i - from]);
+        }
+    }
+
+    private void checkDates(List<Operation> batch, int from, int to) {
+        LocalDateTime last = lastDate();
+        for (int i = from; i < to; i++) {
+            checkDate(last, batch.get(i));
+            last = batch.get(i).date();
+        }
+    }
+
+    private LocalDateTime lastDate() {
+        int currentSize = size;
+        return currentSize == 0 ? null : operations[currentSize - 1].date();
+    }
+
+    static void checkDate(LocalDateTime lastDate, Operation operation) {
+        if(lastDate != null && operation.date().isBefore(lastDate)) {
+            throw new IllegalArgumentException("Operation of account " + operation.accountId() + " dated " + operation.date()
+                    + " before its last operation, dated " + lastDate);
+        }
+    }
+
+    /**
+     * Only called once the operation is validated, its balance converted beforehand, so that nothing can fail halfway.
+     */
+    private void store(Operation operation, long operationBalanceMinorUnits) {
+        int currentSize = size;
+        Operation[] current = operations;
+        if(currentSize == current.length) {
+            current = Arrays.copyOf(current, currentSize << 1);
+            operations = current;
+        }
+        current[currentSize] = operation;
+        balance = operation.balance();
+        balanceMinorUnits = operationBalanceMinorUnits;
+        size = currentSize + 1;
+    }
+
+    BigDecimal balance() {
+        return balance;
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<Operation> operations() {
+        int currentSize = size;
+        return List.of(Arrays.copyOf(operations, currentSize));
+    }
+
+    OperationPage page(LocalDateTime from, LocalDateTime to, int limit, OperationCursor cursor) {
+        int currentSize = size;
+        return TimeIndex.page(operations, currentSize, from, to, limit, cursor);
+    }
+
+    BigDecimal balanceBefore(LocalDateTime date) {
+        int currentSize = size;
+        return TimeIndex.balanceBefore(operations, currentSize, date);
+    }
+
+    /**
+     * The balance is read from the last operation below the size read, not from {@code balance}, which may already be newer.
+     */
+    AccountSnapshot snapshot(UUID accountId) {
+        int currentSize = size;
+        if(currentSize == 0) return AccountSnapshot.empty(accountId);
+        Operation[] current = operations;
+        return new AccountSnapshot(accountId, currentSize, current[currentSize - 1].balance(),
+                () -> IntStream.range(0, currentSize).mapToObj(i -> current[currentSize - 1 - i]));
+    }
+
+    Stream<Operation> descendingOperations() {
+        int currentSize = size;
+        Operation[] current = operations;
+        return IntStream.range(0, currentSize).mapToObj(i -> current[currentSize - 1 - i]);
+    }
+}
@@ -0,0 +1,27 @@
+package io.phongsouvanh.bank.operations;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The history of an account as of one point in time: whatever is saved afterwards, {@link #operations()} yields the same
+ * operations and {@code balance} is the one after the most recent of them.
+ *
+ * @param version number of operations saved on the account when the snapshot was taken, growing with every later one
+ * @param history yields the operations of the snapshot, most recent first, each time it is called
+ */
+public record AccountSnapshot(UUID accountId, long version, BigDecimal balance, Supplier<Stream<Operation>> history) {
+
+    public static AccountSnapshot empty(UUID accountId) {
+        return new AccountSnapshot(accountId, 0, BigDecimal.ZERO, Stream::empty);
+    }
+
+    /**
+     * Lazily yields the operations of the snapshot, most recent first. The returned stream should be closed once consumed.
+     */
+    public Stream<Operation> operations() {
+        return history.get();
+    }
+}
@@ -0,0 +1,222 @@
+package io.phongsouvanh.bank.operations;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Account balances in minor units, keyed by the two halves of the account id, in open-addressing tables held off-heap.
+ * A slot is 24 bytes, the id then the balance, against a hundred bytes or more per entry for a map of UUID keys and boxed values,
+ * and the garbage collector never has to trace it.
+ * <p>
+ * Accounts are spread over independently locked stripes, each a linear-probing table doubled when three quarters full.
+ * Readers do not lock: they probe under an optimistic stamp and only retry under the read lock if a writer got in meanwhile.
+ * The nil UUID, which marks empty slots, is kept apart.
+ */
+public final class BalanceIndex {
+
+    public static final int DEFAULT_STRIPES = 64;
+
+    static final int SLOT_BYTES = 24;
+
+    private static final int MIN_STRIPE_SLOTS = 16;
+    private static final int MAX_STRIPE_SLOTS = 1 << 26;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private volatile boolean hasNil;
+    private volatile long nilBalance;
+
+    public BalanceIndex() {
+        this(0, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param expectedAccounts number of accounts the index can take without growing
+     * @param stripes          number of write locks, a power of two
+     */
+    public BalanceIndex(int expectedAccounts, int stripes) {
+        if(stripes <= 0 || Integer.bitCount(stripes) != 1) throw new IllegalArgumentException("stripes must be a power of two: " + stripes);
+        long slotsPerStripe = Math.max(MIN_STRIPE_SLOTS, Long.highestOneBit(Math.max(1, (long) expectedAccounts * 4 / 3 / stripes) * 2 - 1));
+        if(slotsPerStripe > MAX_STRIPE_SLOTS) throw new IllegalArgumentException("Too many accounts for " + stripes + " stripes: " + expectedAccounts);
+        this.stripes = new Stripe[stripes];
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripes);
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe((int) slotsPerStripe);
+        }
+    }
+
+    /**
+     * @return the balance of the account, or {@code absent} if it has none
+     */
+    public long get(UUID accountId, long absent) {
+        long msb = accountId.getMostSignificantBits();
+        long lsb = accountId.getLeastSignificantBits();
+        if(msb == 0 && lsb == 0) return hasNil ? nilBalance : absent;
+        long hash = hash(msb, lsb);
+        return stripeOf(hash).get(msb, lsb, hash, absent);
+    }
+
+    public void put(UUID accountId, long balance) {
+        long msb = accountId.getMostSignificantBits();
+        long lsb = accountId.getLeastSignificantBits();
+        if(msb == 0 && lsb == 0) {
+            synchronized (this) {
+                nilBalance = balance;
+                hasNil = true;
+            }
+            return;
+        }
+        long hash = hash(msb, lsb);
+        stripeOf(hash).put(msb, lsb, hash, balance);
+    }
+
+    public long size() {
+        long size = hasNil ? 1 : 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Bytes currently reserved off-heap by the tables, empty slots included.
+     */
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.capacityBytes();
+        }
+        return bytes;
+    }
+
+    private Stripe stripeOf(long hash) {
+        return stripes[stripeShift == 64 ? 0 : (int) (hash >>> stripeShift)];
+    }
+
+    private static long hash(long msb, long lsb) {
+        long hash = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private volatile ByteBuffer table;
+        private int size;
+
+        private Stripe(int slots) {
+            this.table = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+        }
+
+        /**
+         * The table is read once, and only published grown once filled, so the optimistic probe sees one whole table and its
+         * mask, derived from that table, keeps every probe in bounds even when a writer grows the stripe meanwhile.
+         */
+        long get(long msb, long lsb, long hash, long absent) {
+            long stamp = lock.tryOptimisticRead();
+            ByteBuffer current = table;
+            long balance = find(current, msb, lsb, hash, absent);
+            if(lock.validate(stamp)) return balance;
+
+            stamp = lock.readLock();
+            try {
+                return find(table, msb, lsb, hash, absent);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(long msb, long lsb, long hash, long balance) {
+            long stamp = lock.writeLock();
+            try {
+                ByteBuffer current = table;
+                int offset = slotOf(current, msb, lsb, hash);
+                if(current.getLong(offset) == 0 && current.getLong(offset + 8) == 0) {
+                    if(size + 1 > slots(current) / 4 * 3) {
+                        current = grow(current);
+                        table = current;
+                        offset = slotOf(current, msb, lsb, hash);
+                    }
+                    current.putLong(offset, msb).putLong(offset + 8, lsb);
+                    size++;
+                }
+                current.putLong(offset + 16, balance);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long capacityBytes() {
+            long stamp = lock.readLock();
+            try {
+                return table.capacity();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Probes at most every slot once, so that a reader racing a writer always terminates; {@link #get} then retries.
+         */
+        private static long find(ByteBuffer table, long msb, long lsb, long hash, long absent) {
+            int mask = slots(table) - 1;
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int offset = slot * SLOT_BYTES;
+                long slotMsb = table.getLong(offset);
+                long slotLsb = table.getLong(offset + 8);
+                if(slotMsb == msb && slotLsb == lsb) return table.getLong(offset + 16);
+                if(slotMsb == 0 && slotLsb == 0) return absent;
+                slot = (slot + 1) & mask;
+            }
+            return absent;
+        }
+
+        /**
+         * Offset of the slot holding the account, or of the empty slot where it belongs. The table is never full.
+         */
+        private static int slotOf(ByteBuffer table, long msb, long lsb, long hash) {
+            int mask = slots(table) - 1;
+            int slot = (int) hash & mask;
+            while (true) {
+                int offset = slot * SLOT_BYTES;
+                long slotMsb = table.getLong(offset);
+                long slotLsb = table.getLong(offset + 8);
+                if((slotMsb == msb && slotLsb == lsb) || (slotMsb == 0 && slotLsb == 0)) return offset;
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private static ByteBuffer grow(ByteBuffer table) {
+            int slots = slots(table);
+            if(slots >= MAX_STRIPE_SLOTS) throw new IllegalStateException("Balance index stripe is full: " + slots + " slots");
+            ByteBuffer grown = ByteBuffer.allocateDirect(slots * 2 * SLOT_BYTES);
+            for (int offset = 0; offset < table.capacity(); offset += SLOT_BYTES) {
+                long msb = table.getLong(offset);
+                long lsb = table.getLong(offset + 8);
+                if(msb == 0 && lsb == 0) continue;
+                int target = slotOf(grown, msb, lsb, hash(msb, lsb));
+                grown.putLong(target, msb).putLong(target + 8, lsb).putLong(target + 16, table.getLong(offset + 16));
+            }
+            return grown;
+        }
+
+        private static int slots(ByteBuffer table) {
+            return table.capacity() / SLOT_BYTES;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.phongsouvanh.bank.operations;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe in-memory {@link OperationDao}.
+ * Each account owns its own {@link AccountLedger}, so writers on different accounts
+ * never share a lock and the current balance is read in O(1) without scanning history.
+ */
+public class InMemoryOperationDao implements OperationDao {
+
+    private final ConcurrentMap<UUID, AccountLedger> ledgers = new ConcurrentHashMap<>();
+
+    @Override
+    public Operation save(Operation operation) {
+        ledgerOf(operation.accountId()).append(operation);
+        return operation;
+    }
+
+    @Override
+    public BigDecimal getAccountBalanceById(UUID accountId) {
+        AccountLedger ledger = ledgers.get(accountId);
+        return ledger == null ? BigDecimal.ZERO : ledger.balance();
+    }
+
+    @Override
+    public List<Operation> getAllAccountOperationsById(UUID accountId) {
+        AccountLedger ledger = ledgers.get(accountId);
+        return ledger == null ? List.of() : ledger.operations();
+    }
+
+    @Override
+    public Set<UUID> getAccountIds() {
+        return Collections.unmodifiableSet(ledgers.keySet());
+    }
+
+    @Override
+    public Stream<Operation> streamAccountOperationsById(UUID accountId) {
+        AccountLedger ledger = ledgers.get(accountId);
+        return ledger == null ? Stream.empty() : ledger.descendingOperations();
+    }
+
+    @Override
+    public AccountSnapshot snapshotAccount(UUID accountId) {
+        AccountLedger ledger = ledgers.get(accountId);
+        return ledger == null ? AccountSnapshot.empty(accountId) : ledger.snapshot(accountId);
+    }
+
+    @Override
+    public long getAccountVersion(UUID accountId) {
+        AccountLedger ledger = ledgers.get(accountId);
+        return ledger == null ? 0 : ledger.size();
+    }
+
+    @Override
+    public OperationPage getOperations(UUID accountId, LocalDateTime from, LocalDateTime to, int limit, OperationCursor cursor) {
+        AccountLedger ledger = ledgers.get(accountId);
+        if(ledger == null) {
+            TimeIndex.checkPage(from, to, limit);
+            return new OperationPage(List.of(), null);
+        }
+        return ledger.page(from, to, limit, cursor);
+    }
+
+    @Override
+    public BigDecimal getBalanceBefore(UUID accountId, LocalDateTime date) {
+        AccountLedger ledger = ledgers.get(accountId);
+        return ledger == null ? BigDecimal.ZERO : ledger.balanceBefore(date);
+    }
+
+    @Override
+    public <E extends Exception> Operation append(UUID accountId, OperationFactory<E> factory) throws E {
+        return ledgerOf(accountId).append(factory);
+    }
+
+    @Override
+    public List<Operation> saveAll(List<Operation> operations) {
+        int from = 0;
+        while (from < operations.size()) {
+            UUID accountId = operations.get(from).accountId();
+            int to = from + 1;
+            while (to < operations.size() && operations.get(to).accountId().equals(accountId)) to++;
+            ledgerOf(accountId).appendAll(operations, from, to);
+            from = to;
+        }
+        return operations;
+    }
+
+    @Override
+    public List<Operation> appendAll(UUID accountId, LongFunction<List<Operation>> factory) {
+        return ledgerOf(accountId).appendAll(factory);
+    }
+
+    @Override
+    public <E extends Exception> Transfer appendTransfer(UUID debitedAccountId, UUID creditedAccountId, TransferFactory<E> factory) throws E {
+        if(debitedAccountId.equals(creditedAccountId)) throw new IllegalArgumentException("Cannot transfer within account " + debitedAccountId);
+        return AccountLedger.transfer(
+                ledgerOf(debitedAccountId), ledgerOf(creditedAccountId), debitedAccountId.compareTo(creditedAccountId) < 0, factory
+        );
+    }
+
+    private AccountLedger ledgerOf(UUID accountId) {
+        AccountLedger ledger = ledgers.get(accountId);
+        return ledger != null ? ledger : ledgers.computeIfAbsent(accountId, id -> new AccountLedger());
+    }
+}
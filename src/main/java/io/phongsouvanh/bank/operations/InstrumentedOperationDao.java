@@ -0,0 +1,122 @@
+package io.phongsouvanh.bank.operations;
+
+import io.phongsouvanh.bank.metrics.OperationMetrics;
+import io.phongsouvanh.bank.metrics.OperationMetrics.Timer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Records the latency of every call to the delegate DAO.
+ * Batch writes are timed as a whole, under the same timers as their single counterparts.
+ */
+public class InstrumentedOperationDao implements OperationDao {
+
+    private final OperationDao delegate;
+    private final OperationMetrics metrics;
+
+    public InstrumentedOperationDao(OperationDao delegate, OperationMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Operation save(Operation operation) {
+        long start = System.nanoTime();
+        try {
+            return delegate.save(operation);
+        } finally {
+            metrics.recordSince(Timer.SAVE, start);
+        }
+    }
+
+    @Override
+    public BigDecimal getAccountBalanceById(UUID accountId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAccountBalanceById(accountId);
+        } finally {
+            metrics.recordSince(Timer.BALANCE, start);
+        }
+    }
+
+    @Override
+    public List<Operation> getAllAccountOperationsById(UUID accountId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllAccountOperationsById(accountId);
+        } finally {
+            metrics.recordSince(Timer.HISTORY, start);
+        }
+    }
+
+    @Override
+    public Set<UUID> getAccountIds() {
+        return delegate.getAccountIds();
+    }
+
+    /**
+     * Not timed: the stream is consumed lazily by the caller, which is measured as statement rendering.
+     */
+    @Override
+    public Stream<Operation> streamAccountOperationsById(UUID accountId) {
+        return delegate.streamAccountOperationsById(accountId);
+    }
+
+    /**
+     * Only taking the snapshot is timed, not reading its operations.
+     */
+    @Override
+    public AccountSnapshot snapshotAccount(UUID accountId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.snapshotAccount(accountId);
+        } finally {
+            metrics.recordSince(Timer.HISTORY, start);
+        }
+    }
+
+    @Override
+    public <E extends Exception> Operation append(UUID accountId, OperationFactory<E> factory) throws E {
+        long start = System.nanoTime();
+        try {
+            return delegate.append(accountId, factory);
+        } finally {
+            metrics.recordSince(Timer.APPEND, start);
+        }
+    }
+
+    @Override
+    public List<Operation> saveAll(List<Operation> operations) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveAll(operations);
+        } finally {
+            metrics.recordSince(Timer.SAVE, start);
+        }
+    }
+
+    @Override
+    public List<Operation> appendAll(UUID accountId, LongFunction<List<Operation>> factory) {
+        long start = System.nanoTime();
+        try {
+            return delegate.appendAll(accountId, factory);
+        } finally {
+            metrics.recordSince(Timer.APPEND, start);
+        }
+    }
+
+    @Override
+    public <E extends Exception> Transfer appendTransfer(UUID debitedAccountId, UUID creditedAccountId, TransferFactory<E> factory) throws E {
+        long start = System.nanoTime();
+        try {
+            return delegate.appendTransfer(debitedAccountId, creditedAccountId, factory);
+        } finally {
+            metrics.recordSince(Timer.APPEND, start);
+        }
+    }
+}
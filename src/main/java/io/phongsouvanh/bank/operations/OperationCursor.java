@@ -0,0 +1,8 @@
+package io.phongsouvanh.bank.operations;
+
+/**
+ * Where the next {@link OperationPage} starts: the position, in the account's time index, just after
+ * the oldest operation already returned. Only meaningful for the account and range it was returned for.
+ */
+public record OperationCursor(int position) {
+}
@@ -1,12 +1,107 @@
 package io.phongsouvanh.bank.operations;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+/**
+ * Store of the operations of every account. The operations of an account are saved in date order, which its history,
+ * time index and statements rely on: an operation dated before the last one of its account is rejected with an
+ * {@link IllegalArgumentException}, before any operation of that account in the same write is saved.
+ */
 public interface OperationDao {
 
     Operation save(Operation operation);
     BigDecimal getAccountBalanceById(UUID accountId);
     List<Operation> getAllAccountOperationsById(UUID accountId);
+
+    /**
+     * Identifiers of every account with at least one operation, as a read-only, weakly consistent view.
+     */
+    Set<UUID> getAccountIds();
+
+    /**
+     * Lazily yields the operations of the account, most recent first, without materializing the whole history.
+     * The returned stream should be closed once consumed.
+     */
+    default Stream<Operation> streamAccountOperationsById(UUID accountId) {
+        List<Operation> operations = getAllAccountOperationsById(accountId);
+        int size = operations.size();
+        return IntStream.range(0, size).mapToObj(i -> operations.get(size - 1 - i));
+    }
+
+    /**
+     * Consistent view of the account's history, for readers such as statements that must show a balance matching the
+     * operations listed while writes go on. Implementations with lock-free readers take it without blocking writers.
+     */
+    default AccountSnapshot snapshotAccount(UUID accountId) {
+        Operation[] operations = chronologicalOperations(accountId);
+        int size = operations.length;
+        if(size == 0) return AccountSnapshot.empty(accountId);
+        return new AccountSnapshot(accountId, size, operations[size - 1].balance(),
+                () -> IntStream.range(0, size).mapToObj(i -> operations[size - 1 - i]));
+    }
+
+    /**
+     * Number of operations saved for the account, which is the {@link AccountSnapshot#version() version} of its snapshots.
+     * Read inside a factory, while no other write on the account can interleave, it is the position of the operation built.
+     */
+    default long getAccountVersion(UUID accountId) {
+        return getAllAccountOperationsById(accountId).size();
+    }
+
+    /**
+     * Returns at most {@code limit} operations of the account dated in {@code [from, to)}, most recent first,
+     * starting after {@code cursor}, or from the most recent one if {@code cursor} is {@code null}.
+     * Implementations backed by a time index locate the range in O(log n), whatever the length of the history.
+     */
+    default OperationPage getOperations(UUID accountId, LocalDateTime from, LocalDateTime to, int limit, OperationCursor cursor) {
+        Operation[] operations = chronologicalOperations(accountId);
+        return TimeIndex.page(operations, operations.length, from, to, limit, cursor);
+    }
+
+    /**
+     * Balance of the account right before {@code date}, i.e. the opening balance of a period starting at {@code date}.
+     */
+    default BigDecimal getBalanceBefore(UUID accountId, LocalDateTime date) {
+        Operation[] operations = chronologicalOperations(accountId);
+        return TimeIndex.balanceBefore(operations, operations.length, date);
+    }
+
+    private Operation[] chronologicalOperations(UUID accountId) {
+        return getAllAccountOperationsById(accountId).toArray(Operation[]::new);
+    }
+
+    /**
+     * Atomically reads the current balance of the account, in minor units, builds the next operation from it and saves it.
+     * No other write on the same account can interleave; if the factory throws, nothing is saved.
+     */
+    <E extends Exception> Operation append(UUID accountId, OperationFactory<E> factory) throws E;
+
+    /**
+     * Saves the operations in one batch, in the given order.
+     */
+    default List<Operation> saveAll(List<Operation> operations) {
+        operations.forEach(this::save);
+        return operations;
+    }
+
+    /**
+     * Batch counterpart of {@link #append(UUID, OperationFactory)}: the factory receives the current balance of the
+     * account, in minor units, and returns the operations to save, all persisted atomically with respect to other writes
+     * on the account.
+     */
+    List<Operation> appendAll(UUID accountId, LongFunction<List<Operation>> factory);
+
+    /**
+     * Two-account counterpart of {@link #append(UUID, OperationFactory)}: the factory receives the current balances of
+     * both accounts, in minor units, and both legs of the transfer it returns are saved atomically, or neither is.
+     * Implementations locking per account take the two locks in {@link UUID} order, so that opposite transfers cannot deadlock.
+     */
+    <E extends Exception> Transfer appendTransfer(UUID debitedAccountId, UUID creditedAccountId, TransferFactory<E> factory) throws E;
 }
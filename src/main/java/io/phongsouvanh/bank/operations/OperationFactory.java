@@ -0,0 +1,6 @@
+package io.phongsouvanh.bank.operations;
+
+@FunctionalInterface
+public interface OperationFactory<E extends Exception> {
+    Operation create(long currentBalanceMinorUnits) throws E;
+}
@@ -0,0 +1,13 @@
+package io.phongsouvanh.bank.operations;
+
+import java.util.List;
+
+/**
+ * A page of operations, most recent first, with the cursor of the next (older) page or {@code null} if it is the last.
+ */
+public record OperationPage(List<Operation> operations, OperationCursor next) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+}
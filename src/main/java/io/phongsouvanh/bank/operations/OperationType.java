@@ -2,5 +2,16 @@ package io.phongsouvanh.bank.operations;
 
 public enum OperationType {
     DEPOSIT,
-    WITHDRAWAL
+    WITHDRAWAL,
+    TRANSFER_OUT,
+    TRANSFER_IN,
+    INTEREST,
+    FEE;
+
+    /**
+     * Whether the operation takes its amount out of the account.
+     */
+    public boolean isDebit() {
+        return this == WITHDRAWAL || this == TRANSFER_OUT || this == FEE;
+    }
 }
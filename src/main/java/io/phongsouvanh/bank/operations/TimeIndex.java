@@ -0,0 +1,55 @@
+package io.phongsouvanh.bank.operations;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary searches over operations in date order, the order in which they are appended to an account,
+ * so that a range costs O(log n) to locate plus the size of the page.
+ */
+final class TimeIndex {
+
+    private TimeIndex() {
+    }
+
+    /**
+     * Position of the first operation dated at or after {@code date}, {@code size} if there is none.
+     */
+    static int lowerBound(Operation[] operations, int size, LocalDateTime date) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if(operations[middle].date().isBefore(date)) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    static OperationPage page(Operation[] operations, int size, LocalDateTime from, LocalDateTime to, int limit, OperationCursor cursor) {
+        checkPage(from, to, limit);
+        int low = lowerBound(operations, size, from);
+        int high = lowerBound(operations, size, to);
+        if(cursor != null) high = Math.max(low, Math.min(high, cursor.position()));
+        int start = Math.max(low, high - limit);
+
+        List<Operation> page = new ArrayList<>(high - start);
+        for (int i = high - 1; i >= start; i--) {
+            page.add(operations[i]);
+        }
+        return new OperationPage(Collections.unmodifiableList(page), start > low ? new OperationCursor(start) : null);
+    }
+
+    static BigDecimal balanceBefore(Operation[] operations, int size, LocalDateTime date) {
+        int position = lowerBound(operations, size, date);
+        return position == 0 ? BigDecimal.ZERO : operations[position - 1].balance();
+    }
+
+    static void checkPage(LocalDateTime from, LocalDateTime to, int limit) {
+        if(limit <= 0) throw new IllegalArgumentException("limit must be positive: " + limit);
+        if(to.isBefore(from)) throw new IllegalArgumentException("Range ends before it starts: " + from + " - " + to);
+    }
+}
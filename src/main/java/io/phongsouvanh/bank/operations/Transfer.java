@@ -0,0 +1,7 @@
+package io.phongsouvanh.bank.operations;
+
+/**
+ * The two legs of a transfer, saved together: the {@link OperationType#TRANSFER_OUT} of the debited account
+ * and the {@link OperationType#TRANSFER_IN} of the credited one.
+ */
+public record Transfer(Operation debit, Operation credit) { }
@@ -0,0 +1,6 @@
+package io.phongsouvanh.bank.operations;
+
+@FunctionalInterface
+public interface TransferFactory<E extends Exception> {
+    Transfer create(long debitedBalanceMinorUnits, long creditedBalanceMinorUnits) throws E;
+}
@@ -0,0 +1,486 @@
+package io.phongsouvanh.bank.operations;
+
+import io.phongsouvanh.bank.account.MinorUnits;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Caching decorator for a slow, typically remote, {@link OperationDao}.
+ * <p>
+ * Balances are kept in a bounded LRU cache split into independently locked segments, and read through from the backing DAO
+ * the first time an account is used. Writes are acknowledged as soon as they are saved to {@code log}, a local durable DAO such
+ * as a journal, then flushed to the backing DAO by a background thread in batches of up to {@code batchSize} writes. The
+ * operations of one write, such as the two legs of a transfer, always travel in the same batch.
+ * <p>
+ * An account with operations not flushed yet is never evicted, its cached balance being the only up-to-date one until the
+ * backing DAO catches up, and its history is read from the backing DAO merged with these operations. As with the sharded
+ * engine, the decorator must be the only writer of the accounts it serves. When opened, it first flushes the operations of
+ * the log more recent than the backing history, acknowledged but not flushed before the last shutdown.
+ */
+public class WriteBehindOperationDao implements OperationDao, Closeable {
+
+    public static final int DEFAULT_MAX_ACCOUNTS = 100_000;
+    public static final int DEFAULT_MAX_PENDING = 1 << 16;
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    private static final int SEGMENTS = 16;
+    private static final int EVICTION_SCAN = 8;
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final OperationDao backing;
+    private final OperationDao log;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxAccountsPerSegment;
+    private final BlockingQueue<PendingWrite> pending;
+    private final int batchSize;
+    private final AtomicLong enqueuedWrites = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public WriteBehindOperationDao(OperationDao backing, OperationDao log) {
+        this(backing, log, DEFAULT_MAX_ACCOUNTS, DEFAULT_MAX_PENDING, DEFAULT_BATCH_SIZE);
+    }
+
+    public WriteBehindOperationDao(OperationDao backing, OperationDao log, int maxAccounts, int maxPending, int batchSize) {
+        if(maxAccounts <= 0) throw new IllegalArgumentException("maxAccounts must be positive: " + maxAccounts);
+        if(batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.backing = backing;
+        this.log = log;
+        this.maxAccountsPerSegment = Math.max(1, maxAccounts / SEGMENTS);
+        this.pending = new ArrayBlockingQueue<>(maxPending);
+        this.batchSize = batchSize;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        recover();
+        this.flusher = new Thread(this::flushLoop, "write-behind-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public Operation save(Operation operation) {
+        CachedAccount account = lock(operation.accountId());
+        try {
+            log.save(operation);
+            record(account, operation);
+            enqueue(List.of(account), List.of(operation));
+            return operation;
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> saveAll(List<Operation> operations) {
+        int from = 0;
+        while (from < operations.size()) {
+            UUID accountId = operations.get(from).accountId();
+            int to = from + 1;
+            while (to < operations.size() && operations.get(to).accountId().equals(accountId)) to++;
+            List<Operation> group = operations.subList(from, to);
+            CachedAccount account = lock(accountId);
+            try {
+                log.saveAll(group);
+                group.forEach(operation -> record(account, operation));
+                enqueue(Collections.nCopies(group.size(), account), List.copyOf(group));
+            } finally {
+                account.lock.unlock();
+            }
+            from = to;
+        }
+        return operations;
+    }
+
+    @Override
+    public <E extends Exception> Operation append(UUID accountId, OperationFactory<E> factory) throws E {
+        CachedAccount account = lock(accountId);
+        try {
+            Operation operation = factory.create(account.balanceMinorUnits);
+            log.save(operation);
+            record(account, operation);
+            enqueue(List.of(account), List.of(operation));
+            return operation;
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> appendAll(UUID accountId, LongFunction<List<Operation>> factory) {
+        CachedAccount account = lock(accountId);
+        try {
+            List<Operation> operations = factory.apply(account.balanceMinorUnits);
+            if(operations.isEmpty()) return operations;
+            log.saveAll(operations);
+            operations.forEach(operation -> record(account, operation));
+            enqueue(Collections.nCopies(operations.size(), account), List.copyOf(operations));
+            return operations;
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public <E extends Exception> Transfer appendTransfer(UUID debitedAccountId, UUID creditedAccountId, TransferFactory<E> factory) throws E {
+        if(debitedAccountId.equals(creditedAccountId)) throw new IllegalArgumentException("Cannot transfer within account " + debitedAccountId);
+        boolean debitedFirst = debitedAccountId.compareTo(creditedAccountId) < 0;
+        CachedAccount first = lock(debitedFirst ? debitedAccountId : creditedAccountId);
+        try {
+            CachedAccount second = lock(debitedFirst ? creditedAccountId : debitedAccountId);
+            try {
+                CachedAccount debited = debitedFirst ? first : second;
+                CachedAccount credited = debitedFirst ? second : first;
+                Transfer transfer = factory.create(debited.balanceMinorUnits, credited.balanceMinorUnits);
+                log.appendTransfer(debitedAccountId, creditedAccountId, (debitedBalance, creditedBalance) -> transfer);
+                record(debited, transfer.debit());
+                record(credited, transfer.credit());
+                enqueue(List.of(debited, credited), List.of(transfer.debit(), transfer.credit()));
+                return transfer;
+            } finally {
+                second.lock.unlock();
+            }
+        } finally {
+            first.lock.unlock();
+        }
+    }
+
+    @Override
+    public BigDecimal getAccountBalanceById(UUID accountId) {
+        CachedAccount account = lock(accountId);
+        try {
+            return account.balance;
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Operation> getAllAccountOperationsById(UUID accountId) {
+        List<Operation> unflushed = unflushed(accountId);
+        List<Operation> flushed = backing.getAllAccountOperationsById(accountId);
+        if(unflushed.isEmpty()) return flushed;
+
+        List<Operation> tail = flushed.subList(Math.max(0, flushed.size() - unflushed.size()), flushed.size());
+        int alreadyFlushed = overlap(tail, unflushed);
+        List<Operation> merged = new ArrayList<>(flushed.size() + unflushed.size() - alreadyFlushed);
+        merged.addAll(flushed);
+        merged.addAll(unflushed.subList(alreadyFlushed, unflushed.size()));
+        return Collections.unmodifiableList(merged);
+    }
+
+    /**
+     * Only the most recent backing operations, as many as the unflushed ones, are read ahead to find those flushed meanwhile.
+     */
+    @Override
+    public Stream<Operation> streamAccountOperationsById(UUID accountId) {
+        List<Operation> unflushed = unflushed(accountId);
+        if(unflushed.isEmpty()) return backing.streamAccountOperationsById(accountId);
+
+        Stream<Operation> flushed = backing.streamAccountOperationsById(accountId);
+        Iterator<Operation> older = flushed.iterator();
+        List<Operation> tail = new ArrayList<>(unflushed.size());
+        while (tail.size() < unflushed.size() && older.hasNext()) {
+            tail.add(older.next());
+        }
+        Collections.reverse(tail);
+        int alreadyFlushed = overlap(tail, unflushed);
+
+        List<Operation> newestFirst = new ArrayList<>(unflushed.size() + tail.size() - alreadyFlushed);
+        newestFirst.addAll(unflushed);
+        newestFirst.addAll(0, tail.subList(0, tail.size() - alreadyFlushed));
+        Collections.reverse(newestFirst);
+        Stream<Operation> rest = StreamSupport.stream(Spliterators.spliteratorUnknownSize(older, Spliterator.ORDERED), false);
+        return Stream.concat(newestFirst.stream(), rest).onClose(flushed::close);
+    }
+
+    @Override
+    public OperationPage getOperations(UUID accountId, LocalDateTime from, LocalDateTime to, int limit, OperationCursor cursor) {
+        return unflushed(accountId).isEmpty()
+                ? backing.getOperations(accountId, from, to, limit, cursor)
+                : OperationDao.super.getOperations(accountId, from, to, limit, cursor);
+    }
+
+    @Override
+    public BigDecimal getBalanceBefore(UUID accountId, LocalDateTime date) {
+        return unflushed(accountId).isEmpty()
+                ? backing.getBalanceBefore(accountId, date)
+                : OperationDao.super.getBalanceBefore(accountId, date);
+    }
+
+    @Override
+    public Set<UUID> getAccountIds() {
+        Set<UUID> accountIds = new HashSet<>(backing.getAccountIds());
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.accounts.forEach((accountId, account) -> {
+                    if(account.written) accountIds.add(accountId);
+                });
+            }
+        }
+        return Collections.unmodifiableSet(accountIds);
+    }
+
+    /**
+     * Waits until every write acknowledged so far is saved to the backing DAO.
+     */
+    public void flush() {
+        long target = enqueuedWrites.get();
+        while (flushedWrites.get() < target) {
+            if(!flusher.isAlive()) throw new IllegalStateException("The flusher is stopped");
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    public int cachedAccounts() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.accounts.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Flushes the pending writes and stops the flusher. If the backing DAO keeps failing, the remaining writes are left
+     * to the log and flushed when the decorator is opened again.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the account locked, its balance loaded.
+     */
+    private CachedAccount lock(UUID accountId) {
+        while (true) {
+            CachedAccount account = cached(accountId);
+            account.lock.lock();
+            if(!account.evicted) {
+                if(account.balance == null) {
+                    try {
+                        account.load(backing.getAccountBalanceById(accountId));
+                    } catch (RuntimeException e) {
+                        account.lock.unlock();
+                        throw e;
+                    }
+                }
+                return account;
+            }
+            account.lock.unlock();
+        }
+    }
+
+    private CachedAccount cached(UUID accountId) {
+        Segment segment = segments[Math.floorMod(accountId.hashCode(), SEGMENTS)];
+        synchronized (segment) {
+            CachedAccount account = segment.accounts.get(accountId);
+            if(account == null) {
+                account = new CachedAccount();
+                segment.accounts.put(accountId, account);
+                evict(segment, account);
+            }
+            return account;
+        }
+    }
+
+    /**
+     * Evicts the least recently used accounts, other than the one just inserted, that are neither locked nor waiting for a flush.
+     * Only a few are looked at: when none can go, the segment is left over its bound until the next insertion.
+     */
+    private void evict(Segment segment, CachedAccount inserted) {
+        while (segment.accounts.size() > maxAccountsPerSegment) {
+            Iterator<CachedAccount> eldest = segment.accounts.values().iterator();
+            boolean evicted = false;
+            for (int scanned = 0; scanned < EVICTION_SCAN && eldest.hasNext() && !evicted; scanned++) {
+                CachedAccount candidate = eldest.next();
+                if(candidate == inserted || !candidate.lock.tryLock()) continue;
+                try {
+                    if(candidate.unflushed.isEmpty()) {
+                        candidate.evicted = true;
+                        eldest.remove();
+                        evicted = true;
+                    }
+                } finally {
+                    candidate.lock.unlock();
+                }
+            }
+            if(!evicted) return;
+        }
+    }
+
+    private List<Operation> unflushed(UUID accountId) {
+        Segment segment = segments[Math.floorMod(accountId.hashCode(), SEGMENTS)];
+        CachedAccount account;
+        synchronized (segment) {
+            account = segment.accounts.get(accountId);
+        }
+        return account == null ? List.of() : List.copyOf(account.unflushed);
+    }
+
+    private static void record(CachedAccount account, Operation operation) {
+        account.balance = operation.balance();
+        account.balanceMinorUnits = MinorUnits.of(operation.balance());
+        account.unflushed.addLast(operation);
+        account.written = true;
+    }
+
+    private void enqueue(List<CachedAccount> accounts, List<Operation> operations) {
+        if(!running) throw new IllegalStateException("The write-behind DAO is closed");
+        try {
+            pending.put(new PendingWrite(accounts, operations));
+            enqueuedWrites.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the flusher; the write is in the log only", e);
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        List<Operation> operations = new ArrayList<>(batchSize);
+        while (running || !pending.isEmpty()) {
+            PendingWrite first;
+            try {
+                first = pending.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if(first == null) continue;
+            batch.add(first);
+            pending.drainTo(batch, batchSize - 1);
+            for (PendingWrite write : batch) {
+                operations.addAll(write.operations());
+            }
+
+            if(!saveToBacking(operations)) return;
+            for (PendingWrite write : batch) {
+                for (CachedAccount account : write.accounts()) {
+                    account.unflushed.pollFirst();
+                }
+            }
+            flushedWrites.addAndGet(batch.size());
+            batch.clear();
+            operations.clear();
+        }
+    }
+
+    /**
+     * Retries with exponential backoff until the backing DAO accepts the batch, or gives up once closed.
+     */
+    private boolean saveToBacking(List<Operation> operations) {
+        long backoff = TimeUnit.MILLISECONDS.toNanos(1);
+        while (true) {
+            try {
+                backing.saveAll(operations);
+                return true;
+            } catch (RuntimeException e) {
+                if(!running) return false;
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_NANOS);
+            }
+        }
+    }
+
+    /**
+     * The operations flushed are a prefix of the log history of the account, found at the end of the backing history,
+     * possibly after operations the backing DAO held before the log. The longest such prefix is looked for by position,
+     * so that operations with the same date, or read back with another scale, are neither skipped nor flushed twice.
+     * Only the prefixes ending with the last backing operation are compared, from their end, so that an account is
+     * recovered in about one pass over its history rather than one per candidate prefix.
+     */
+    private void recover() {
+        for (UUID accountId : log.getAccountIds()) {
+            List<Operation> logged = log.getAllAccountOperationsById(accountId);
+            List<Operation> flushed = backing.getAllAccountOperationsById(accountId);
+            int flushedCount = overlap(flushed, logged);
+            if(flushedCount < logged.size()) backing.saveAll(List.copyOf(logged.subList(flushedCount, logged.size())));
+        }
+    }
+
+    /**
+     * Length of the longest prefix of {@code operations} that ends {@code history}, comparing operations by value.
+     */
+    private static int overlap(List<Operation> history, List<Operation> operations) {
+        if(history.isEmpty()) return 0;
+        Operation last = history.get(history.size() - 1);
+        for (int count = Math.min(operations.size(), history.size()); count > 0; count--) {
+            if(sameOperation(operations.get(count - 1), last) && isSuffix(operations.subList(0, count), history)) return count;
+        }
+        return 0;
+    }
+
+    private static boolean isSuffix(List<Operation> operations, List<Operation> history) {
+        int offset = history.size() - operations.size();
+        for (int i = operations.size() - 1; i >= 0; i--) {
+            if(!sameOperation(operations.get(i), history.get(offset + i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares amounts and balances by value, since a DAO may read them back with another scale than they were saved with.
+     */
+    private static boolean sameOperation(Operation left, Operation right) {
+        return left.accountId().equals(right.accountId())
+                && left.type() == right.type()
+                && left.amount().getMinorUnits() == right.amount().getMinorUnits()
+                && left.date().equals(right.date())
+                && left.balance().compareTo(right.balance()) == 0;
+    }
+
+    /**
+     * {@code accounts} holds the account of each operation, in the same order, so that the flusher releases one unflushed
+     * operation per operation saved.
+     */
+    private record PendingWrite(List<CachedAccount> accounts, List<Operation> operations) { }
+
+    private static final class Segment {
+        private final LinkedHashMap<UUID, CachedAccount> accounts = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Written under {@code lock}. The flusher drains {@code unflushed} without it: a writer may hold the lock while waiting
+     * for room in the queue.
+     */
+    private static final class CachedAccount {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ConcurrentLinkedDeque<Operation> unflushed = new ConcurrentLinkedDeque<>();
+        private BigDecimal balance;
+        private long balanceMinorUnits;
+        private boolean evicted;
+        private volatile boolean written;
+
+        private void load(BigDecimal balance) {
+            this.balance = balance;
+            this.balanceMinorUnits = MinorUnits.of(balance);
+        }
+    }
+}
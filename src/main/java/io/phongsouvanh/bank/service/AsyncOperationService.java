@@ -0,0 +1,26 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.Transfer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link OperationService}.
+ * Calls on the same account complete in submission order; calls on different accounts run concurrently. A call on several
+ * accounts, such as a transfer or a batch, is ordered with the calls of each of them.
+ * Failures, such as {@link io.phongsouvanh.bank.exceptions.OutOfBalanceException}, complete the future exceptionally.
+ */
+public interface AsyncOperationService {
+    CompletableFuture<Operation> deposit(UUID accountId, Amount amount);
+    CompletableFuture<Operation> withdraw(UUID accountId, Amount amount);
+    CompletableFuture<Void> printAccountStatement(UUID accountId);
+    CompletableFuture<Void> printAccountStatement(UUID accountId, LocalDate from, LocalDate to);
+    CompletableFuture<List<BatchResult>> applyBatch(List<BatchItem> items);
+    CompletableFuture<Transfer> transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount);
+    CompletableFuture<List<TransferResult>> applyTransfers(List<TransferItem> items);
+}
@@ -0,0 +1,17 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record BatchItem(UUID accountId, OperationType type, BigDecimal amount) {
+
+    public static BatchItem deposit(UUID accountId, BigDecimal amount) {
+        return new BatchItem(accountId, OperationType.DEPOSIT, amount);
+    }
+
+    public static BatchItem withdrawal(UUID accountId, BigDecimal amount) {
+        return new BatchItem(accountId, OperationType.WITHDRAWAL, amount);
+    }
+}
@@ -0,0 +1,23 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.operations.Operation;
+
+/**
+ * Outcome of one {@link BatchItem}: either the saved operation or the exception that rejected the item,
+ * such as {@link io.phongsouvanh.bank.exceptions.NegativeAmountException} or
+ * {@link io.phongsouvanh.bank.exceptions.OutOfBalanceException}.
+ */
+public record BatchResult(BatchItem item, Operation operation, Exception error) {
+
+    public static BatchResult success(BatchItem item, Operation operation) {
+        return new BatchResult(item, operation, null);
+    }
+
+    public static BatchResult failure(BatchItem item, Exception error) {
+        return new BatchResult(item, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
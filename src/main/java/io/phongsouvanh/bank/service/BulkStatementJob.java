@@ -0,0 +1,77 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.statements.StatementFilePrinter;
+import io.phongsouvanh.bank.statements.StatementFormatter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Writes the statement of a period for every account, each to its own {@code <account id>.txt} file.
+ * Statements are rendered on virtual threads, streamed from the DAO pages to a {@link StatementFilePrinter};
+ * at most {@code maxInFlight} of them are open at once, which bounds both memory and open files.
+ * A failed statement is reported without stopping the others.
+ */
+public class BulkStatementJob {
+
+    private final OperationDao operationDao;
+    private final Clock clock;
+    private final StatementFormatter formatter;
+    private final int maxInFlight;
+
+    public BulkStatementJob(OperationDao operationDao, Clock clock, StatementFormatter formatter, int maxInFlight) {
+        if(maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        this.operationDao = operationDao;
+        this.clock = clock;
+        this.formatter = formatter;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Reports progress about every percent of the accounts, from the thread completing the statement.
+     */
+    public BulkStatementReport run(Path directory, LocalDate from, LocalDate to, Consumer<BulkStatementProgress> progress)
+            throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        List<UUID> accountIds = List.copyOf(operationDao.getAccountIds());
+        int total = accountIds.size();
+        long progressStep = Math.max(1, total / 100);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong bytesWritten = new AtomicLong();
+        Map<UUID, Exception> failures = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (UUID accountId : accountIds) {
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try (StatementFilePrinter printer = new StatementFilePrinter(directory.resolve(accountId + ".txt"))) {
+                        new DefaultOperationService(operationDao, clock, formatter, printer).printAccountStatement(accountId, from, to);
+                        bytesWritten.addAndGet(printer.bytesWritten());
+                    } catch (IOException | RuntimeException e) {
+                        failures.put(accountId, e);
+                    } finally {
+                        inFlight.release();
+                        long done = completed.incrementAndGet();
+                        if(done % progressStep == 0 || done == total) {
+                            progress.accept(new BulkStatementProgress(done, failures.size(), total, Duration.ofNanos(System.nanoTime() - start)));
+                        }
+                    }
+                });
+            }
+        }
+        return new BulkStatementReport(total, Map.copyOf(failures), bytesWritten.get(), Duration.ofNanos(System.nanoTime() - start));
+    }
+}
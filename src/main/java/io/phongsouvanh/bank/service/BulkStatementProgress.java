@@ -0,0 +1,10 @@
+package io.phongsouvanh.bank.service;
+
+import java.time.Duration;
+
+public record BulkStatementProgress(long completed, long failed, long total, Duration elapsed) {
+
+    public double statementsPerSecond() {
+        return elapsed.isZero() ? 0 : completed * 1e9 / elapsed.toNanos();
+    }
+}
@@ -0,0 +1,20 @@
+package io.phongsouvanh.bank.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of a {@link BulkStatementJob} run: the statements attempted, the ones that failed with their cause,
+ * and the bytes written by the others.
+ */
+public record BulkStatementReport(int statements, Map<UUID, Exception> failures, long bytesWritten, Duration duration) {
+
+    public double statementsPerSecond() {
+        return duration.isZero() ? 0 : statements * 1e9 / duration.toNanos();
+    }
+
+    public double megabytesPerSecond() {
+        return duration.isZero() ? 0 : bytesWritten * 1e3 / duration.toNanos();
+    }
+}
@@ -1,65 +1,331 @@
 package io.phongsouvanh.bank.service;
 
 import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.exceptions.NegativeAmountException;
 import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.feed.OperationFeed;
+import io.phongsouvanh.bank.operations.AccountSnapshot;
 import io.phongsouvanh.bank.operations.Operation;
 import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.operations.OperationFactory;
+import io.phongsouvanh.bank.operations.OperationPage;
 import io.phongsouvanh.bank.operations.OperationType;
-import io.phongsouvanh.bank.statements.Statement;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.statements.RenderedStatementCache;
 import io.phongsouvanh.bank.statements.StatementFormatter;
+import io.phongsouvanh.bank.statements.StatementPeriod;
 import io.phongsouvanh.bank.statements.StatementPrinter;
 
 import java.math.BigDecimal;
 import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
 
 public class DefaultOperationService implements OperationService {
 
+    private static final int STATEMENT_PAGE_SIZE = 512;
+
     private final OperationDao operationDao;
     private final StatementFormatter formatter;
     private final StatementPrinter printer;
     private final Clock clock;
+    private final RenderedStatementCache statementCache;
+    private final OperationFeed feed;
+    private final AtomicReference<LocalDateTime> lastDate = new AtomicReference<>(LocalDateTime.MIN);
 
     public DefaultOperationService(OperationDao operationDao, Clock clock, StatementFormatter formatter, StatementPrinter printer) {
+        this(operationDao, clock, formatter, printer, null);
+    }
+
+    /**
+     * @param statementCache rows of the full statements printed, kept up to date with the operations saved by this service,
+     *                       which must then be the only writer of the accounts; {@code null} to format every statement afresh
+     */
+    public DefaultOperationService(OperationDao operationDao, Clock clock, StatementFormatter formatter, StatementPrinter printer,
+                                   RenderedStatementCache statementCache) {
+        this(operationDao, clock, formatter, printer, statementCache, null);
+    }
+
+    /**
+     * @param feed change feed the operations saved by this service are published to; {@code null} not to publish them
+     */
+    public DefaultOperationService(OperationDao operationDao, Clock clock, StatementFormatter formatter, StatementPrinter printer,
+                                   RenderedStatementCache statementCache, OperationFeed feed) {
         this.operationDao = operationDao;
         this.clock = clock;
         this.formatter = formatter;
         this.printer = printer;
+        this.statementCache = statementCache;
+        this.feed = feed;
     }
 
     @Override
     public Operation deposit(UUID accountId, Amount amount) {
-        BigDecimal oldBalance = Optional.of(operationDao.getAccountBalanceById(accountId)).orElse(BigDecimal.ZERO);
-        BigDecimal newBalance = oldBalance.add(amount.getValue());
-
-        Operation currentOperation = new Operation(
-                accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), newBalance
-        );
-        return operationDao.save(currentOperation);
+        return append(accountId, balance -> new Operation(
+                accountId, OperationType.DEPOSIT, amount, now(),
+                MinorUnits.toBigDecimal(MinorUnits.add(balance, amount.getMinorUnits()))
+        ));
     }
 
     @Override
     public Operation withdraw(UUID accountId, Amount amount) throws OutOfBalanceException {
-        BigDecimal oldBalance = Optional.of(operationDao.getAccountBalanceById(accountId)).orElse(BigDecimal.ZERO);
-        BigDecimal newBalance = oldBalance.subtract(amount.getValue());
+        return append(accountId, balance -> {
+            long newBalance = MinorUnits.subtract(balance, amount.getMinorUnits());
 
-        if(newBalance.compareTo(BigDecimal.ZERO) <= 0) throw new OutOfBalanceException();
+            if(newBalance <= 0) throw new OutOfBalanceException();
 
-        Operation currentOperation = new Operation(
-                accountId, OperationType.WITHDRAWAL, amount, LocalDateTime.now(clock), newBalance
-        );
-        return operationDao.save(currentOperation);
+            return new Operation(
+                    accountId, OperationType.WITHDRAWAL, amount, now(), MinorUnits.toBigDecimal(newBalance)
+            );
+        });
     }
 
+    @Override
+    public List<BatchResult> applyBatch(List<BatchItem> items) {
+        Map<UUID, List<Integer>> itemsByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            itemsByAccount.computeIfAbsent(items.get(i).accountId(), accountId -> new ArrayList<>()).add(i);
+        }
+
+        BatchResult[] results = new BatchResult[items.size()];
+        itemsByAccount.forEach((accountId, indexes) -> applyGroup(accountId, indexes, items, results));
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public Transfer transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) throws OutOfBalanceException {
+        long[] sequence = {-1};
+        long[] positions = {-1, -1};
+        Transfer transfer;
+        try {
+            transfer = operationDao.appendTransfer(debitedAccountId, creditedAccountId, (debitedBalance, creditedBalance) -> {
+                long newDebitedBalance = MinorUnits.subtract(debitedBalance, amount.getMinorUnits());
+
+                if(newDebitedBalance <= 0) throw new OutOfBalanceException();
+
+                LocalDateTime date = now();
+                Transfer created = new Transfer(
+                        new Operation(debitedAccountId, OperationType.TRANSFER_OUT, amount, date, MinorUnits.toBigDecimal(newDebitedBalance)),
+                        new Operation(creditedAccountId, OperationType.TRANSFER_IN, amount, date,
+                                MinorUnits.toBigDecimal(MinorUnits.add(creditedBalance, amount.getMinorUnits())))
+                );
+                positions[0] = position(debitedAccountId);
+                positions[1] = position(creditedAccountId);
+                sequence[0] = reserve(2);
+                return created;
+            });
+        } catch (RuntimeException e) {
+            cancel(sequence[0], 2);
+            throw e;
+        }
+        publish(sequence[0], List.of(transfer.debit(), transfer.credit()));
+        recorded(transfer.debit(), positions[0]);
+        recorded(transfer.credit(), positions[1]);
+        return transfer;
+    }
+
+    @Override
+    public List<TransferResult> applyTransfers(List<TransferItem> items) {
+        List<TransferResult> results = new ArrayList<>(items.size());
+        for (TransferItem item : items) {
+            try {
+                results.add(TransferResult.success(item, transfer(item.debitedAccountId(), item.creditedAccountId(), new Amount(item.amount()))));
+            } catch (NegativeAmountException | OutOfBalanceException | ArithmeticException | IllegalArgumentException e) {
+                results.add(TransferResult.failure(item, e));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Printed from a snapshot of the account, so that the balance always matches the operations listed, without blocking
+     * the deposits and withdrawals saved meanwhile.
+     */
     @Override
     public void printAccountStatement(UUID accountId){
-        List<Operation> operations = operationDao.getAllAccountOperationsById(accountId);
-        Statement statement = new Statement(accountId, LocalDate.now(clock), operations);
-        printer.print(formatter.format(statement));
+        if(statementCache != null) {
+            try (Stream<String> formattedStatement = statementCache.format(
+                    accountId, LocalDate.now(clock), () -> operationDao.snapshotAccount(accountId)
+            )) {
+                printer.print(formattedStatement);
+            }
+            return;
+        }
+
+        AccountSnapshot snapshot = operationDao.snapshotAccount(accountId);
+        try (Stream<Operation> operations = snapshot.operations();
+             Stream<String> formattedStatement = formatter.format(
+                     accountId, LocalDate.now(clock), snapshot.balance(), operations
+             )) {
+            printer.print(formattedStatement);
+        }
+    }
+
+    /**
+     * The closing balance is the one of the most recent operation of the first page, so that it always matches
+     * the operations printed even if new ones are saved meanwhile.
+     */
+    @Override
+    public void printAccountStatement(UUID accountId, LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        OperationPage firstPage = operationDao.getOperations(accountId, start, end, STATEMENT_PAGE_SIZE, null);
+        BigDecimal openingBalance = operationDao.getBalanceBefore(accountId, start);
+        BigDecimal closingBalance = firstPage.operations().isEmpty() ? openingBalance : firstPage.operations().get(0).balance();
+
+        Stream<Operation> operations = Stream.iterate(firstPage, Objects::nonNull, page -> page.hasNext()
+                        ? operationDao.getOperations(accountId, start, end, STATEMENT_PAGE_SIZE, page.next())
+                        : null)
+                .flatMap(page -> page.operations().stream());
+        try (Stream<String> formattedStatement = formatter.format(
+                accountId, LocalDate.now(clock), new StatementPeriod(from, to, openingBalance, closingBalance), operations
+        )) {
+            printer.print(formattedStatement);
+        }
+    }
+
+    /**
+     * Saves the operations built by the factory in one batch, published and recorded like those of the other calls.
+     * Used by {@link MonthEndPostingJob}, which has no call of its own in {@link OperationService}.
+     */
+    List<Operation> post(UUID accountId, LongFunction<List<Operation>> factory) {
+        return appendAll(accountId, factory);
+    }
+
+    /**
+     * Current date, never before one already returned, so that the operations of an account, dated by their factory while
+     * the account is held, stay in date order even when the clock steps back.
+     */
+    LocalDateTime now() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return lastDate.accumulateAndGet(now, (last, next) -> next.isAfter(last) ? next : last);
+    }
+
+    OperationDao operationDao() {
+        return operationDao;
+    }
+
+    Clock clock() {
+        return clock;
+    }
+
+    /**
+     * Saves the items of one account at once. If the DAO fails to save them, every item of the account is reported failed,
+     * including those the factory accepted, and the groups of the other accounts are still applied.
+     */
+    private void applyGroup(UUID accountId, List<Integer> indexes, List<BatchItem> items, BatchResult[] results) {
+        try {
+            appendAll(accountId, balance -> {
+                LocalDateTime date = now();
+                List<Operation> operations = new ArrayList<>(indexes.size());
+                long runningBalance = balance;
+                for (int index : indexes) {
+                    BatchItem item = items.get(index);
+                    try {
+                        Amount amount = new Amount(item.amount());
+                        long newBalance = switch (item.type()) {
+                            case DEPOSIT -> MinorUnits.add(runningBalance, amount.getMinorUnits());
+                            case WITHDRAWAL -> MinorUnits.subtract(runningBalance, amount.getMinorUnits());
+                            case TRANSFER_OUT, TRANSFER_IN -> throw new IllegalArgumentException("Transfers are applied with applyTransfers");
+                            case INTEREST, FEE -> throw new IllegalArgumentException("Interest and fees are posted with MonthEndPostingJob");
+                        };
+                        if(item.type() == OperationType.WITHDRAWAL && newBalance <= 0) throw new OutOfBalanceException();
+
+                        Operation operation = new Operation(accountId, item.type(), amount, date, MinorUnits.toBigDecimal(newBalance));
+                        operations.add(operation);
+                        runningBalance = newBalance;
+                        results[index] = BatchResult.success(item, operation);
+                    } catch (NegativeAmountException | OutOfBalanceException | ArithmeticException | IllegalArgumentException e) {
+                        results[index] = BatchResult.failure(item, e);
+                    }
+                }
+                return operations;
+            });
+        } catch (RuntimeException e) {
+            for (int index : indexes) {
+                results[index] = BatchResult.failure(items.get(index), e);
+            }
+        }
+    }
+
+    /**
+     * Saves the operation built by the factory, numbered in the feed and located in the history of the account while the
+     * account is held, so that the feed and the statement cache follow the order of its history.
+     */
+    private <E extends Exception> Operation append(UUID accountId, OperationFactory<E> factory) throws E {
+        if(feed == null && statementCache == null) return operationDao.append(accountId, factory);
+
+        long[] sequence = {-1};
+        long[] position = {-1};
+        Operation operation;
+        try {
+            operation = operationDao.append(accountId, balance -> {
+                Operation created = factory.create(balance);
+                position[0] = position(accountId);
+                sequence[0] = reserve(1);
+                return created;
+            });
+        } catch (RuntimeException e) {
+            cancel(sequence[0], 1);
+            throw e;
+        }
+        publish(sequence[0], List.of(operation));
+        recorded(operation, position[0]);
+        return operation;
+    }
+
+    private List<Operation> appendAll(UUID accountId, LongFunction<List<Operation>> factory) {
+        if(feed == null && statementCache == null) return operationDao.appendAll(accountId, factory);
+
+        long[] sequence = {-1};
+        long[] position = {-1};
+        int[] count = {0};
+        List<Operation> operations;
+        try {
+            operations = operationDao.appendAll(accountId, balance -> {
+                List<Operation> created = factory.apply(balance);
+                count[0] = created.size();
+                position[0] = position(accountId);
+                sequence[0] = reserve(count[0]);
+                return created;
+            });
+        } catch (RuntimeException e) {
+            cancel(sequence[0], count[0]);
+            throw e;
+        }
+        publish(sequence[0], operations);
+        for (int i = 0; i < operations.size(); i++) {
+            recorded(operations.get(i), position[0] + i);
+        }
+        return operations;
+    }
+
+    /**
+     * Position of the next operation of the account, read while the account is held; only the statement cache needs it.
+     */
+    private long position(UUID accountId) {
+        return statementCache == null ? -1 : operationDao.getAccountVersion(accountId);
+    }
+
+    private long reserve(int count) {
+        return feed == null ? -1 : feed.reserve(count);
+    }
+
+    private void publish(long firstSequence, List<Operation> operations) {
+        if(feed != null && firstSequence >= 0) feed.publish(firstSequence, operations);
+    }
+
+    private void cancel(long firstSequence, int count) {
+        if(feed != null && firstSequence >= 0) feed.cancel(firstSequence, count);
+    }
+
+    private void recorded(Operation operation, long position) {
+        if(statementCache != null) statementCache.record(operation, position);
     }
 
 }
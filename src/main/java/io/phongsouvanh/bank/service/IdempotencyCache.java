@@ -0,0 +1,160 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the operation applied for each idempotency key, so that a retried request returns it instead of being applied again.
+ * A request replayed while the original is still running waits for its outcome. Failed requests are forgotten and may be retried.
+ * <p>
+ * Entries are kept in insertion order, which is also their expiry order, and the oldest are evicted once the cache holds
+ * {@code maximumSize} entries or once they are older than {@code timeToLive}. Eviction happens on insertion, there is no cleaner thread.
+ */
+public class IdempotencyCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(24);
+
+    /**
+     * Rough footprint of an entry without its key: the entry and its future, the operation, the map and queue nodes.
+     */
+    static final long ENTRY_BYTES = 320;
+
+    @FunctionalInterface
+    public interface Call {
+        Operation apply() throws OutOfBalanceException;
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong queuedKeyBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final int maximumSize;
+    private final long timeToLiveMillis;
+    private final Clock clock;
+
+    public IdempotencyCache() {
+        this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE, Clock.systemUTC());
+    }
+
+    public IdempotencyCache(int maximumSize, Duration timeToLive, Clock clock) {
+        if(maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive");
+        if(timeToLive.isNegative() || timeToLive.isZero()) throw new IllegalArgumentException("timeToLive must be positive");
+        this.maximumSize = maximumSize;
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Applies {@code call} the first time {@code key} is seen and returns its operation, or returns the operation of the first call
+     * for a replayed key.
+     *
+     * @throws IllegalArgumentException if the key was already used for a different account, operation type or amount
+     */
+    public Operation getOrApply(String key, UUID accountId, OperationType type, Amount amount, Call call) throws OutOfBalanceException {
+        long now = clock.millis();
+        Entry entry = new Entry(key, accountId, type, amount.getMinorUnits(), now + timeToLiveMillis);
+        Entry existing;
+        while ((existing = entries.putIfAbsent(key, entry)) != null) {
+            if(!existing.isExpired(now)) {
+                existing.checkSameRequest(accountId, type, amount.getMinorUnits());
+                hits.increment();
+                return existing.await();
+            }
+            if(entries.remove(key, existing)) expirations.increment();
+        }
+
+        misses.increment();
+        insertionOrder.offer(entry);
+        queued.incrementAndGet();
+        queuedKeyBytes.addAndGet(key.length());
+        evict(now);
+
+        try {
+            Operation operation = call.apply();
+            entry.result.complete(operation);
+            return operation;
+        } catch (OutOfBalanceException | RuntimeException e) {
+            entries.remove(key, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public IdempotencyCacheStats stats() {
+        return new IdempotencyCacheStats(
+                hits.sum(), misses.sum(), expirations.sum(), evictions.sum(), entries.size(),
+                queued.get() * ENTRY_BYTES + queuedKeyBytes.get()
+        );
+    }
+
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            boolean expired = oldest.isExpired(now);
+            if(!expired && queued.get() <= maximumSize) return;
+            if(!insertionOrder.remove(oldest)) continue;
+
+            queued.decrementAndGet();
+            queuedKeyBytes.addAndGet(-oldest.key.length());
+            if(entries.remove(oldest.key, oldest)) {
+                (expired ? expirations : evictions).increment();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final UUID accountId;
+        private final OperationType type;
+        private final long minorUnits;
+        private final long expiresAtMillis;
+        private final CompletableFuture<Operation> result = new CompletableFuture<>();
+
+        private Entry(String key, UUID accountId, OperationType type, long minorUnits, long expiresAtMillis) {
+            this.key = key;
+            this.accountId = accountId;
+            this.type = type;
+            this.minorUnits = minorUnits;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+
+        private void checkSameRequest(UUID accountId, OperationType type, long minorUnits) {
+            if(!this.accountId.equals(accountId) || this.type != type || this.minorUnits != minorUnits) {
+                throw new IllegalArgumentException("Idempotency key " + key + " was already used for another request");
+            }
+        }
+
+        private Operation await() throws OutOfBalanceException {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if(e.getCause() instanceof OutOfBalanceException outOfBalance) throw outOfBalance;
+                if(e.getCause() instanceof RuntimeException runtime) throw runtime;
+                throw e;
+            }
+        }
+    }
+}
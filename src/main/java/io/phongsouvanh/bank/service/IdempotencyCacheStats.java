@@ -0,0 +1,12 @@
+package io.phongsouvanh.bank.service;
+
+/**
+ * @param estimatedBytes approximate heap held by the cache, entries waiting for eviction included
+ */
+public record IdempotencyCacheStats(long hits, long misses, long expirations, long evictions, int size, long estimatedBytes) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,83 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.operations.Transfer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Adds idempotency keys to deposits and withdrawals: a request retried with the same key returns the operation of the first one
+ * instead of being applied twice. Calls without a key go straight to the delegate.
+ */
+public class IdempotentOperationService implements OperationService {
+
+    private final OperationService delegate;
+    private final IdempotencyCache cache;
+
+    public IdempotentOperationService(OperationService delegate) {
+        this(delegate, new IdempotencyCache());
+    }
+
+    public IdempotentOperationService(OperationService delegate, IdempotencyCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public Operation deposit(UUID accountId, Amount amount, String idempotencyKey) {
+        if(idempotencyKey == null) return delegate.deposit(accountId, amount);
+        try {
+            return cache.getOrApply(idempotencyKey, accountId, OperationType.DEPOSIT, amount, () -> delegate.deposit(accountId, amount));
+        } catch (OutOfBalanceException e) {
+            throw new IllegalStateException("A deposit cannot be out of balance", e);
+        }
+    }
+
+    public Operation withdraw(UUID accountId, Amount amount, String idempotencyKey) throws OutOfBalanceException {
+        if(idempotencyKey == null) return delegate.withdraw(accountId, amount);
+        return cache.getOrApply(idempotencyKey, accountId, OperationType.WITHDRAWAL, amount, () -> delegate.withdraw(accountId, amount));
+    }
+
+    public IdempotencyCacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public Operation deposit(UUID accountId, Amount amount) {
+        return delegate.deposit(accountId, amount);
+    }
+
+    @Override
+    public Operation withdraw(UUID accountId, Amount amount) throws OutOfBalanceException {
+        return delegate.withdraw(accountId, amount);
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId) {
+        delegate.printAccountStatement(accountId);
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, LocalDate from, LocalDate to) {
+        delegate.printAccountStatement(accountId, from, to);
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchItem> items) {
+        return delegate.applyBatch(items);
+    }
+
+    @Override
+    public Transfer transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) throws OutOfBalanceException {
+        return delegate.transfer(debitedAccountId, creditedAccountId, amount);
+    }
+
+    @Override
+    public List<TransferResult> applyTransfers(List<TransferItem> items) {
+        return delegate.applyTransfers(items);
+    }
+}
@@ -0,0 +1,110 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.metrics.OperationMetrics;
+import io.phongsouvanh.bank.metrics.OperationMetrics.Timer;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.Transfer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Records the latency of every call to the delegate, failed calls included, and counts rejected withdrawals.
+ */
+public class InstrumentedOperationService implements OperationService {
+
+    private final OperationService delegate;
+    private final OperationMetrics metrics;
+
+    public InstrumentedOperationService(OperationService delegate, OperationMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Operation deposit(UUID accountId, Amount amount) {
+        long start = System.nanoTime();
+        try {
+            return delegate.deposit(accountId, amount);
+        } finally {
+            metrics.recordSince(Timer.DEPOSIT, start);
+        }
+    }
+
+    @Override
+    public Operation withdraw(UUID accountId, Amount amount) throws OutOfBalanceException {
+        long start = System.nanoTime();
+        try {
+            return delegate.withdraw(accountId, amount);
+        } catch (OutOfBalanceException e) {
+            metrics.countOutOfBalanceRejection();
+            throw e;
+        } finally {
+            metrics.recordSince(Timer.WITHDRAW, start);
+        }
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId) {
+        long start = System.nanoTime();
+        try {
+            delegate.printAccountStatement(accountId);
+        } finally {
+            metrics.recordSince(Timer.STATEMENT, start);
+        }
+    }
+
+    @Override
+    public void printAccountStatement(UUID accountId, LocalDate from, LocalDate to) {
+        long start = System.nanoTime();
+        try {
+            delegate.printAccountStatement(accountId, from, to);
+        } finally {
+            metrics.recordSince(Timer.STATEMENT, start);
+        }
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchItem> items) {
+        long start = System.nanoTime();
+        try {
+            List<BatchResult> results = delegate.applyBatch(items);
+            for (int i = 0; i < results.size(); i++) {
+                if(results.get(i).error() instanceof OutOfBalanceException) metrics.countOutOfBalanceRejection();
+            }
+            return results;
+        } finally {
+            metrics.recordSince(Timer.BATCH, start);
+        }
+    }
+
+    @Override
+    public Transfer transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) throws OutOfBalanceException {
+        long start = System.nanoTime();
+        try {
+            return delegate.transfer(debitedAccountId, creditedAccountId, amount);
+        } catch (OutOfBalanceException e) {
+            metrics.countOutOfBalanceRejection();
+            throw e;
+        } finally {
+            metrics.recordSince(Timer.TRANSFER, start);
+        }
+    }
+
+    @Override
+    public List<TransferResult> applyTransfers(List<TransferItem> items) {
+        long start = System.nanoTime();
+        try {
+            List<TransferResult> results = delegate.applyTransfers(items);
+            for (int i = 0; i < results.size(); i++) {
+                if(results.get(i).error() instanceof OutOfBalanceException) metrics.countOutOfBalanceRejection();
+            }
+            return results;
+        } finally {
+            metrics.recordSince(Timer.BATCH, start);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.exceptions.NegativeAmountException;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.operations.OperationType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Posts the interest and the fee of a month to every account, during the following month.
+ * <p>
+ * Accounts are split into partitions of at most {@code partitionSize} processed in parallel on {@code pool}. Interest is
+ * the positive balance at the end of the month times {@code monthlyInterestRate}, rounded half-even to the cent. It is
+ * saved with the fee in one {@link OperationDao#appendAll} batch on top of the current balance, so that no other write
+ * interleaves and either both are saved or neither is; the fee is capped at that balance so that it never overdraws.
+ * Operations are saved through the {@link DefaultOperationService}, so they reach its feed and statement cache.
+ * <p>
+ * An account already holding an {@link OperationType#INTEREST} or {@link OperationType#FEE} operation dated in the following
+ * month is skipped, so that an interrupted run of a period can be run again. The check is made by the factory of the batch,
+ * while the account is held, so that overlapping runs of the same period still post each account once.
+ */
+public class MonthEndPostingJob {
+
+    private final DefaultOperationService service;
+    private final OperationDao operationDao;
+    private final Clock clock;
+    private final BigDecimal monthlyInterestRate;
+    private final long monthlyFeeMinorUnits;
+    private final int partitionSize;
+    private final ForkJoinPool pool;
+
+    public MonthEndPostingJob(DefaultOperationService service, BigDecimal monthlyInterestRate, Amount monthlyFee) {
+        this(service, monthlyInterestRate, monthlyFee, 1024, ForkJoinPool.commonPool());
+    }
+
+    public MonthEndPostingJob(DefaultOperationService service, BigDecimal monthlyInterestRate, Amount monthlyFee,
+                              int partitionSize, ForkJoinPool pool) {
+        if(monthlyInterestRate.signum() < 0) throw new IllegalArgumentException("monthlyInterestRate must not be negative: " + monthlyInterestRate);
+        if(partitionSize <= 0) throw new IllegalArgumentException("partitionSize must be positive: " + partitionSize);
+        this.service = service;
+        this.operationDao = service.operationDao();
+        this.clock = service.clock();
+        this.monthlyInterestRate = monthlyInterestRate;
+        this.monthlyFeeMinorUnits = monthlyFee.getMinorUnits();
+        this.partitionSize = partitionSize;
+        this.pool = pool;
+    }
+
+    public MonthEndPostingReport run(YearMonth period) {
+        YearMonth postingMonth = YearMonth.now(clock);
+        if(!postingMonth.equals(period.plusMonths(1))) {
+            throw new IllegalArgumentException("Period " + period + " can only be posted during " + period.plusMonths(1));
+        }
+
+        List<UUID> accountIds = List.copyOf(operationDao.getAccountIds());
+        Run run = new Run(postingMonth.atDay(1).atStartOfDay());
+        long start = System.nanoTime();
+        pool.invoke(new Partition(run, accountIds, 0, accountIds.size()));
+        return new MonthEndPostingReport(period, accountIds.size(), run.posted.get(), run.skipped.get(), Map.copyOf(run.failures),
+                run.interestMinorUnits.get(), run.feesMinorUnits.get(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private void post(Run run, UUID accountId) {
+        boolean[] skipped = {false};
+        long[] totals = new long[2];
+        List<Operation> operations = service.post(accountId, balance -> {
+            if(alreadyPosted(accountId, run.postingMonthStart)) {
+                skipped[0] = true;
+                return List.of();
+            }
+
+            long interest = interest(MinorUnits.of(operationDao.getBalanceBefore(accountId, run.postingMonthStart)));
+            LocalDateTime date = service.now();
+            List<Operation> posted = new ArrayList<>(2);
+            long runningBalance = balance;
+            if(interest > 0) {
+                runningBalance = MinorUnits.add(runningBalance, interest);
+                posted.add(operation(accountId, OperationType.INTEREST, interest, date, runningBalance));
+            }
+            long fee = Math.min(monthlyFeeMinorUnits, Math.max(0, runningBalance));
+            if(fee > 0) {
+                runningBalance = MinorUnits.subtract(runningBalance, fee);
+                posted.add(operation(accountId, OperationType.FEE, fee, date, runningBalance));
+            }
+            totals[0] = interest;
+            totals[1] = fee;
+            return posted;
+        });
+        if(skipped[0]) {
+            run.skipped.incrementAndGet();
+        } else if(!operations.isEmpty()) {
+            run.posted.incrementAndGet();
+            run.interestMinorUnits.addAndGet(totals[0]);
+            run.feesMinorUnits.addAndGet(totals[1]);
+        }
+    }
+
+    private long interest(long balanceMinorUnits) {
+        if(balanceMinorUnits <= 0) return 0;
+        return BigDecimal.valueOf(balanceMinorUnits).multiply(monthlyInterestRate).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    private boolean alreadyPosted(UUID accountId, LocalDateTime postingMonthStart) {
+        try (Stream<Operation> newestFirst = operationDao.streamAccountOperationsById(accountId)) {
+            return newestFirst
+                    .takeWhile(operation -> !operation.date().isBefore(postingMonthStart))
+                    .anyMatch(operation -> operation.type() == OperationType.INTEREST || operation.type() == OperationType.FEE);
+        }
+    }
+
+    private static Operation operation(UUID accountId, OperationType type, long amountMinorUnits, LocalDateTime date, long balance) {
+        try {
+            return new Operation(accountId, type, Amount.ofMinorUnits(amountMinorUnits), date, MinorUnits.toBigDecimal(balance));
+        } catch (NegativeAmountException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Run(LocalDateTime postingMonthStart, AtomicLong posted, AtomicLong skipped,
+                       Map<UUID, Exception> failures, AtomicLong interestMinorUnits, AtomicLong feesMinorUnits) {
+
+        private Run(LocalDateTime postingMonthStart) {
+            this(postingMonthStart, new AtomicLong(), new AtomicLong(), new ConcurrentHashMap<>(), new AtomicLong(), new AtomicLong());
+        }
+    }
+
+    /**
+     * Accounts {@code [from, to)}, split in halves down to {@code partitionSize}. A failed account is reported without
+     * stopping the others.
+     */
+    private class Partition extends RecursiveAction {
+
+        private final Run run;
+        private final List<UUID> accountIds;
+        private final int from;
+        private final int to;
+
+        private Partition(Run run, List<UUID> accountIds, int from, int to) {
+            this.run = run;
+            this.accountIds = accountIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > partitionSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Partition(run, accountIds, from, middle), new Partition(run, accountIds, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                UUID accountId = accountIds.get(i);
+                try {
+                    post(run, accountId);
+                } catch (RuntimeException e) {
+                    run.failures.put(accountId, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.phongsouvanh.bank.service;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of a {@link MonthEndPostingJob} run: the accounts processed, the ones posted to, the ones skipped as already posted
+ * by an earlier run, the ones that failed with their cause, and the totals posted in minor units.
+ */
+public record MonthEndPostingReport(YearMonth period, int accounts, long posted, long skipped, Map<UUID, Exception> failures,
+                                    long interestMinorUnits, long feesMinorUnits, Duration duration) {
+
+    public double accountsPerSecond() {
+        return duration.isZero() ? 0 : accounts * 1e9 / duration.toNanos();
+    }
+}
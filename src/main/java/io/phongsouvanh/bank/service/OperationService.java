@@ -3,11 +3,38 @@ package io.phongsouvanh.bank.service;
 import io.phongsouvanh.bank.account.Amount;
 import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
 import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.Transfer;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 public interface OperationService {
     Operation deposit(UUID accountId, Amount amount);
     Operation withdraw(UUID accountId, Amount amount) throws OutOfBalanceException;
     void printAccountStatement(UUID accountId);
+
+    /**
+     * Prints the operations dated from {@code from} to {@code to}, both included, between the opening and closing balances
+     * of the period. The cost depends on the number of operations in the period, not on the length of the history.
+     */
+    void printAccountStatement(UUID accountId, LocalDate from, LocalDate to);
+
+    /**
+     * Applies the items grouped by account, in their order within each account, persisting each account group at once.
+     * A rejected item does not prevent the others from being applied, nor does an account group the DAO fails to save,
+     * whose items are all reported failed with the DAO's exception.
+     */
+    List<BatchResult> applyBatch(List<BatchItem> items);
+
+    /**
+     * Moves {@code amount} from one account to another. Both legs are saved atomically, or neither is if the debited
+     * account cannot afford it.
+     */
+    Transfer transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) throws OutOfBalanceException;
+
+    /**
+     * Applies the transfers in order, each one atomically. A rejected transfer does not prevent the others from being applied.
+     */
+    List<TransferResult> applyTransfers(List<TransferItem> items);
 }
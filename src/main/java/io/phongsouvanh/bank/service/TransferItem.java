@@ -0,0 +1,6 @@
+package io.phongsouvanh.bank.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record TransferItem(UUID debitedAccountId, UUID creditedAccountId, BigDecimal amount) { }
@@ -0,0 +1,22 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.operations.Transfer;
+
+/**
+ * Outcome of one {@link TransferItem}: either both saved legs or the exception that rejected the transfer,
+ * in which case neither account was touched.
+ */
+public record TransferResult(TransferItem item, Transfer transfer, Exception error) {
+
+    public static TransferResult success(TransferItem item, Transfer transfer) {
+        return new TransferResult(item, transfer, null);
+    }
+
+    public static TransferResult failure(TransferItem item, Exception error) {
+        return new TransferResult(item, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,237 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.Transfer;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a synchronous {@link OperationService} on virtual threads.
+ * Each account with pending calls gets a lane, drained in order by a single virtual thread that exits, removing the lane,
+ * once it is empty. A call on several accounts is queued in the lane of each, and runs once all of them reach it.
+ * At most {@code maxPending} calls can be queued or running at once: beyond that, callers block until a call completes,
+ * which pushes back on the front end instead of letting queues grow without bound.
+ */
+public class VirtualThreadOperationService implements AsyncOperationService, AutoCloseable {
+
+    private final OperationService delegate;
+    private final ExecutorService executor;
+    private final Semaphore capacity;
+    private final ConcurrentHashMap<UUID, AccountLane> lanes = new ConcurrentHashMap<>();
+    private final Object jointLock = new Object();
+    private volatile boolean closed;
+
+    public VirtualThreadOperationService(OperationService delegate, int maxPending) {
+        this(delegate, maxPending, Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("operation-", 0).factory()));
+    }
+
+    VirtualThreadOperationService(OperationService delegate, int maxPending, ExecutorService executor) {
+        if(maxPending <= 0) throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+        this.delegate = delegate;
+        this.executor = executor;
+        this.capacity = new Semaphore(maxPending);
+    }
+
+    @Override
+    public CompletableFuture<Operation> deposit(UUID accountId, Amount amount) {
+        return submit(accountId, () -> delegate.deposit(accountId, amount));
+    }
+
+    @Override
+    public CompletableFuture<Operation> withdraw(UUID accountId, Amount amount) {
+        return submit(accountId, () -> delegate.withdraw(accountId, amount));
+    }
+
+    @Override
+    public CompletableFuture<Void> printAccountStatement(UUID accountId) {
+        return submit(accountId, () -> {
+            delegate.printAccountStatement(accountId);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> printAccountStatement(UUID accountId, LocalDate from, LocalDate to) {
+        return submit(accountId, () -> {
+            delegate.printAccountStatement(accountId, from, to);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<BatchResult>> applyBatch(List<BatchItem> items) {
+        Set<UUID> accountIds = new HashSet<>();
+        for (BatchItem item : items) {
+            accountIds.add(item.accountId());
+        }
+        return submit(accountIds, () -> delegate.applyBatch(items));
+    }
+
+    @Override
+    public CompletableFuture<Transfer> transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) {
+        Set<UUID> accountIds = new HashSet<>(List.of(debitedAccountId, creditedAccountId));
+        return submit(accountIds, () -> delegate.transfer(debitedAccountId, creditedAccountId, amount));
+    }
+
+    @Override
+    public CompletableFuture<List<TransferResult>> applyTransfers(List<TransferItem> items) {
+        Set<UUID> accountIds = new HashSet<>();
+        for (TransferItem item : items) {
+            accountIds.add(item.debitedAccountId());
+            accountIds.add(item.creditedAccountId());
+        }
+        return submit(accountIds, () -> delegate.applyTransfers(items));
+    }
+
+    /**
+     * Number of calls that can still be submitted without blocking.
+     */
+    public int availableCapacity() {
+        return capacity.availablePermits();
+    }
+
+    /**
+     * Rejects new calls and waits for the submitted ones to complete.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.close();
+    }
+
+    private <T> CompletableFuture<T> submit(UUID accountId, Callable<T> call) {
+        return submit(Set.of(accountId), call);
+    }
+
+    private <T> CompletableFuture<T> submit(Set<UUID> accountIds, Callable<T> call) {
+        if(closed) return CompletableFuture.failedFuture(new RejectedExecutionException("The service is closed"));
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                future.complete(call.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                capacity.release();
+            }
+        };
+
+        Joint joint = accountIds.size() > 1 ? new Joint(task, accountIds.size()) : null;
+        try {
+            if(accountIds.isEmpty()) {
+                executor.execute(task);
+            } else if(joint == null) {
+                enqueue(accountIds.iterator().next(), task);
+            } else {
+                synchronized (jointLock) {
+                    for (UUID accountId : accountIds) {
+                        enqueue(accountId, joint);
+                    }
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            if(joint != null) joint.cancel();
+            capacity.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void enqueue(UUID accountId, Runnable task) {
+        lanes.compute(accountId, (id, lane) -> {
+            if(lane == null) {
+                AccountLane newLane = new AccountLane();
+                executor.execute(() -> drain(id, newLane));
+                lane = newLane;
+            }
+            lane.tasks.add(task);
+            return lane;
+        });
+    }
+
+    private void drain(UUID accountId, AccountLane lane) {
+        Runnable task;
+        while ((task = next(accountId, lane)) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Lanes are only read and written under the map's per-key lock, so an empty lane is removed atomically
+     * with respect to a concurrent submission, which then starts a new lane.
+     */
+    private Runnable next(UUID accountId, AccountLane lane) {
+        lanes.computeIfPresent(accountId, (id, current) -> {
+            lane.next = lane.tasks.poll();
+            return lane.next == null ? null : current;
+        });
+        Runnable next = lane.next;
+        lane.next = null;
+        return next;
+    }
+
+    private static final class AccountLane {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private Runnable next;
+    }
+
+    /**
+     * A call on several accounts, queued in the lane of each. It runs on the last lane to reach it, the others waiting until
+     * it completes so that no later call of their account overtakes it. Joints are queued under one lock, hence in the same
+     * order in every lane, so that two of them never wait for each other.
+     */
+    private static final class Joint implements Runnable {
+
+        private final Runnable task;
+        private final AtomicInteger remaining;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean cancelled;
+
+        private Joint(Runnable task, int lanes) {
+            this.task = task;
+            this.remaining = new AtomicInteger(lanes);
+        }
+
+        @Override
+        public void run() {
+            if(cancelled) return;
+            if(remaining.decrementAndGet() == 0) {
+                try {
+                    task.run();
+                } finally {
+                    done.countDown();
+                }
+                return;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if(interrupted) Thread.currentThread().interrupt();
+        }
+
+        /**
+         * Releases the lanes already holding the joint when it could not be queued in every one.
+         */
+        private void cancel() {
+            cancelled = true;
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.phongsouvanh.bank.statements;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Encodes statement lines in the {@link #charset()} of the target, UTF-8 by default, straight into reusable byte buffers,
+ * one encoding step per line, and hands the filled buffers to {@link #write(ByteBuffer[], int)} only when they are all
+ * full or the statement is over. Statements printed concurrently are serialized, so their lines never interleave.
+ * Whatever a failed statement left buffered is discarded, so it never leaks into the next one.
+ */
+abstract class BufferedStatementPrinter implements StatementPrinter {
+
+    private static final CharBuffer LINE_SEPARATOR = CharBuffer.wrap(System.lineSeparator());
+
+    private final ByteBuffer[] buffers;
+    private CharsetEncoder encoder = newEncoder(StandardCharsets.UTF_8);
+    private int current;
+
+    BufferedStatementPrinter(ByteBuffer[] buffers) {
+        this.buffers = buffers;
+    }
+
+    @Override
+    public void print(List<String> formattedStatement) {
+        print(formattedStatement.stream());
+    }
+
+    @Override
+    public synchronized void print(Stream<String> formattedStatement) {
+        Charset charset = charset();
+        if(!encoder.charset().equals(charset)) encoder = newEncoder(charset);
+        try {
+            formattedStatement.forEachOrdered(this::encodeLine);
+            drain();
+            endOfStatement();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            discard();
+        }
+    }
+
+    Charset charset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Writes the first {@code count} buffers, flipped for reading, and must leave them all fully consumed.
+     */
+    abstract void write(ByteBuffer[] buffers, int count) throws IOException;
+
+    void endOfStatement() throws IOException {
+    }
+
+    /**
+     * Writes whatever is still buffered.
+     */
+    synchronized void drain() throws IOException {
+        int count = buffers[current].position() > 0 ? current + 1 : current;
+        if(count == 0) return;
+        for (int i = 0; i < count; i++) {
+            buffers[i].flip();
+        }
+        write(buffers, count);
+        for (int i = 0; i < count; i++) {
+            buffers[i].clear();
+        }
+        current = 0;
+    }
+
+    private void discard() {
+        for (int i = 0; i <= current; i++) {
+            buffers[i].clear();
+        }
+        current = 0;
+        encoder.reset();
+    }
+
+    private static CharsetEncoder newEncoder(Charset charset) {
+        return charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    private void encodeLine(String line) {
+        try {
+            encode(CharBuffer.wrap(line));
+            encode(LINE_SEPARATOR.duplicate());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffers[current], true);
+            if(result.isUnderflow()) break;
+            if(!result.isOverflow()) result.throwException();
+            if(current + 1 < buffers.length) current++;
+            else drain();
+        }
+        encoder.reset();
+    }
+}
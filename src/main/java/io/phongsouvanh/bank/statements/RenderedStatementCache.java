@@ -0,0 +1,186 @@
+package io.phongsouvanh.bank.statements;
+
+import io.phongsouvanh.bank.operations.AccountSnapshot;
+import io.phongsouvanh.bank.operations.Operation;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Operation rows of account statements, formatted once and kept per account, so that printing a statement again only formats
+ * its header. The rows of an account are formatted from a snapshot of its history the first time its statement is printed, then
+ * {@link #record(Operation, long) recorded} one by one as new operations are saved.
+ * <p>
+ * Rows are kept with the {@link AccountSnapshot#version() version} they cover, and an operation is recorded with its
+ * position in the history of its account. One already covered, e.g. saved before the snapshot was loaded but recorded
+ * after, is ignored; one right after is appended. Otherwise, e.g. when two operations of the account are recorded out of
+ * order, the account is dropped and formatted again on its next statement. The writer recording operations must therefore
+ * be the only one of the accounts.
+ * <p>
+ * Accounts are evicted least recently printed first once the rows held take more than {@code maximumBytes}.
+ */
+public class RenderedStatementCache {
+
+    public static final long DEFAULT_MAXIMUM_BYTES = 64L << 20;
+
+    /**
+     * Rough footprint of a row without its characters, stored as UTF-16 for the euro sign: the string, its array and its slot.
+     */
+    static final long ROW_BYTES = 64;
+    static final long ENTRY_BYTES = 256;
+
+    private final StatementFormatter formatter;
+    private final long maximumBytes;
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long estimatedBytes;
+
+    public RenderedStatementCache(StatementFormatter formatter) {
+        this(formatter, DEFAULT_MAXIMUM_BYTES);
+    }
+
+    public RenderedStatementCache(StatementFormatter formatter, long maximumBytes) {
+        if(maximumBytes <= 0) throw new IllegalArgumentException("maximumBytes must be positive: " + maximumBytes);
+        this.formatter = formatter;
+        this.maximumBytes = maximumBytes;
+    }
+
+    /**
+     * Formats the statement of the account, formatting its rows from a snapshot of its history if they are not cached.
+     * The balance printed is the one after the last cached operation, so that it always matches the rows.
+     */
+    public Stream<String> format(UUID accountId, LocalDate date, Supplier<AccountSnapshot> snapshot) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(accountId);
+            if(entry == null) {
+                entry = new Entry(accountId);
+                entries.put(accountId, entry);
+                estimatedBytes += ENTRY_BYTES;
+            }
+        }
+
+        Rows rows;
+        synchronized (entry) {
+            if(!entry.loaded) load(entry, snapshot.get());
+            rows = entry.rows;
+        }
+        Stream<String> newestFirst = IntStream.range(0, rows.size).mapToObj(i -> rows.lines[rows.size - 1 - i]);
+        return formatter.formatRendered(accountId, date, rows.balance, newestFirst);
+    }
+
+    /**
+     * Appends the row of a newly saved operation to the cached statement of its account, if any.
+     *
+     * @param position number of operations saved on the account before this one
+     */
+    public void record(Operation operation, long position) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(operation.accountId());
+        }
+        if(entry == null) return;
+
+        synchronized (entry) {
+            if(!entry.loaded || entry.evicted) return;
+            long version = entry.rows.version;
+            if(position < version) return;
+            if(position > version) {
+                invalidate(entry);
+                return;
+            }
+            String line = formatter.formatOperation(operation);
+            entry.rows = entry.rows.append(line, operation);
+            grow(entry, rowBytes(line));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    private void load(Entry entry, AccountSnapshot snapshot) {
+        List<Operation> operations;
+        try (Stream<Operation> newestFirst = snapshot.operations()) {
+            operations = new ArrayList<>(newestFirst.toList());
+        }
+        Collections.reverse(operations);
+
+        String[] lines = new String[operations.size()];
+        long bytes = 0;
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = formatter.formatOperation(operations.get(i));
+            bytes += rowBytes(lines[i]);
+        }
+        entry.rows = new Rows(lines, lines.length, snapshot.balance(), snapshot.version());
+        entry.loaded = true;
+        grow(entry, bytes);
+    }
+
+    private void grow(Entry entry, long bytes) {
+        synchronized (this) {
+            if(entry.evicted) return;
+            entry.bytes += bytes;
+            estimatedBytes += bytes;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (estimatedBytes > maximumBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                evicted.evicted = true;
+                estimatedBytes -= ENTRY_BYTES + evicted.bytes;
+            }
+        }
+    }
+
+    private void invalidate(Entry entry) {
+        synchronized (this) {
+            if(entry.evicted) return;
+            entries.remove(entry.accountId, entry);
+            entry.evicted = true;
+            estimatedBytes -= ENTRY_BYTES + entry.bytes;
+        }
+    }
+
+    private static long rowBytes(String line) {
+        return ROW_BYTES + 2L * line.length();
+    }
+
+    /**
+     * Rows in chronological order, published as a whole so that readers never lock: an append writes past the size
+     * seen by existing snapshots, and only copies the array to grow it. {@code version} may exceed {@code size} when the
+     * snapshot loaded did not yield the oldest operations, e.g. archived ones.
+     */
+    private record Rows(String[] lines, int size, BigDecimal balance, long version) {
+
+        private static final Rows EMPTY = new Rows(new String[0], 0, BigDecimal.ZERO, 0);
+
+        private Rows append(String line, Operation operation) {
+            String[] target = size < lines.length ? lines : Arrays.copyOf(lines, Math.max(16, lines.length * 2));
+            target[size] = line;
+            return new Rows(target, size + 1, operation.balance(), version + 1);
+        }
+    }
+
+    /**
+     * Rows guarded by the entry itself, {@code bytes} and {@code evicted} by the cache; the latter is also checked under the entry.
+     */
+    private static final class Entry {
+
+        private final UUID accountId;
+        private volatile Rows rows = Rows.EMPTY;
+        private boolean loaded;
+        private long bytes;
+        private volatile boolean evicted;
+
+        private Entry(UUID accountId) {
+            this.accountId = accountId;
+        }
+    }
+}
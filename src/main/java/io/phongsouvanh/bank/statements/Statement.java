@@ -8,30 +8,44 @@ import java.util.*;
 
 public class Statement {
 
+    private static final Comparator<Operation> BY_DATE = Comparator.comparing(Operation::date);
+
     private final UUID accountId;
-    private BigDecimal balance;
     private final LocalDate date;
-    private List<Operation> operations = new ArrayList<>();
+    private final List<Operation> chronologicalOperations;
+    private final List<Operation> operations;
 
     public Statement(UUID accountId, LocalDate date) {
-        this.accountId = accountId;
-        this.date = date;
+        this(accountId, date, new ArrayList<>());
     }
 
     public Statement(UUID accountId, LocalDate date, List<Operation> operations) {
-        this(accountId, date);
-        this.operations = operations;
-        updateAccountDetails();
-    }
-
-    private void updateAccountDetails() {
-        operations.sort(Comparator.comparing(Operation::date).reversed());
-        balance = operations.size() > 0 ? operations.get(0).balance() : BigDecimal.ZERO;
+        this.accountId = accountId;
+        this.date = date;
+        this.chronologicalOperations = new ArrayList<>(operations);
+        this.chronologicalOperations.sort(BY_DATE.reversed());
+        Collections.reverse(this.chronologicalOperations);
+        this.operations = new NewestFirst(chronologicalOperations);
     }
 
+    /**
+     * Inserts the operation at its place in time: O(1) for the usual most recent operation,
+     * O(log n) search plus a shift otherwise. Among operations of the same date, the last added is listed last.
+     */
     public void add(Operation operation) {
-        operations.add(operation);
-        updateAccountDetails();
+        int high = chronologicalOperations.size();
+        if(high == 0 || BY_DATE.compare(chronologicalOperations.get(high - 1), operation) < 0) {
+            chronologicalOperations.add(operation);
+            return;
+        }
+
+        int low = 0;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if(BY_DATE.compare(chronologicalOperations.get(middle), operation) < 0) low = middle + 1;
+            else high = middle;
+        }
+        chronologicalOperations.add(low, operation);
     }
 
     public LocalDate getDate() {
@@ -43,10 +57,32 @@ public class Statement {
     }
 
     public BigDecimal getBalance() {
-        return balance;
+        return chronologicalOperations.isEmpty() ? BigDecimal.ZERO : operations.get(0).balance();
     }
 
+    /**
+     * Read-only view of the operations, most recent first.
+     */
     public List<Operation> getOperations() {
         return operations;
     }
+
+    private static final class NewestFirst extends AbstractList<Operation> implements RandomAccess {
+
+        private final List<Operation> chronological;
+
+        private NewestFirst(List<Operation> chronological) {
+            this.chronological = chronological;
+        }
+
+        @Override
+        public Operation get(int index) {
+            return chronological.get(chronological.size() - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return chronological.size();
+        }
+    }
 }
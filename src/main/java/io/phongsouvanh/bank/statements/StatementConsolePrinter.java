@@ -1,11 +1,31 @@
 package io.phongsouvanh.bank.statements;
 
-import java.util.List;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Prints statements to {@link System#out}, as found when printing, in its charset, with one write per 64 KiB of output
+ * and one flush per statement instead of one synchronized, flushed {@code println} per line.
+ */
+public class StatementConsolePrinter extends BufferedStatementPrinter {
+
+    public StatementConsolePrinter() {
+        super(new ByteBuffer[]{ByteBuffer.allocate(StatementStreamPrinter.BUFFER_SIZE)});
+    }
+
+    @Override
+    Charset charset() {
+        return System.out.charset();
+    }
 
-public class StatementConsolePrinter implements StatementPrinter {
     @Override
-    public void print(List<String> formattedStatement) {
-        formattedStatement.forEach(System.out::println);
+    void write(ByteBuffer[] buffers, int count) throws IOException {
+        StatementStreamPrinter.writeTo(System.out, buffers, count);
     }
 
+    @Override
+    void endOfStatement() {
+        System.out.flush();
+    }
 }
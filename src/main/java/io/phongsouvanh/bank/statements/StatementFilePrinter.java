@@ -0,0 +1,84 @@
+package io.phongsouvanh.bank.statements;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Writes statements to a file through a {@link FileChannel}, from direct buffers sent with one gathering write,
+ * so the bytes are copied once, from the encoder to the kernel. The buffers are pooled between printers,
+ * which matters when one is opened per statement, and only once they were written out. The file is truncated
+ * when the printer is opened.
+ */
+public class StatementFilePrinter extends BufferedStatementPrinter implements Closeable {
+
+    static final int BUFFER_SIZE = 16 * 1024;
+    static final int BUFFER_COUNT = 4;
+
+    static final Queue<ByteBuffer[]> POOL = new ConcurrentLinkedQueue<>();
+
+    private final FileChannel channel;
+    private final ByteBuffer[] buffers;
+    private long bytesWritten;
+    private boolean closed;
+
+    public StatementFilePrinter(Path file) throws IOException {
+        this(FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING), borrowBuffers());
+    }
+
+    private StatementFilePrinter(FileChannel channel, ByteBuffer[] buffers) {
+        super(buffers);
+        this.channel = channel;
+        this.buffers = buffers;
+    }
+
+    public synchronized long bytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public synchronized void print(Stream<String> formattedStatement) {
+        if(closed) throw new IllegalStateException("The printer is closed");
+        super.print(formattedStatement);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) return;
+        closed = true;
+        boolean drained = false;
+        try {
+            drain();
+            drained = true;
+        } finally {
+            channel.close();
+            if(drained) POOL.offer(buffers);
+        }
+    }
+
+    @Override
+    void write(ByteBuffer[] buffers, int count) throws IOException {
+        ByteBuffer last = buffers[count - 1];
+        while (last.hasRemaining()) {
+            bytesWritten += channel.write(buffers, 0, count);
+        }
+    }
+
+    private static ByteBuffer[] borrowBuffers() {
+        ByteBuffer[] buffers = POOL.poll();
+        if(buffers != null) return buffers;
+
+        buffers = new ByteBuffer[BUFFER_COUNT];
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        return buffers;
+    }
+}
@@ -1,7 +1,34 @@
 package io.phongsouvanh.bank.statements;
 
+import io.phongsouvanh.bank.operations.Operation;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface StatementFormatter {
     List<String> format(Statement statement);
+
+    /**
+     * Formats a statement line by line as the operations are consumed, so that memory does not depend on
+     * the length of the history. Closing the returned stream closes {@code operations}.
+     */
+    Stream<String> format(UUID accountId, LocalDate date, BigDecimal balance, Stream<Operation> operations);
+
+    /**
+     * Formats the statement of a period, with its opening and closing balances, as the operations are consumed.
+     */
+    Stream<String> format(UUID accountId, LocalDate date, StatementPeriod period, Stream<Operation> operations);
+
+    /**
+     * Formats the row of one operation, as it appears in a statement.
+     */
+    String formatOperation(Operation operation);
+
+    /**
+     * Formats a statement around rows already formatted by {@link #formatOperation(Operation)}, most recent first.
+     */
+    Stream<String> formatRendered(UUID accountId, LocalDate date, BigDecimal balance, Stream<String> operationLines);
 }
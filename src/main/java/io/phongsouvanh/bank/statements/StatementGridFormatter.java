@@ -1,86 +1,200 @@
 package io.phongsouvanh.bank.statements;
 
+import io.phongsouvanh.bank.account.MinorUnits;
 import io.phongsouvanh.bank.operations.Operation;
-import io.phongsouvanh.bank.operations.OperationType;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Renders statements as a fixed-width grid.
+ * Rows are written straight into one {@link StringBuilder} reused for the whole statement,
+ * constant lines are built once, and amounts are printed from their minor units.
+ */
 public class StatementGridFormatter implements StatementFormatter {
 
     static DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final static int gridSize = 102;
+    private final static int maxMoneyDigits = 16;
+    private final static char currency = '€';
+
+    private final static String separator = "+" + "-".repeat(gridSize) + "+";
+    private final static String emptyLine = "|" + " ".repeat(gridSize) + "|";
+    private final static String accountDetailsTitle = centeredLine("ACCOUNT DETAILS");
+    private final static String operationHeader = operationLine("TYPE", "DATE", "AMOUNT", "BALANCE");
+    private final static String noOperationLine = pad(new StringBuilder(gridSize + 2).append("|  "), "No operations were found for this account", 100)
+            .append('|')
+            .toString();
 
     @Override
     public List<String> format(Statement statement) {
-        List<String> formattedStatement = new ArrayList<>();
-        formattedStatement.addAll(formatStatementHeader(statement.getDate()));
-        formattedStatement.addAll(formatAccountDetails(statement.getAccountId(), statement.getBalance()));
-        formattedStatement.addAll(formatOperationHeader());
-
-        if(statement.getOperations().isEmpty()) {
-            formattedStatement.add(String.format("|  %-100s|", "No operations were found for this account"));
-        } else {
-            for (Operation operation : statement.getOperations()) {
-                formattedStatement.add(formatOperationLine(operation));
-            }
-        }
+        return format(statement.getAccountId(), statement.getDate(), statement.getBalance(), statement.getOperations().stream()).toList();
+    }
+
+    @Override
+    public Stream<String> format(UUID accountId, LocalDate date, BigDecimal balance, Stream<Operation> operations) {
+        StringBuilder line = new StringBuilder(gridSize + 2);
+        List<String> header = new ArrayList<>();
+        header.addAll(formatStatementHeader(date));
+        header.addAll(formatAccountDetails(line, accountId, balance));
+        header.addAll(formatOperationHeader());
+        return formatOperations(line, header, operations);
+    }
+
+    @Override
+    public Stream<String> format(UUID accountId, LocalDate date, StatementPeriod period, Stream<Operation> operations) {
+        StringBuilder line = new StringBuilder(gridSize + 2);
+        List<String> header = new ArrayList<>();
+        header.addAll(formatStatementHeader(date));
+        header.addAll(formatPeriodDetails(line, accountId, period));
+        header.addAll(formatOperationHeader());
+        return formatOperations(line, header, operations);
+    }
+
+    @Override
+    public String formatOperation(Operation operation) {
+        return formatOperationLine(new StringBuilder(gridSize + 2), operation);
+    }
+
+    @Override
+    public Stream<String> formatRendered(UUID accountId, LocalDate date, BigDecimal balance, Stream<String> operationLines) {
+        StringBuilder line = new StringBuilder(gridSize + 2);
+        List<String> header = new ArrayList<>();
+        header.addAll(formatStatementHeader(date));
+        header.addAll(formatAccountDetails(line, accountId, balance));
+        header.addAll(formatOperationHeader());
+        return frame(header, operationLines);
+    }
+
+    private Stream<String> formatOperations(StringBuilder line, List<String> header, Stream<Operation> operations) {
+        return frame(header, operations.map(operation -> formatOperationLine(line, operation)));
+    }
 
-        formattedStatement.add(formatSeparator());
-        return formattedStatement;
+    private Stream<String> frame(List<String> header, Stream<String> operationLines) {
+        Iterator<String> iterator = operationLines.iterator();
+        Stream<String> lines = iterator.hasNext()
+                ? StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                : Stream.of(noOperationLine);
+
+        return Stream.of(header.stream(), lines, Stream.of(separator))
+                .flatMap(Function.identity())
+                .onClose(operationLines::close);
     }
 
     private List<String> formatStatementHeader(LocalDate date) {
         return Arrays.asList(
-          formatSeparator(),
-          formatEmptyLine(),
-          "|" + centerString("ACCOUNT STATEMENT OF " + date)  + "|",
-          formatEmptyLine()
+          separator,
+          emptyLine,
+          centeredLine("ACCOUNT STATEMENT OF " + date),
+          emptyLine
+        );
+    }
+
+    private List<String> formatAccountDetails(StringBuilder line, UUID accountId, BigDecimal balance) {
+        return Arrays.asList(
+            separator,
+            accountDetailsTitle,
+            separator,
+            detailLine(line, "Account Number", accountId.toString()),
+            moneyDetailLine(line, "Balance", balance),
+            separator
         );
     }
 
-    private List<String> formatAccountDetails(UUID accountId, BigDecimal balance) {
+    private List<String> formatPeriodDetails(StringBuilder line, UUID accountId, StatementPeriod period) {
         return Arrays.asList(
-            formatSeparator(),
-            "|" + centerString("ACCOUNT DETAILS") + "|",
-            formatSeparator(),
-            String.format("|  %-20s %-77s  |", "Account Number", accountId.toString()),
-            String.format("|  %-20s %-77s  |", "Balance", balance.setScale(2, RoundingMode.HALF_EVEN) + "€"),
-            formatSeparator()
+            separator,
+            accountDetailsTitle,
+            separator,
+            detailLine(line, "Account Number", accountId.toString()),
+            detailLine(line, "Period", period.from() + " to " + period.to()),
+            moneyDetailLine(line, "Opening Balance", period.openingBalance()),
+            moneyDetailLine(line, "Closing Balance", period.closingBalance()),
+            separator
         );
     }
 
+    private String detailLine(StringBuilder line, String title, String value) {
+        line.setLength(0);
+        pad(line.append("|  "), title, 20).append(' ');
+        return pad(line, value, 77).append("  |").toString();
+    }
+
+    private String moneyDetailLine(StringBuilder line, String title, BigDecimal value) {
+        line.setLength(0);
+        pad(line.append("|  "), title, 20).append(' ');
+        int start = line.length();
+        appendMoney(line, value).append(currency);
+        return padFrom(line, start, 77).append("  |").toString();
+    }
+
     private List<String> formatOperationHeader() {
         return Arrays.asList(
-                formatEmptyLine(),
-                String.format("|  %-15s %-25s %-25s %-30s  |", "TYPE", "DATE", "AMOUNT", "BALANCE"),
-                formatSeparator()
+                emptyLine,
+                operationHeader,
+                separator
         );
     }
 
-    private String centerString (String s) {
-        return String.format("%-" + StatementGridFormatter.gridSize + "s", String.format("%" + (s.length() + (StatementGridFormatter.gridSize - s.length()) / 2) + "s", s));
+    private String formatOperationLine(StringBuilder line, Operation operation) {
+        line.setLength(0);
+        pad(line.append("|  "), operation.type().name(), 15).append(' ');
+
+        int start = line.length();
+        dateTimeFormatter.formatTo(operation.date(), line);
+        padFrom(line, start, 25).append(' ');
+
+        start = line.length();
+        line.append(operation.type().isDebit() ? '-' : '+');
+        MinorUnits.appendTo(line, operation.amount().getMinorUnits()).append(currency);
+        padFrom(line, start, 25).append(' ');
+
+        start = line.length();
+        appendMoney(line, operation.balance()).append(currency);
+        padFrom(line, start, 30).append("  |");
+        return line.toString();
     }
 
-    private String formatSeparator() {
-        return "+" + "-".repeat(gridSize) + "+";
+    private static String operationLine(String type, String date, String amount, String balance) {
+        StringBuilder line = new StringBuilder(gridSize + 2).append("|  ");
+        pad(line, type, 15).append(' ');
+        pad(line, date, 25).append(' ');
+        pad(line, amount, 25).append(' ');
+        pad(line, balance, 30).append("  |");
+        return line.toString();
     }
 
-    private String formatEmptyLine() {
-        return "|" + " ".repeat(gridSize) + "|";
+    private static String centeredLine(String s) {
+        StringBuilder line = new StringBuilder(gridSize + 2).append('|');
+        int start = line.length();
+        line.append(" ".repeat(Math.max(0, (gridSize - s.length()) / 2))).append(s);
+        return padFrom(line, start, gridSize).append('|').toString();
     }
 
-    private String formatOperationLine(Operation operation){
-        String type = operation.type().toString();
-        String date = operation.date().format(dateTimeFormatter);
-        String amount = operation.amount().getValue().setScale(2, RoundingMode.HALF_EVEN) + "€";
-        amount = operation.type().equals(OperationType.WITHDRAWAL) ? "-" + amount : "+" + amount;
-        String balance = operation.balance().setScale(2, RoundingMode.HALF_EVEN) + "€";
-        return String.format("|  %-15s %-25s %-25s %-30s  |", type, date, amount, balance);
+    private static StringBuilder appendMoney(StringBuilder line, BigDecimal value) {
+        if(value.scale() >= 0 && value.scale() <= MinorUnits.SCALE && value.precision() - value.scale() <= maxMoneyDigits) {
+            return MinorUnits.appendTo(line, MinorUnits.of(value));
+        }
+        return line.append(value.setScale(MinorUnits.SCALE, RoundingMode.HALF_EVEN));
+    }
+
+    private static StringBuilder pad(StringBuilder line, String value, int width) {
+        int start = line.length();
+        return padFrom(line.append(value), start, width);
+    }
+
+    private static StringBuilder padFrom(StringBuilder line, int start, int width) {
+        for (int written = line.length() - start; written < width; written++) {
+            line.append(' ');
+        }
+        return line;
     }
 
 }
@@ -0,0 +1,10 @@
+package io.phongsouvanh.bank.statements;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Days covered by a period statement, both included, with the balance before the first day and after the last one.
+ */
+public record StatementPeriod(LocalDate from, LocalDate to, BigDecimal openingBalance, BigDecimal closingBalance) {
+}
@@ -1,7 +1,12 @@
 package io.phongsouvanh.bank.statements;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface StatementPrinter {
     void print(List<String> formattedStatement);
+
+    default void print(Stream<String> formattedStatement) {
+        print(formattedStatement.toList());
+    }
 }
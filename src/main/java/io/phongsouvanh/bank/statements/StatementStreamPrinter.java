@@ -0,0 +1,39 @@
+package io.phongsouvanh.bank.statements;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes statements to an {@link OutputStream} from one large reusable buffer, flushing the stream once per statement.
+ * The stream is not closed by the printer.
+ */
+public class StatementStreamPrinter extends BufferedStatementPrinter {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream outputStream;
+
+    public StatementStreamPrinter(OutputStream outputStream) {
+        super(new ByteBuffer[]{ByteBuffer.allocate(BUFFER_SIZE)});
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    void write(ByteBuffer[] buffers, int count) throws IOException {
+        writeTo(outputStream, buffers, count);
+    }
+
+    @Override
+    void endOfStatement() throws IOException {
+        outputStream.flush();
+    }
+
+    static void writeTo(OutputStream outputStream, ByteBuffer[] buffers, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            ByteBuffer buffer = buffers[i];
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        }
+    }
+}
@@ -25,4 +25,25 @@ class AmountTest {
         assertThrows(NegativeAmountException.class, () -> new Amount(bigDecimal));
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("should expose the amount in minor units")
+    void shouldExposeMinorUnits() throws Exception {
+        assertEquals(1050, new Amount(new BigDecimal("10.5")).getMinorUnits());
+        assertEquals(new BigDecimal("10.50"), Amount.ofMinorUnits(1050).getValue());
+    }
+
+    @Test
+    @DisplayName("should not instantiate a new amount finer than a cent")
+    void shouldNotInstantiateAmountFinerThanCent() {
+        assertThrows(ArithmeticException.class, () -> new Amount(new BigDecimal("0.001")));
+    }
+
+    @Test
+    @DisplayName("should compare amounts by value, whatever their scale")
+    void shouldCompareAmountsByValue() throws Exception {
+        assertEquals(new Amount(BigDecimal.TEN), new Amount(new BigDecimal("10.00")));
+        assertEquals(new Amount(BigDecimal.TEN).hashCode(), Amount.ofMinorUnits(1000).hashCode());
+        assertNotEquals(new Amount(BigDecimal.TEN), new Amount(new BigDecimal("10.01")));
+    }
+
+}
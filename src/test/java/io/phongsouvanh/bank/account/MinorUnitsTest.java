@@ -0,0 +1,37 @@
+package io.phongsouvanh.bank.account;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinorUnitsTest {
+
+    @Test
+    @DisplayName("should convert decimal values to minor units and back")
+    void shouldConvert() {
+        assertEquals(1000, MinorUnits.of(BigDecimal.TEN));
+        assertEquals(-1234, MinorUnits.of(new BigDecimal("-12.34")));
+        assertEquals(new BigDecimal("12.34"), MinorUnits.toBigDecimal(1234));
+    }
+
+    @Test
+    @DisplayName("should fail instead of overflowing")
+    void shouldFailOnOverflow() {
+        assertThrows(ArithmeticException.class, () -> MinorUnits.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.of(new BigDecimal(Long.MAX_VALUE)));
+    }
+
+    @Test
+    @DisplayName("should format minor units with two decimals")
+    void shouldFormat() {
+        assertEquals("0.00", MinorUnits.toString(0));
+        assertEquals("0.05", MinorUnits.toString(5));
+        assertEquals("-7000.10", MinorUnits.toString(-700010));
+        assertEquals("-92233720368547758.08", MinorUnits.toString(Long.MIN_VALUE));
+    }
+
+}
@@ -0,0 +1,76 @@
+package io.phongsouvanh.bank.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("should poll in offering order and refuse elements when full")
+    void shouldBeBoundedFifo() {
+        // Arrange
+        final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+
+        // Act
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+
+        // Assert
+        assertFalse(buffer.offer(4));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) assertEquals(i, buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<>(3));
+    }
+
+    @Test
+    @DisplayName("should deliver every element of concurrent producers once, in each producer's order")
+    void shouldNotLoseElementsOfConcurrentProducers() throws Exception {
+        // Arrange
+        final int producers = 8;
+        final int elementsPerProducer = 50_000;
+        final MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(64);
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        for (int p = 0; p < producers; p++) {
+            final long producer = p;
+            executor.submit(() -> {
+                start.await();
+                for (long i = 0; i < elementsPerProducer; i++) {
+                    final long[] element = {producer, i};
+                    while (!buffer.offer(element)) Thread.yield();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        final long[] nextExpected = new long[producers];
+        int received = 0;
+        while (received < producers * elementsPerProducer) {
+            final long[] element = buffer.poll();
+            if(element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(nextExpected[(int) element[0]]++, element[1]);
+            received++;
+        }
+        executor.shutdown();
+
+        // Assert
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertNull(buffer.poll());
+        for (long count : nextExpected) assertEquals(elementsPerProducer, count);
+    }
+
+}
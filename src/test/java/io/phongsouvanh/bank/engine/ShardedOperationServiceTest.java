@@ -0,0 +1,293 @@
+package io.phongsouvanh.bank.engine;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.service.BatchItem;
+import io.phongsouvanh.bank.service.BatchResult;
+import io.phongsouvanh.bank.service.TransferItem;
+import io.phongsouvanh.bank.service.TransferResult;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedOperationServiceTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+
+    private InMemoryOperationDao operationDao;
+    private ShardedOperationService service;
+
+    @BeforeEach
+    void setUp() {
+        this.operationDao = new InMemoryOperationDao();
+        this.service = new ShardedOperationService(operationDao, clock, new StatementGridFormatter(), lines -> {}, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.close();
+    }
+
+    @Test
+    @DisplayName("should deposit and withdraw from the balance already saved in the DAO")
+    void shouldApplyOperations() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        operationDao.save(new Operation(accountId, OperationType.DEPOSIT, new Amount(BigDecimal.TEN), LocalDateTime.now(clock), BigDecimal.TEN));
+
+        // Act
+        final Operation deposit = service.deposit(accountId, new Amount(new BigDecimal(5)));
+        final Operation withdrawal = service.withdraw(accountId, new Amount(new BigDecimal(3)));
+
+        // Assert
+        assertEquals(new BigDecimal("15.00"), deposit.balance());
+        assertEquals(new BigDecimal("12.00"), withdrawal.balance());
+        assertEquals(List.of(deposit, withdrawal), operationDao.getAllAccountOperationsById(accountId).subList(1, 3));
+        assertThrows(OutOfBalanceException.class, () -> service.withdraw(accountId, new Amount(new BigDecimal(12))));
+        assertEquals(new BigDecimal("12.00"), operationDao.getAccountBalanceById(accountId));
+    }
+
+    @Test
+    @DisplayName("should not lose any operation made concurrently on a few accounts")
+    void shouldApplyConcurrentOperations() throws Exception {
+        // Arrange
+        final int threads = 16;
+        final int operationsPerThread = 1_000;
+        final List<UUID> accountIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            final UUID accountId = accountIds.get(t % accountIds.size());
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < operationsPerThread; i++) {
+                    service.deposit(accountId, new Amount(BigDecimal.ONE));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        long total = 0;
+        for (UUID accountId : accountIds) {
+            final List<Operation> operations = operationDao.getAllAccountOperationsById(accountId);
+            total += operations.size();
+            assertEquals(new BigDecimal(operations.size()).setScale(2), operationDao.getAccountBalanceById(accountId));
+        }
+        assertEquals(threads * operationsPerThread, total);
+    }
+
+    @Test
+    @DisplayName("should apply a batch in order and report each item")
+    void shouldApplyBatch() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+
+        // Act
+        final List<BatchResult> results = service.applyBatch(List.of(
+                BatchItem.deposit(accountId, BigDecimal.TEN),
+                BatchItem.withdrawal(otherAccountId, BigDecimal.ONE),
+                BatchItem.deposit(otherAccountId, new BigDecimal(-1)),
+                BatchItem.withdrawal(accountId, new BigDecimal(4))
+        ));
+
+        // Assert
+        assertTrue(results.get(0).isSuccess());
+        assertInstanceOf(OutOfBalanceException.class, results.get(1).error());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(new BigDecimal("6.00"), results.get(3).operation().balance());
+        assertEquals(List.of(), operationDao.getAllAccountOperationsById(otherAccountId));
+    }
+
+    @Test
+    @DisplayName("should fail the callers and reload the balance when the DAO cannot save")
+    void shouldRecoverFromSaveFailure() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final boolean[] failing = {true};
+        service.close();
+        service = new ShardedOperationService(new InMemoryOperationDao() {
+            @Override
+            public List<Operation> saveAll(List<Operation> operations) {
+                if(failing[0]) throw new IllegalStateException("disk full");
+                return super.saveAll(operations);
+            }
+        }, clock, new StatementGridFormatter(), lines -> {}, 1);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> service.deposit(accountId, new Amount(BigDecimal.TEN)));
+        failing[0] = false;
+        final Operation deposit = service.deposit(accountId, new Amount(BigDecimal.ONE));
+
+        // Assert
+        assertEquals(new BigDecimal("1.00"), deposit.balance());
+    }
+
+    @Test
+    @DisplayName("should fail the callers but keep serving when the balance of an account cannot be loaded")
+    void shouldSurviveLoadFailure() throws Exception {
+        // Arrange
+        final UUID brokenAccountId = UUID.randomUUID();
+        final UUID accountId = UUID.randomUUID();
+        service.close();
+        service = new ShardedOperationService(new InMemoryOperationDao() {
+            @Override
+            public BigDecimal getAccountBalanceById(UUID id) {
+                if(id.equals(brokenAccountId)) throw new IllegalStateException("backend unavailable");
+                return super.getAccountBalanceById(id);
+            }
+        }, clock, new StatementGridFormatter(), lines -> {}, 1);
+
+        // Act
+        final List<BatchResult> results = service.applyBatch(List.of(
+                BatchItem.deposit(brokenAccountId, BigDecimal.TEN),
+                BatchItem.deposit(accountId, BigDecimal.TEN)
+        ));
+        final Operation deposit = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> service.deposit(accountId, new Amount(BigDecimal.ONE)));
+
+        // Assert
+        assertInstanceOf(IllegalStateException.class, results.get(0).error());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(new BigDecimal("11.00"), deposit.balance());
+        assertThrows(IllegalStateException.class, () -> service.deposit(brokenAccountId, new Amount(BigDecimal.ONE)));
+    }
+
+    @Test
+    @DisplayName("should transfer between accounts of the same shard and of different shards")
+    void shouldTransfer() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final UUID sameShardAccountId = accountOnShard(service.shardOf(accountId), true);
+        final UUID otherShardAccountId = accountOnShard(service.shardOf(accountId), false);
+        service.deposit(accountId, new Amount(BigDecimal.TEN));
+
+        // Act
+        final Transfer within = service.transfer(accountId, sameShardAccountId, new Amount(new BigDecimal(3)));
+        final Transfer across = service.transfer(accountId, otherShardAccountId, new Amount(new BigDecimal(2)));
+        final Transfer back = service.transfer(otherShardAccountId, accountId, new Amount(BigDecimal.ONE));
+
+        // Assert
+        assertEquals(new BigDecimal("7.00"), within.debit().balance());
+        assertEquals(new BigDecimal("3.00"), within.credit().balance());
+        assertEquals(new BigDecimal("5.00"), across.debit().balance());
+        assertEquals(new BigDecimal("2.00"), across.credit().balance());
+        assertEquals(new BigDecimal("1.00"), back.debit().balance());
+        assertEquals(new BigDecimal("6.00"), back.credit().balance());
+        assertEquals(List.of(across.credit(), back.debit()), operationDao.getAllAccountOperationsById(otherShardAccountId));
+        assertEquals(new BigDecimal("6.00"), service.deposit(accountId, new Amount(new BigDecimal("0.00"))).balance());
+    }
+
+    @Test
+    @DisplayName("should reject a transfer over the balance without touching either account")
+    void shouldRejectTransferOverBalance() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherShardAccountId = accountOnShard(service.shardOf(accountId), false);
+        service.deposit(accountId, new Amount(BigDecimal.TEN));
+
+        // Act
+        final List<TransferResult> results = service.applyTransfers(List.of(
+                new TransferItem(accountId, otherShardAccountId, BigDecimal.TEN),
+                new TransferItem(accountId, accountId, BigDecimal.ONE),
+                new TransferItem(otherShardAccountId, accountId, BigDecimal.ONE),
+                new TransferItem(accountId, otherShardAccountId, new BigDecimal(4))
+        ));
+
+        // Assert
+        assertInstanceOf(OutOfBalanceException.class, results.get(0).error());
+        assertInstanceOf(IllegalArgumentException.class, results.get(1).error());
+        assertInstanceOf(OutOfBalanceException.class, results.get(2).error());
+        assertEquals(new BigDecimal("6.00"), results.get(3).transfer().debit().balance());
+        assertEquals(new BigDecimal("4.00"), results.get(3).transfer().credit().balance());
+        assertEquals(1, operationDao.getAllAccountOperationsById(otherShardAccountId).size());
+    }
+
+    @Test
+    @DisplayName("should conserve the total of the balances under concurrent transfers in both directions")
+    void shouldApplyConcurrentTransfers() throws Exception {
+        // Arrange
+        final int threads = 8;
+        final int transfersPerThread = 500;
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final UUID accountId = UUID.randomUUID();
+            accountIds.add(accountId);
+            service.deposit(accountId, new Amount(new BigDecimal(1_000)));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < transfersPerThread; i++) {
+                    final UUID debited = accountIds.get((offset + i) % accountIds.size());
+                    final UUID credited = accountIds.get((offset + 2 * i + 1) % accountIds.size());
+                    if(debited.equals(credited)) continue;
+                    try {
+                        service.transfer(debited, credited, new Amount(BigDecimal.ONE));
+                    } catch (OutOfBalanceException ignored) {
+                        // Acceptable under contention
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Assert
+        BigDecimal total = BigDecimal.ZERO;
+        for (UUID accountId : accountIds) {
+            final BigDecimal balance = operationDao.getAccountBalanceById(accountId);
+            assertEquals(balance, service.deposit(accountId, new Amount(new BigDecimal("0.00"))).balance());
+            total = total.add(balance);
+        }
+        assertEquals(new BigDecimal("6000.00"), total);
+    }
+
+    @Test
+    @DisplayName("should reject operations once closed")
+    void shouldRejectWhenClosed() throws Exception {
+        // Act
+        service.close();
+
+        // Assert
+        final Amount amount = new Amount(BigDecimal.ONE);
+        assertThrows(RejectedExecutionException.class, () -> service.deposit(UUID.randomUUID(), amount));
+    }
+
+    private UUID accountOnShard(int shard, boolean same) {
+        UUID accountId;
+        do {
+            accountId = UUID.randomUUID();
+        } while ((service.shardOf(accountId) == shard) != same);
+        return accountId;
+    }
+}
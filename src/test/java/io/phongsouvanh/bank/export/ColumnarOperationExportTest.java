@@ -0,0 +1,122 @@
+package io.phongsouvanh.bank.export;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarOperationExportTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00.123456789Z"), ZoneId.of("UTC"));
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("should read back every operation written, across blocks and accounts")
+    void shouldRoundTrip(boolean deflated) throws Exception {
+        // Arrange
+        final List<Operation> operations = new ArrayList<>();
+        final OperationType[] types = OperationType.values();
+        long balance = 0;
+        for (int account = 0; account < 5; account++) {
+            final UUID accountId = account == 0 ? new UUID(0, 0) : UUID.randomUUID();
+            for (int i = 0; i < 1_000 * account; i++) {
+                final OperationType type = types[i % types.length];
+                final long amount = (long) i * 37 % 100_000;
+                balance += type.isDebit() ? -amount : amount;
+                operations.add(new Operation(accountId, type, Amount.ofMinorUnits(amount),
+                        LocalDateTime.now(clock).minusSeconds(i * 60L).plusNanos(i), MinorUnits.toBigDecimal(balance)));
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        try (ColumnarOperationWriter writer = new ColumnarOperationWriter(out, deflated, 1_000)) {
+            writer.writeAll(operations.stream());
+        }
+        final List<Operation> read;
+        try (ColumnarOperationReader reader = new ColumnarOperationReader(new ByteArrayInputStream(out.toByteArray()))) {
+            read = reader.operations().toList();
+        }
+
+        // Assert
+        assertEquals(operations, read);
+    }
+
+    @Test
+    @DisplayName("should export the history of every account of a DAO into fewer bytes when deflated")
+    void shouldExportDao() throws Exception {
+        // Arrange
+        final InMemoryOperationDao operationDao = new InMemoryOperationDao();
+        for (int account = 0; account < 3; account++) {
+            final UUID accountId = UUID.randomUUID();
+            for (int i = 1; i <= 500; i++) {
+                operationDao.save(new Operation(accountId, OperationType.DEPOSIT, Amount.ofMinorUnits(100), LocalDateTime.now(clock), MinorUnits.toBigDecimal(i * 100L)));
+            }
+        }
+        final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+
+        // Act
+        final long rows = ColumnarOperationWriter.export(operationDao, raw, false);
+        ColumnarOperationWriter.export(operationDao, deflated, true);
+
+        // Assert
+        assertEquals(1_500, rows);
+        assertTrue(deflated.size() < raw.size());
+        final List<UUID> accountIds = new ArrayList<>();
+        try (ColumnarOperationReader reader = new ColumnarOperationReader(new ByteArrayInputStream(deflated.toByteArray()))) {
+            OperationColumns block;
+            while ((block = reader.readBlock()) != null) {
+                for (int row = 0; row < block.size(); row++) {
+                    if(accountIds.isEmpty() || !accountIds.get(accountIds.size() - 1).equals(block.accountId(row))) accountIds.add(block.accountId(row));
+                }
+            }
+            assertNull(reader.readBlock());
+        }
+        assertEquals(operationDao.getAccountIds(), new HashSet<>(accountIds));
+        assertEquals(3, accountIds.size());
+    }
+
+    @Test
+    @DisplayName("should reject a corrupted or truncated export")
+    void shouldRejectCorruptedExport() throws Exception {
+        // Arrange
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarOperationWriter writer = new ColumnarOperationWriter(out, false)) {
+            for (int i = 1; i <= 10; i++) {
+                writer.write(new Operation(UUID.randomUUID(), OperationType.DEPOSIT, Amount.ofMinorUnits(i), LocalDateTime.now(clock), MinorUnits.toBigDecimal(i)));
+            }
+        }
+        final byte[] corrupted = out.toByteArray();
+        corrupted[corrupted.length - 10] ^= 1;
+        final byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 8);
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> new ColumnarOperationReader(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6})));
+        try (ColumnarOperationReader reader = new ColumnarOperationReader(new ByteArrayInputStream(corrupted))) {
+            assertThrows(IOException.class, reader::readBlock);
+        }
+        try (ColumnarOperationReader reader = new ColumnarOperationReader(new ByteArrayInputStream(truncated))) {
+            final UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> reader.operations().toList());
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package io.phongsouvanh.bank.feed;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.service.DefaultOperationService;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationFeedTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+
+    private ExecutorService executor;
+    private Amount amount;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.executor = Executors.newSingleThreadExecutor();
+        this.amount = new Amount(BigDecimal.TEN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("should publish the operations saved by the service in the order of each account's history")
+    void shouldPublishSavedOperations() throws Exception {
+        // Arrange
+        final OperationFeed feed = new OperationFeed(1024, executor);
+        final DefaultOperationService service = service(feed);
+        final CollectingSubscriber<SequencedOperation> subscriber = new CollectingSubscriber<>(Long.MAX_VALUE);
+        feed.subscribe(subscriber);
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+
+        // Act
+        final Operation deposit = service.deposit(accountId, amount);
+        final Operation withdrawal = service.withdraw(accountId, new Amount(BigDecimal.ONE));
+        assertThrows(Exception.class, () -> service.withdraw(accountId, amount));
+        final Transfer transfer = service.transfer(accountId, otherAccountId, new Amount(BigDecimal.ONE));
+        feed.close();
+
+        // Assert
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(deposit, withdrawal, transfer.debit(), transfer.credit()), subscriber.items.stream().map(SequencedOperation::operation).toList());
+        assertEquals(List.of(0L, 1L, 2L, 3L), subscriber.items.stream().map(SequencedOperation::sequence).toList());
+    }
+
+    @Test
+    @DisplayName("should replay from a sequence, skip cancelled ones and deliver within the demand")
+    void shouldReplayWithinDemand() throws Exception {
+        // Arrange
+        final OperationFeed feed = new OperationFeed(1024, executor);
+        final List<Operation> operations = publish(feed, 5);
+        final long cancelled = feed.reserve(1);
+        feed.cancel(cancelled, 1);
+        final long last = feed.reserve(1);
+        final Operation operation = operation();
+        feed.publish(last, List.of(operation));
+        final CollectingSubscriber<SequencedOperation> subscriber = new CollectingSubscriber<>(2);
+
+        // Act
+        feed.subscribe(subscriber, 3);
+        subscriber.awaitItems(2);
+        final int delivered = subscriber.items.size();
+        subscriber.subscription.request(10);
+        subscriber.awaitItems(3);
+
+        // Assert
+        assertEquals(2, delivered);
+        assertEquals(List.of(operations.get(3), operations.get(4), operation), subscriber.items.stream().map(SequencedOperation::operation).toList());
+        assertEquals(List.of(3L, 4L, last), subscriber.items.stream().map(SequencedOperation::sequence).toList());
+    }
+
+    @Test
+    @DisplayName("should deliver operations published out of order once the lower sequences are published")
+    void shouldDeliverInSequenceOrder() throws Exception {
+        // Arrange
+        final OperationFeed feed = new OperationFeed(1024, executor);
+        final CollectingSubscriber<SequencedOperation> subscriber = new CollectingSubscriber<>(Long.MAX_VALUE);
+        feed.subscribe(subscriber);
+        final long first = feed.reserve(1);
+        final long second = feed.reserve(1);
+        final Operation firstOperation = operation();
+        final Operation secondOperation = operation();
+
+        // Act
+        feed.publish(second, List.of(secondOperation));
+        final long publishedBefore = feed.publishedSequence();
+        feed.publish(first, List.of(firstOperation));
+        subscriber.awaitItems(2);
+
+        // Assert
+        assertEquals(0, publishedBefore);
+        assertEquals(List.of(firstOperation, secondOperation), subscriber.items.stream().map(SequencedOperation::operation).toList());
+    }
+
+    @Test
+    @DisplayName("should deliver batches of up to the maximum size, each counting as one item of demand")
+    void shouldDeliverBatches() throws Exception {
+        // Arrange
+        final OperationFeed feed = new OperationFeed(1024, executor);
+        final List<Operation> operations = publish(feed, 10);
+        final CollectingSubscriber<List<SequencedOperation>> subscriber = new CollectingSubscriber<>(2);
+
+        // Act
+        feed.batches(4, 0).subscribe(subscriber);
+        subscriber.awaitItems(2);
+        subscriber.subscription.request(1);
+        subscriber.awaitItems(3);
+
+        // Assert
+        assertEquals(List.of(4, 4, 2), subscriber.items.stream().map(List::size).toList());
+        assertEquals(operations, subscriber.items.stream().flatMap(List::stream).map(SequencedOperation::operation).toList());
+    }
+
+    @Test
+    @DisplayName("should never block writers on a slow subscriber but fail it once it lags further than the ring")
+    void shouldFailLaggingSubscriber() throws Exception {
+        // Arrange
+        final OperationFeed feed = new OperationFeed(16, executor);
+        final CountDownLatch released = new CountDownLatch(1);
+        final CollectingSubscriber<SequencedOperation> slow = new CollectingSubscriber<>(Long.MAX_VALUE) {
+            @Override
+            public void onNext(SequencedOperation item) {
+                super.onNext(item);
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        feed.subscribe(slow);
+
+        // Act
+        final List<Operation> written = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> publish(feed, 100));
+        released.countDown();
+
+        // Assert
+        assertEquals(100, written.size());
+        assertTrue(slow.failed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, slow.error);
+        assertEquals(0, feed.subscribers());
+    }
+
+    @Test
+    @DisplayName("should signal an error on a replay from a sequence no longer retained or a non-positive request")
+    void shouldRejectInvalidSubscriptions() throws Exception {
+        // Arrange
+        final OperationFeed feed = new OperationFeed(4, executor);
+        publish(feed, 8);
+        final CollectingSubscriber<SequencedOperation> late = new CollectingSubscriber<>(1);
+        final CollectingSubscriber<SequencedOperation> invalid = new CollectingSubscriber<>(0);
+
+        // Act
+        feed.subscribe(late, 2);
+        feed.subscribe(invalid);
+        invalid.subscription.request(0);
+
+        // Assert
+        assertTrue(late.failed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, late.error);
+        assertTrue(invalid.failed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, invalid.error);
+        assertTrue(late.items.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> feed.batches(0));
+    }
+
+    @Test
+    @DisplayName("should reject a replay from a sequence not reserved yet, and number a recreated feed after its predecessor")
+    void shouldRejectSequencesNotReserved() throws Exception {
+        // Arrange
+        final OperationFeed previous = new OperationFeed(4, executor);
+        publish(previous, 3);
+        final long next = previous.reservedSequence();
+        previous.close();
+        final OperationFeed restarted = new OperationFeed(4, executor);
+        final OperationFeed resumed = new OperationFeed(4, executor, next);
+        final CollectingSubscriber<SequencedOperation> stale = new CollectingSubscriber<>(1);
+        final CollectingSubscriber<SequencedOperation> subscriber = new CollectingSubscriber<>(1);
+
+        // Act
+        restarted.subscribe(stale, next);
+        resumed.subscribe(subscriber, next);
+        final Operation operation = publish(resumed, 1).get(0);
+        subscriber.awaitItems(1);
+
+        // Assert
+        assertTrue(stale.failed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, stale.error);
+        assertEquals(List.of(new SequencedOperation(next, operation)), subscriber.items);
+        assertThrows(IllegalStateException.class, () -> previous.reserve(1));
+    }
+
+    private DefaultOperationService service(OperationFeed feed) {
+        return new DefaultOperationService(new InMemoryOperationDao(), clock, new StatementGridFormatter(), lines -> { }, null, feed);
+    }
+
+    private List<Operation> publish(OperationFeed feed, int count) {
+        List<Operation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Operation operation = operation();
+            feed.publish(feed.reserve(1), List.of(operation));
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private Operation operation() {
+        return new Operation(UUID.randomUUID(), OperationType.DEPOSIT, amount, LocalDateTime.now(clock), BigDecimal.TEN);
+    }
+
+    private static class CollectingSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final long initialDemand;
+        private final List<T> items = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        CollectingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if(initialDemand > 0) subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        void awaitItems(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (items.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(20);
+        }
+    }
+}
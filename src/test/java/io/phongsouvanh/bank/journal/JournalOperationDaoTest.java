@@ -0,0 +1,352 @@
+package io.phongsouvanh.bank.journal;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.exceptions.NegativeAmountException;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.AccountSnapshot;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationPage;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.operations.Transfer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalOperationDaoTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("should recover balances and operations after a restart")
+    void shouldRecoverAfterRestart() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+        final List<Operation> saved = new ArrayList<>();
+        final JournalOptions options = JournalOptions.of(directory).withSegmentRecords(4);
+
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            for (int i = 1; i <= 10; i++) {
+                saved.add(operationDao.save(deposit(accountId, i, i * (i + 1) / 2)));
+            }
+            operationDao.save(deposit(otherAccountId, 7, 7));
+        }
+
+        // Act
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+
+            // Assert
+            assertEquals(new BigDecimal("55.00"), operationDao.getAccountBalanceById(accountId));
+            assertEquals(new BigDecimal("7.00"), operationDao.getAccountBalanceById(otherAccountId));
+            assertEquals(BigDecimal.ZERO, operationDao.getAccountBalanceById(UUID.randomUUID()));
+            assertEquals(saved, operationDao.getAllAccountOperationsById(accountId));
+            final List<Operation> newestFirst = new ArrayList<>(saved);
+            Collections.reverse(newestFirst);
+            assertEquals(newestFirst, operationDao.streamAccountOperationsById(accountId).toList());
+            assertEquals(3, directory.toFile().list().length);
+        }
+    }
+
+    @Test
+    @DisplayName("should truncate a torn tail record and keep appending after it")
+    void shouldTruncateTornTail() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final JournalOptions options = JournalOptions.of(directory).withSegmentRecords(16);
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            operationDao.save(deposit(accountId, 10, 10));
+            operationDao.save(deposit(accountId, 5, 15));
+        }
+        final Path segment = directory.resolve(JournalSegment.fileName(0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            final ByteBuffer torn = ByteBuffer.allocate(JournalRecord.SIZE / 2).putLong(3L).putLong(42L).flip();
+            channel.write(torn, 2L * JournalRecord.SIZE);
+        }
+
+        // Act
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            operationDao.save(deposit(accountId, 1, 16));
+        }
+
+        // Assert
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            assertEquals(new BigDecimal("16.00"), operationDao.getAccountBalanceById(accountId));
+            assertEquals(3, operationDao.getAllAccountOperationsById(accountId).size());
+        }
+    }
+
+    @Test
+    @DisplayName("should drop both legs of a transfer torn across two segments")
+    void shouldDropTornTransfer() throws Exception {
+        // Arrange
+        final UUID debitedAccountId = UUID.randomUUID();
+        final UUID creditedAccountId = UUID.randomUUID();
+        final JournalOptions options = JournalOptions.of(directory).withSegmentRecords(4);
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            operationDao.save(deposit(debitedAccountId, 10, 10));
+            operationDao.save(deposit(debitedAccountId, 10, 20));
+            operationDao.save(deposit(creditedAccountId, 5, 5));
+            operationDao.appendTransfer(debitedAccountId, creditedAccountId, (debited, credited) -> new Transfer(
+                    operation(debitedAccountId, OperationType.TRANSFER_OUT, 3, debited / 100 - 3),
+                    operation(creditedAccountId, OperationType.TRANSFER_IN, 3, credited / 100 + 3)
+            ));
+        }
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            assertEquals(new BigDecimal("17.00"), operationDao.getAccountBalanceById(debitedAccountId));
+            assertEquals(new BigDecimal("8.00"), operationDao.getAccountBalanceById(creditedAccountId));
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(JournalSegment.fileName(4)), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(JournalRecord.SIZE), 0);
+        }
+
+        // Act
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            operationDao.save(deposit(creditedAccountId, 1, 6));
+        }
+
+        // Assert
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            assertEquals(new BigDecimal("20.00"), operationDao.getAccountBalanceById(debitedAccountId));
+            assertEquals(new BigDecimal("6.00"), operationDao.getAccountBalanceById(creditedAccountId));
+            assertEquals(2, operationDao.getAllAccountOperationsById(debitedAccountId).size());
+            assertEquals(2, operationDao.getAllAccountOperationsById(creditedAccountId).size());
+            assertEquals(1, directory.toFile().list().length);
+        }
+    }
+
+    @Test
+    @DisplayName("should snapshot a consistent prefix of the history while writes go on")
+    void shouldSnapshotWhileWriting() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        try (JournalOperationDao operationDao = JournalOperationDao.open(JournalOptions.of(directory).withSegmentRecords(64))) {
+            final Future<?> writes = writer.submit(() -> {
+                for (int i = 1; i <= 2_000; i++) operationDao.save(deposit(accountId, 1, i));
+                return null;
+            });
+
+            int snapshots = 0;
+            while (!writes.isDone() || snapshots == 0) {
+                final AccountSnapshot snapshot = operationDao.snapshotAccount(accountId);
+                final List<Operation> operations = snapshot.operations().toList();
+                assertEquals(snapshot.version(), operations.size());
+                assertEquals(snapshot.version() * 100, MinorUnits.of(snapshot.balance()));
+                if(!operations.isEmpty()) assertEquals(snapshot.balance(), operations.get(0).balance());
+                snapshots++;
+            }
+            writes.get();
+            assertEquals(2_000, operationDao.snapshotAccount(accountId).version());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("should read histories and snapshots while appends keep rolling over to new segments")
+    void shouldReadWhileRollingOverSegments() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        final ExecutorService writer = Executors.newSingleThreadExecutor();
+        try (JournalOperationDao operationDao = JournalOperationDao.open(JournalOptions.of(directory).withSegmentRecords(2))) {
+            final Future<?> writes = writer.submit(() -> {
+                for (int i = 1; i <= 1_000; i++) operationDao.append(accountId, balance -> deposit(accountId, 1, balance / 100 + 1));
+                return null;
+            });
+
+            int reads = 0;
+            while (!writes.isDone() || reads == 0) {
+                final AccountSnapshot snapshot = operationDao.snapshotAccount(accountId);
+                assertEquals(snapshot.version(), snapshot.operations().count());
+                final int size = operationDao.getAllAccountOperationsById(accountId).size();
+                try (Stream<Operation> newestFirst = operationDao.streamAccountOperationsById(accountId)) {
+                    assertTrue(newestFirst.count() >= size);
+                }
+                reads++;
+            }
+            writes.get();
+            assertEquals(1_000, operationDao.getAllAccountOperationsById(accountId).size());
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("should append atomically from the journaled balance")
+    void shouldAppendFromJournaledBalance() throws Exception {
+        final UUID accountId = UUID.randomUUID();
+        try (JournalOperationDao operationDao = JournalOperationDao.open(JournalOptions.of(directory))) {
+            operationDao.save(deposit(accountId, 10, 10));
+
+            final Operation operation = operationDao.append(accountId, balance -> deposit(accountId, 5, MinorUnits.add(balance, 500) / 100));
+
+            assertEquals(new BigDecimal("15.00"), operation.balance());
+            assertThrows(OutOfBalanceException.class, () -> operationDao.append(accountId, balance -> {
+                throw new OutOfBalanceException();
+            }));
+            assertEquals(2, operationDao.getAllAccountOperationsById(accountId).size());
+        }
+    }
+
+    @Test
+    @DisplayName("should restore balances from the snapshot once covered segments are archived")
+    void shouldRestoreFromSnapshotAfterCompaction() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+        final JournalOptions options = JournalOptions.of(directory).withSegmentRecords(4);
+        final SnapshotMetrics metrics;
+
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            operationDao.save(deposit(otherAccountId, 3, 3));
+            for (int i = 1; i <= 9; i++) {
+                operationDao.save(deposit(accountId, 1, i));
+            }
+
+            // Act
+            metrics = operationDao.snapshot();
+            assertEquals(2, operationDao.compact());
+            operationDao.save(deposit(accountId, 1, 10));
+        }
+
+        // Assert
+        assertEquals(new SnapshotMetrics(10, 2, 88, metrics.duration(), 0), metrics);
+        assertEquals(2, directory.resolve("archive").toFile().list().length);
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            assertEquals(new BigDecimal("10.00"), operationDao.getAccountBalanceById(accountId));
+            assertEquals(new BigDecimal("3.00"), operationDao.getAccountBalanceById(otherAccountId));
+            assertEquals(3, operationDao.getAllAccountOperationsById(accountId).size());
+            assertEquals(List.of(), operationDao.getAllAccountOperationsById(otherAccountId));
+            final AccountSnapshot snapshot = operationDao.snapshotAccount(accountId);
+            assertEquals(new BigDecimal("10.00"), snapshot.balance());
+            assertEquals(3, snapshot.operations().count());
+        }
+    }
+
+    @Test
+    @DisplayName("should keep the segments of the previous snapshot, so that it can still be recovered from")
+    void shouldRecoverFromPreviousSnapshotAfterCompaction() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final JournalOptions options = JournalOptions.of(directory).withSegmentRecords(4);
+        final SnapshotMetrics latest;
+        final int archived;
+
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            for (int i = 1; i <= 5; i++) {
+                operationDao.save(deposit(accountId, 1, i));
+            }
+            operationDao.snapshot();
+            for (int i = 6; i <= 9; i++) {
+                operationDao.save(deposit(accountId, 1, i));
+            }
+            latest = operationDao.snapshot();
+            archived = operationDao.compact();
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(JournalSnapshot.fileName(latest.nextRecord())), StandardOpenOption.WRITE)) {
+            channel.truncate(8);
+        }
+
+        // Act
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+
+            // Assert
+            assertEquals(1, archived);
+            assertEquals(new BigDecimal("9.00"), operationDao.getAccountBalanceById(accountId));
+            assertEquals(5, operationDao.getAllAccountOperationsById(accountId).size());
+        }
+    }
+
+    @Test
+    @DisplayName("should page through a date range and read opening balances, archived history included")
+    void shouldPageThroughDateRange() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final JournalOptions options = JournalOptions.of(directory).withSegmentRecords(4);
+        final List<Operation> saved = new ArrayList<>();
+
+        try (JournalOperationDao operationDao = JournalOperationDao.open(options)) {
+            for (int day = 0; day < 10; day++) {
+                saved.add(operationDao.save(new Operation(
+                        accountId, OperationType.DEPOSIT, Amount.ofMinorUnits(1_000), LocalDateTime.now(clock).plusDays(day), MinorUnits.toBigDecimal(1_000L * (day + 1))
+                )));
+            }
+            final LocalDateTime from = LocalDateTime.now(clock).plusDays(2);
+            final LocalDateTime to = LocalDateTime.now(clock).plusDays(7);
+
+            // Act
+            final OperationPage firstPage = operationDao.getOperations(accountId, from, to, 3, null);
+            final OperationPage lastPage = operationDao.getOperations(accountId, from, to, 3, firstPage.next());
+            final BigDecimal openingBalance = operationDao.getBalanceBefore(accountId, from);
+            operationDao.snapshot();
+            operationDao.compact();
+
+            // Assert
+            assertEquals(List.of(saved.get(6), saved.get(5), saved.get(4)), firstPage.operations());
+            assertEquals(List.of(saved.get(3), saved.get(2)), lastPage.operations());
+            assertFalse(lastPage.hasNext());
+            assertEquals(new BigDecimal("20.00"), openingBalance);
+            assertEquals(List.of(saved.get(9), saved.get(8)), operationDao.getOperations(accountId, from, LocalDateTime.MAX, 10, null).operations());
+            assertEquals(new BigDecimal("90.00"), operationDao.getBalanceBefore(accountId, LocalDateTime.now(clock).plusDays(9)));
+            assertEquals(new BigDecimal("80.00"), operationDao.getBalanceBefore(accountId, from));
+            assertEquals(new BigDecimal("100.00"), operationDao.getBalanceBefore(accountId, LocalDateTime.MAX));
+        }
+    }
+
+    private Operation deposit(UUID accountId, long amount, long balance) throws Exception {
+        return operation(accountId, OperationType.DEPOSIT, amount, balance);
+    }
+
+    private Operation operation(UUID accountId, OperationType type, long amount, long balance) throws NegativeAmountException {
+        return new Operation(
+                accountId, type, Amount.ofMinorUnits(amount * 100), LocalDateTime.now(clock), MinorUnits.toBigDecimal(balance * 100)
+        );
+    }
+
+    @Test
+    @DisplayName("should reject an operation dated before the last live one of its account, and the rest of its write")
+    void shouldRejectOutOfOrderDates() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+        final LocalDateTime now = LocalDateTime.now(clock);
+
+        try (JournalOperationDao operationDao = JournalOperationDao.open(JournalOptions.of(directory))) {
+            final Operation deposit = operationDao.save(deposit(accountId, 10, 10));
+            final Operation earlier = new Operation(accountId, OperationType.WITHDRAWAL, Amount.ofMinorUnits(100), now.minusSeconds(1), MinorUnits.toBigDecimal(900));
+            final Operation other = new Operation(otherAccountId, OperationType.DEPOSIT, Amount.ofMinorUnits(100), now.minusDays(1), MinorUnits.toBigDecimal(100));
+
+            // Act
+            assertThrows(IllegalArgumentException.class, () -> operationDao.save(earlier));
+            assertThrows(IllegalArgumentException.class, () -> operationDao.saveAll(List.of(other, earlier)));
+            assertThrows(IllegalArgumentException.class, () -> operationDao.appendTransfer(otherAccountId, accountId, (debited, credited) -> new Transfer(
+                    new Operation(otherAccountId, OperationType.TRANSFER_OUT, Amount.ofMinorUnits(100), now.plusDays(1), MinorUnits.toBigDecimal(0)),
+                    new Operation(accountId, OperationType.TRANSFER_IN, Amount.ofMinorUnits(100), now.minusDays(1), MinorUnits.toBigDecimal(1_100))
+            )));
+
+            // Assert
+            assertEquals(List.of(deposit), operationDao.getAllAccountOperationsById(accountId));
+            assertEquals(List.of(), operationDao.getAllAccountOperationsById(otherAccountId));
+            assertEquals(new BigDecimal("10.00"), operationDao.getAccountBalanceById(accountId));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.phongsouvanh.bank.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("should report zeros when nothing was recorded")
+    void shouldReportEmptySnapshot() {
+        assertEquals(new LatencySnapshot(0, 0, 0, 0, 0), new LatencyHistogram().snapshot());
+    }
+
+    @Test
+    @DisplayName("should report percentiles within the bucket precision")
+    void shouldReportPercentiles() {
+        // Arrange
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // Act
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1_000);
+        }
+
+        // Assert
+        final LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.count());
+        assertEquals(50_000_000, snapshot.p50Nanos(), 50_000_000 / 64.0);
+        assertEquals(99_000_000, snapshot.p99Nanos(), 99_000_000 / 64.0);
+        assertEquals(99_900_000, snapshot.p999Nanos(), 99_900_000 / 64.0);
+        assertEquals(100_000_000, snapshot.maxNanos());
+    }
+
+    @Test
+    @DisplayName("should keep small values exact and map every value into its bucket")
+    void shouldMapValuesToBuckets() {
+        for (long value = 0; value < 128; value++) {
+            assertEquals(value, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value)));
+        }
+        for (long value : new long[]{128, 129, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            final long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 64, () -> value + " reported as " + highest);
+        }
+    }
+
+}
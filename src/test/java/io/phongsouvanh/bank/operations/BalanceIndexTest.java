@@ -0,0 +1,84 @@
+package io.phongsouvanh.bank.operations;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceIndexTest {
+
+    @Test
+    @DisplayName("should store and overwrite balances across resizes, the nil account included")
+    void shouldStoreBalances() {
+        // Arrange
+        final BalanceIndex index = new BalanceIndex(0, 4);
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) accountIds.add(UUID.randomUUID());
+        final UUID nil = new UUID(0, 0);
+
+        // Act
+        for (int i = 0; i < accountIds.size(); i++) index.put(accountIds.get(i), i);
+        for (int i = 0; i < accountIds.size(); i += 2) index.put(accountIds.get(i), -i);
+        index.put(nil, 42);
+
+        // Assert
+        for (int i = 0; i < accountIds.size(); i++) {
+            assertEquals(i % 2 == 0 ? -i : i, index.get(accountIds.get(i), Long.MIN_VALUE));
+        }
+        assertEquals(42, index.get(nil, Long.MIN_VALUE));
+        assertEquals(Long.MIN_VALUE, index.get(UUID.randomUUID(), Long.MIN_VALUE));
+        assertEquals(10_001, index.size());
+        assertTrue(index.offHeapBytes() >= 10_000L * 4 / 3 * BalanceIndex.SLOT_BYTES);
+        assertThrows(IllegalArgumentException.class, () -> new BalanceIndex(0, 3));
+    }
+
+    @Test
+    @DisplayName("should never return a torn or missing balance to readers racing writers")
+    void shouldReadWhileWriting() throws Exception {
+        // Arrange
+        final BalanceIndex index = new BalanceIndex(0, 2);
+        final UUID stable = UUID.randomUUID();
+        index.put(stable, 7);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final List<UUID> written = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) written.add(UUID.randomUUID());
+
+        // Act
+        executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < written.size(); i++) index.put(written.get(i), i);
+            writing.set(false);
+            return null;
+        });
+        final List<Future<Long>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                long wrong = 0;
+                while (writing.get()) {
+                    if(index.get(stable, -1) != 7) wrong++;
+                }
+                return wrong;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert
+        for (Future<Long> reader : readers) assertEquals(0, reader.get());
+        for (int i = 0; i < written.size(); i++) assertEquals(i, index.get(written.get(i), -1));
+    }
+}
@@ -0,0 +1,193 @@
+package io.phongsouvanh.bank.operations;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryOperationDaoTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+
+    private InMemoryOperationDao operationDao;
+
+    @BeforeEach
+    void setUp() {
+        this.operationDao = new InMemoryOperationDao();
+    }
+
+    @Test
+    @DisplayName("should return a zero balance and no operations for an unknown account")
+    void shouldReturnEmptyAccount() {
+        final UUID accountId = UUID.randomUUID();
+
+        assertEquals(BigDecimal.ZERO, operationDao.getAccountBalanceById(accountId));
+        assertEquals(List.of(), operationDao.getAllAccountOperationsById(accountId));
+    }
+
+    @Test
+    @DisplayName("should keep the balance of the last saved operation and the history in saving order")
+    void shouldSaveOperations() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final Operation deposit = new Operation(accountId, OperationType.DEPOSIT, new Amount(new BigDecimal(100)), LocalDateTime.now(clock), new BigDecimal(100));
+        final Operation withdrawal = new Operation(accountId, OperationType.WITHDRAWAL, new Amount(new BigDecimal(30)), LocalDateTime.now(clock).plusMinutes(1), new BigDecimal(70));
+
+        // Act
+        final Operation savedDeposit = operationDao.save(deposit);
+        operationDao.save(withdrawal);
+
+        // Assert
+        assertEquals(deposit, savedDeposit);
+        assertEquals(new BigDecimal(70), operationDao.getAccountBalanceById(accountId));
+        assertEquals(List.of(deposit, withdrawal), operationDao.getAllAccountOperationsById(accountId));
+        assertEquals(List.of(withdrawal, deposit), operationDao.streamAccountOperationsById(accountId).toList());
+        assertEquals(List.of(), operationDao.getAllAccountOperationsById(UUID.randomUUID()));
+    }
+
+    @Test
+    @DisplayName("should save batches in order and append batches from the current balance")
+    void shouldSaveBatches() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.TEN);
+        final Operation first = new Operation(accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal(10));
+        final Operation other = new Operation(otherAccountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal(10));
+        final Operation second = new Operation(accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal(20));
+
+        // Act
+        operationDao.saveAll(List.of(first, other, second));
+        final List<Operation> appended = operationDao.appendAll(accountId, balance -> List.of(
+                new Operation(accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal(balance / 100 + 10))
+        ));
+
+        // Assert
+        assertEquals(new BigDecimal(30), appended.get(0).balance());
+        assertEquals(List.of(first, second, appended.get(0)), operationDao.getAllAccountOperationsById(accountId));
+        assertEquals(List.of(other), operationDao.getAllAccountOperationsById(otherAccountId));
+    }
+
+    @Test
+    @DisplayName("should page through a date range most recent first and read the opening balance from the index")
+    void shouldPageThroughDateRange() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final List<Operation> operations = new ArrayList<>();
+        for (int day = 0; day < 10; day++) {
+            operations.add(operationDao.save(new Operation(
+                    accountId, OperationType.DEPOSIT, new Amount(BigDecimal.TEN), LocalDateTime.now(clock).plusDays(day), new BigDecimal(10 * (day + 1))
+            )));
+        }
+        final LocalDateTime from = LocalDateTime.now(clock).plusDays(2);
+        final LocalDateTime to = LocalDateTime.now(clock).plusDays(7);
+
+        // Act
+        final OperationPage firstPage = operationDao.getOperations(accountId, from, to, 3, null);
+        final OperationPage lastPage = operationDao.getOperations(accountId, from, to, 3, firstPage.next());
+
+        // Assert
+        assertEquals(List.of(operations.get(6), operations.get(5), operations.get(4)), firstPage.operations());
+        assertTrue(firstPage.hasNext());
+        assertEquals(List.of(operations.get(3), operations.get(2)), lastPage.operations());
+        assertFalse(lastPage.hasNext());
+        assertEquals(new BigDecimal(20), operationDao.getBalanceBefore(accountId, from));
+        assertEquals(BigDecimal.ZERO, operationDao.getBalanceBefore(accountId, LocalDateTime.now(clock)));
+        assertEquals(new BigDecimal(100), operationDao.getBalanceBefore(accountId, LocalDateTime.now(clock).plusYears(1)));
+        assertEquals(List.of(), operationDao.getOperations(UUID.randomUUID(), from, to, 3, null).operations());
+        assertThrows(IllegalArgumentException.class, () -> operationDao.getOperations(accountId, to, from, 3, null));
+    }
+
+    @Test
+    @DisplayName("should not lose any operation saved concurrently on many accounts")
+    void shouldSaveConcurrently() throws Exception {
+        // Arrange
+        final int threads = 16;
+        final int operationsPerThread = 2_000;
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) accountIds.add(UUID.randomUUID());
+        final Amount amount = new Amount(BigDecimal.ONE);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            final UUID accountId = accountIds.get(t % accountIds.size());
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < operationsPerThread; i++) {
+                    operationDao.save(new Operation(accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), BigDecimal.ONE));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert
+        final int expectedPerAccount = threads / accountIds.size() * operationsPerThread;
+        for (UUID accountId : accountIds) {
+            assertEquals(expectedPerAccount, operationDao.getAllAccountOperationsById(accountId).size());
+        }
+    }
+
+    @Test
+    @DisplayName("should reject an operation dated before the last one of its account, and the rest of its batch")
+    void shouldRejectOutOfOrderDates() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final LocalDateTime now = LocalDateTime.now(clock);
+        final Operation deposit = new Operation(accountId, OperationType.DEPOSIT, new Amount(new BigDecimal(100)), now, new BigDecimal(100));
+        final Operation sameTime = new Operation(accountId, OperationType.DEPOSIT, new Amount(BigDecimal.ONE), now, new BigDecimal(101));
+        final Operation later = new Operation(accountId, OperationType.DEPOSIT, new Amount(BigDecimal.ONE), now.plusMinutes(1), new BigDecimal(102));
+        final Operation earlier = new Operation(accountId, OperationType.WITHDRAWAL, new Amount(BigDecimal.ONE), now.minusMinutes(1), new BigDecimal(101));
+        operationDao.save(deposit);
+
+        // Act
+        operationDao.save(sameTime);
+        assertThrows(IllegalArgumentException.class, () -> operationDao.save(earlier));
+        assertThrows(IllegalArgumentException.class, () -> operationDao.saveAll(List.of(later, earlier)));
+        assertThrows(IllegalArgumentException.class, () -> operationDao.appendAll(accountId, balance -> List.of(later, earlier)));
+
+        // Assert
+        assertEquals(List.of(deposit, sameTime), operationDao.getAllAccountOperationsById(accountId));
+        assertEquals(new BigDecimal(101), operationDao.getAccountBalanceById(accountId));
+        assertEquals(new BigDecimal(101), operationDao.getBalanceBefore(accountId, now.plusSeconds(1)));
+    }
+
+    @Test
+    @DisplayName("should reject a balance without exact minor units before storing anything of its write")
+    void shouldRejectInexactBalances() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final LocalDateTime now = LocalDateTime.now(clock);
+        final Operation deposit = new Operation(accountId, OperationType.DEPOSIT, new Amount(new BigDecimal(100)), now, new BigDecimal(100));
+        final Operation valid = new Operation(accountId, OperationType.DEPOSIT, new Amount(BigDecimal.ONE), now, new BigDecimal(101));
+        final Operation inexact = new Operation(accountId, OperationType.DEPOSIT, new Amount(BigDecimal.ONE), now, new BigDecimal("102.005"));
+        operationDao.save(deposit);
+
+        // Act
+        assertThrows(ArithmeticException.class, () -> operationDao.save(inexact));
+        assertThrows(ArithmeticException.class, () -> operationDao.appendAll(accountId, balance -> List.of(valid, inexact)));
+        final Operation appended = operationDao.append(accountId, balance -> new Operation(
+                accountId, OperationType.DEPOSIT, new Amount(BigDecimal.ONE), now, MinorUnits.toBigDecimal(balance + 100)));
+
+        // Assert
+        assertEquals(List.of(deposit, appended), operationDao.getAllAccountOperationsById(accountId));
+        assertEquals(new BigDecimal("101.00"), operationDao.getAccountBalanceById(accountId));
+    }
+}
@@ -0,0 +1,286 @@
+package io.phongsouvanh.bank.operations;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindOperationDaoTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+
+    private Amount amount;
+    private WriteBehindOperationDao operationDao;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.amount = new Amount(BigDecimal.TEN);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if(operationDao != null) operationDao.close();
+    }
+
+    @Test
+    @DisplayName("should acknowledge writes once logged and flush them to the backing DAO later")
+    void shouldWriteBehind() throws Exception {
+        // Arrange
+        final SlowOperationDao backing = new SlowOperationDao();
+        final InMemoryOperationDao log = new InMemoryOperationDao();
+        operationDao = new WriteBehindOperationDao(backing, log);
+        final UUID accountId = UUID.randomUUID();
+
+        // Act
+        final Operation first = operationDao.append(accountId, balance -> deposit(accountId, balance, 0));
+        final Operation second = operationDao.append(accountId, balance -> deposit(accountId, balance, 1));
+
+        // Assert
+        assertEquals(new BigDecimal("20.00"), operationDao.getAccountBalanceById(accountId));
+        assertEquals(List.of(first, second), log.getAllAccountOperationsById(accountId));
+        assertEquals(List.of(), backing.getAllAccountOperationsById(accountId));
+        assertEquals(List.of(first, second), operationDao.getAllAccountOperationsById(accountId));
+        assertEquals(List.of(second, first), operationDao.streamAccountOperationsById(accountId).toList());
+        assertTrue(operationDao.getAccountIds().contains(accountId));
+
+        backing.release();
+        operationDao.flush();
+        assertEquals(List.of(first, second), backing.getAllAccountOperationsById(accountId));
+        assertEquals(List.of(first, second), operationDao.getAllAccountOperationsById(accountId));
+        assertEquals(0, operationDao.pendingWrites());
+    }
+
+    @Test
+    @DisplayName("should read the balance of a cold account through from the backing DAO")
+    void shouldReadThrough() throws Exception {
+        // Arrange
+        final InMemoryOperationDao backing = new InMemoryOperationDao();
+        final UUID accountId = UUID.randomUUID();
+        final Operation existing = backing.save(new Operation(accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal("10.00")));
+        operationDao = new WriteBehindOperationDao(backing, new InMemoryOperationDao());
+
+        // Act
+        final BigDecimal balance = operationDao.getAccountBalanceById(accountId);
+        final Operation appended = operationDao.append(accountId, previous -> deposit(accountId, previous, 1));
+        operationDao.flush();
+
+        // Assert
+        assertEquals(new BigDecimal("10.00"), balance);
+        assertEquals(new BigDecimal("20.00"), appended.balance());
+        assertEquals(List.of(existing, appended), backing.getAllAccountOperationsById(accountId));
+        assertEquals(BigDecimal.ZERO, operationDao.getAccountBalanceById(UUID.randomUUID()));
+    }
+
+    @Test
+    @DisplayName("should flush both legs of a transfer in the same batch")
+    void shouldFlushTransfersAtomically() throws Exception {
+        // Arrange
+        final SlowOperationDao backing = new SlowOperationDao();
+        operationDao = new WriteBehindOperationDao(backing, new InMemoryOperationDao());
+        final UUID debitedAccountId = UUID.randomUUID();
+        final UUID creditedAccountId = UUID.randomUUID();
+        operationDao.append(debitedAccountId, balance -> deposit(debitedAccountId, balance, 0));
+
+        // Act
+        final Transfer transfer = operationDao.appendTransfer(debitedAccountId, creditedAccountId, (debited, credited) -> new Transfer(
+                new Operation(debitedAccountId, OperationType.TRANSFER_OUT, amount, LocalDateTime.now(clock), new BigDecimal("0.00")),
+                new Operation(creditedAccountId, OperationType.TRANSFER_IN, amount, LocalDateTime.now(clock), new BigDecimal("10.00"))
+        ));
+        backing.release();
+        operationDao.flush();
+
+        // Assert
+        assertEquals(new BigDecimal("10.00"), operationDao.getAccountBalanceById(creditedAccountId));
+        assertTrue(backing.batches.stream().anyMatch(batch -> batch.containsAll(List.of(transfer.debit(), transfer.credit()))));
+        assertEquals(List.of(transfer.credit()), backing.getAllAccountOperationsById(creditedAccountId));
+    }
+
+    @Test
+    @DisplayName("should evict idle accounts but keep the ones waiting for a flush")
+    void shouldEvictIdleAccountsOnly() throws Exception {
+        // Arrange
+        final SlowOperationDao backing = new SlowOperationDao();
+        operationDao = new WriteBehindOperationDao(backing, new InMemoryOperationDao(), 16, 1024, 64);
+        final UUID pinnedAccountId = UUID.randomUUID();
+        operationDao.append(pinnedAccountId, balance -> deposit(pinnedAccountId, balance, 0));
+
+        // Act
+        for (int i = 0; i < 1_000; i++) {
+            operationDao.getAccountBalanceById(UUID.randomUUID());
+        }
+
+        // Assert
+        assertTrue(operationDao.cachedAccounts() <= 32, "cached accounts: " + operationDao.cachedAccounts());
+        assertEquals(new BigDecimal("10.00"), operationDao.getAccountBalanceById(pinnedAccountId));
+        backing.release();
+        operationDao.flush();
+        assertEquals(new BigDecimal("10.00"), backing.getAccountBalanceById(pinnedAccountId));
+    }
+
+    @Test
+    @DisplayName("should release every operation of a multi-operation write once flushed, so that idle accounts can be evicted")
+    void shouldEvictAfterFlushingBatches() {
+        // Arrange
+        operationDao = new WriteBehindOperationDao(new InMemoryOperationDao(), new InMemoryOperationDao(), 16, 1024, 64);
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            final UUID accountId = UUID.randomUUID();
+            operationDao.appendAll(accountId, balance -> List.of(deposit(accountId, balance, 0), deposit(accountId, balance + amount.getMinorUnits(), 1)));
+        }
+        operationDao.flush();
+        for (int i = 0; i < 200; i++) {
+            operationDao.getAccountBalanceById(UUID.randomUUID());
+        }
+
+        // Assert
+        assertTrue(operationDao.cachedAccounts() <= 32, "cached accounts: " + operationDao.cachedAccounts());
+    }
+
+    @Test
+    @DisplayName("should flush on opening the logged operations dated like the last flushed one")
+    void shouldRecoverOperationsWithSameDate() throws Exception {
+        // Arrange
+        final InMemoryOperationDao backing = new InMemoryOperationDao();
+        final InMemoryOperationDao log = new InMemoryOperationDao();
+        final UUID accountId = UUID.randomUUID();
+        final List<Operation> operations = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            operations.add(log.append(accountId, balance -> deposit(accountId, balance, 0)));
+        }
+        final Operation flushed = operations.get(0);
+        backing.save(new Operation(accountId, flushed.type(), Amount.ofMinorUnits(amount.getMinorUnits()), flushed.date(), flushed.balance().setScale(4)));
+
+        // Act
+        operationDao = new WriteBehindOperationDao(backing, log);
+
+        // Assert
+        assertEquals(3, backing.getAllAccountOperationsById(accountId).size());
+        assertEquals(operations.subList(1, 3), backing.getAllAccountOperationsById(accountId).subList(1, 3));
+    }
+
+    @Test
+    @DisplayName("should flush on opening the operations logged but not flushed before the last shutdown")
+    void shouldRecoverUnflushedOperations() throws Exception {
+        // Arrange
+        final InMemoryOperationDao backing = new InMemoryOperationDao();
+        final InMemoryOperationDao log = new InMemoryOperationDao();
+        final UUID accountId = UUID.randomUUID();
+        final List<Operation> operations = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            operations.add(log.append(accountId, balance -> deposit(accountId, balance, operations.size())));
+        }
+        backing.saveAll(operations.subList(0, 2));
+
+        // Act
+        operationDao = new WriteBehindOperationDao(backing, log);
+
+        // Assert
+        assertEquals(operations, backing.getAllAccountOperationsById(accountId));
+        assertEquals(new BigDecimal("40.00"), operationDao.getAccountBalanceById(accountId));
+    }
+
+    @Test
+    @DisplayName("should read once the operations flushed but not released yet, even when read back with another scale")
+    void shouldMergeFlushedOperationsByValue() throws Exception {
+        // Arrange
+        final RescalingOperationDao backing = new RescalingOperationDao();
+        operationDao = new WriteBehindOperationDao(backing, new InMemoryOperationDao());
+        final UUID accountId = UUID.randomUUID();
+
+        // Act
+        final Operation first = operationDao.append(accountId, balance -> deposit(accountId, balance, 0));
+        assertTrue(backing.saved.await(10, TimeUnit.SECONDS));
+        final Operation second = operationDao.append(accountId, balance -> deposit(accountId, balance, 1));
+        final List<Operation> operations = operationDao.getAllAccountOperationsById(accountId);
+        final List<Operation> newestFirst = operationDao.streamAccountOperationsById(accountId).toList();
+        backing.released.countDown();
+
+        // Assert
+        assertEquals(2, operations.size());
+        assertEquals(second, operations.get(1));
+        assertEquals(List.of(second), newestFirst.subList(0, 1));
+        assertEquals(2, newestFirst.size());
+        assertEquals(0, first.balance().compareTo(newestFirst.get(1).balance()));
+    }
+
+    private Operation deposit(UUID accountId, long balance, int minutes) {
+        return new Operation(accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock).plusMinutes(minutes), MinorUnits.toBigDecimal(balance + amount.getMinorUnits()));
+    }
+
+    /**
+     * Stand-in for a remote backend reading balances back with another scale, whose first batch write hangs once saved,
+     * before the decorator releases its operations.
+     */
+    private static class RescalingOperationDao extends InMemoryOperationDao {
+
+        private final CountDownLatch saved = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public List<Operation> saveAll(List<Operation> operations) {
+            super.saveAll(operations);
+            saved.countDown();
+            try {
+                if(!released.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("Never released");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return operations;
+        }
+
+        @Override
+        public List<Operation> getAllAccountOperationsById(UUID accountId) {
+            return super.getAllAccountOperationsById(accountId).stream().map(RescalingOperationDao::rescaled).toList();
+        }
+
+        @Override
+        public Stream<Operation> streamAccountOperationsById(UUID accountId) {
+            return super.streamAccountOperationsById(accountId).map(RescalingOperationDao::rescaled);
+        }
+
+        private static Operation rescaled(Operation operation) {
+            return new Operation(operation.accountId(), operation.type(), operation.amount(), operation.date(), operation.balance().setScale(4));
+        }
+    }
+
+    /**
+     * Stand-in for a remote backend whose batch writes hang until released.
+     */
+    private static class SlowOperationDao extends InMemoryOperationDao {
+
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final List<List<Operation>> batches = new CopyOnWriteArrayList<>();
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public List<Operation> saveAll(List<Operation> operations) {
+            try {
+                if(!released.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("Never released");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            batches.add(List.copyOf(operations));
+            return super.saveAll(operations);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.statements.StatementFormatter;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import io.phongsouvanh.bank.statements.StatementPeriod;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkStatementJobTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+    private final LocalDate from = LocalDate.of(2022, 10, 1);
+    private final LocalDate to = LocalDate.of(2022, 10, 31);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("should write the statement of every account to its own file and report progress")
+    void shouldWriteEveryStatement() throws Exception {
+        // Arrange
+        final InMemoryOperationDao operationDao = new InMemoryOperationDao();
+        final DefaultOperationService service = new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), lines -> {});
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 1; i <= 250; i++) {
+            final UUID accountId = UUID.randomUUID();
+            accountIds.add(accountId);
+            service.deposit(accountId, new Amount(new BigDecimal(i)));
+        }
+        final List<BulkStatementProgress> progress = new CopyOnWriteArrayList<>();
+        final BulkStatementJob job = new BulkStatementJob(operationDao, clock, new StatementGridFormatter(), 8);
+
+        // Act
+        final BulkStatementReport report = job.run(directory, from, to, progress::add);
+
+        // Assert
+        assertEquals(250, report.statements());
+        assertEquals(Map.of(), report.failures());
+        long bytes = 0;
+        for (UUID accountId : accountIds) {
+            final Path file = directory.resolve(accountId + ".txt");
+            final List<String> expected = new ArrayList<>();
+            new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), expected::addAll).printAccountStatement(accountId, from, to);
+            assertEquals(expected, Files.readAllLines(file));
+            bytes += Files.size(file);
+        }
+        assertEquals(bytes, report.bytesWritten());
+        assertEquals(250, progress.stream().mapToLong(BulkStatementProgress::completed).max().orElseThrow());
+        assertTrue(progress.size() >= 100);
+    }
+
+    @Test
+    @DisplayName("should never render more statements at once than allowed and report failures")
+    void shouldBoundInFlightStatements() throws Exception {
+        // Arrange
+        final InMemoryOperationDao operationDao = new InMemoryOperationDao();
+        final DefaultOperationService service = new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), lines -> {});
+        for (int i = 0; i < 50; i++) service.deposit(UUID.randomUUID(), new Amount(BigDecimal.ONE));
+        final UUID failingAccountId = operationDao.getAccountIds().iterator().next();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final StatementFormatter formatter = new StatementGridFormatter() {
+            @Override
+            public Stream<String> format(UUID accountId, LocalDate date, StatementPeriod period, Stream<Operation> operations) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                if(accountId.equals(failingAccountId)) throw new IllegalStateException("cannot render");
+                return super.format(accountId, date, period, operations);
+            }
+        };
+
+        // Act
+        final BulkStatementReport report = new BulkStatementJob(operationDao, clock, formatter, 4).run(directory, from, to, progress -> {});
+
+        // Assert
+        assertTrue(maxInFlight.get() <= 4);
+        assertEquals(Set.of(failingAccountId), report.failures().keySet());
+        assertInstanceOf(IllegalStateException.class, report.failures().get(failingAccountId));
+    }
+
+}
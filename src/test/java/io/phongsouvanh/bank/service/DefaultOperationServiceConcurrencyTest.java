@@ -0,0 +1,230 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.AccountSnapshot;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.statements.StatementConsolePrinter;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefaultOperationServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 500;
+
+    private InMemoryOperationDao operationDao;
+    private DefaultOperationService service;
+
+    @BeforeEach
+    void setUp() {
+        this.operationDao = new InMemoryOperationDao();
+        this.service = new DefaultOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), new StatementConsolePrinter());
+    }
+
+    @Test
+    @DisplayName("should not lose any deposit made concurrently on the same account")
+    void shouldNotLoseConcurrentDeposits() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.ONE);
+
+        // Act
+        runConcurrently(() -> service.deposit(accountId, amount));
+
+        // Assert
+        final int expectedOperations = THREADS * OPERATIONS_PER_THREAD;
+        assertEquals(MinorUnits.toBigDecimal(expectedOperations * 100L), operationDao.getAccountBalanceById(accountId));
+        assertConsistentHistory(operationDao.getAllAccountOperationsById(accountId), expectedOperations);
+    }
+
+    @Test
+    @DisplayName("should never overdraw an account withdrawn concurrently")
+    void shouldNeverOverdrawOnConcurrentWithdrawals() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final int initialBalance = 1_000;
+        service.deposit(accountId, new Amount(new BigDecimal(initialBalance)));
+        final Amount amount = new Amount(BigDecimal.ONE);
+        final AtomicInteger rejected = new AtomicInteger();
+
+        // Act
+        runConcurrently(() -> {
+            try {
+                service.withdraw(accountId, amount);
+            } catch (OutOfBalanceException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        // Assert
+        assertEquals(MinorUnits.toBigDecimal(100), operationDao.getAccountBalanceById(accountId));
+        assertEquals(THREADS * OPERATIONS_PER_THREAD - (initialBalance - 1), rejected.get());
+        assertConsistentHistory(operationDao.getAllAccountOperationsById(accountId), initialBalance);
+    }
+
+    @Test
+    @DisplayName("should neither deadlock nor create money with transfers made concurrently in both directions")
+    void shouldTransferConcurrently() throws Exception {
+        // Arrange
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accountIds.add(UUID.randomUUID());
+            service.deposit(accountIds.get(i), new Amount(new BigDecimal(1_000)));
+        }
+        final Amount amount = new Amount(BigDecimal.ONE);
+
+        // Act
+        runConcurrently(() -> {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int from = random.nextInt(accountIds.size());
+            final int to = (from + 1 + random.nextInt(accountIds.size() - 1)) % accountIds.size();
+            try {
+                service.transfer(accountIds.get(from), accountIds.get(to), amount);
+            } catch (OutOfBalanceException ignored) {
+            }
+        });
+
+        // Assert
+        long total = 0;
+        for (UUID accountId : accountIds) {
+            final List<Operation> operations = operationDao.getAllAccountOperationsById(accountId);
+            assertConsistentHistory(operations, operations.size());
+            total += MinorUnits.of(operationDao.getAccountBalanceById(accountId));
+        }
+        assertEquals(3_000_00L, total);
+    }
+
+    @Test
+    @DisplayName("should read snapshots whose balance matches their operations while deposits go on")
+    void shouldReadConsistentSnapshotsDuringDeposits() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.ONE);
+        final DefaultOperationService quietService = new DefaultOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), lines -> {});
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final ExecutorService reader = Executors.newSingleThreadExecutor();
+        final Future<Integer> snapshots = reader.submit(() -> {
+            int read = 0;
+            while (writing.get() || read == 0) {
+                final AccountSnapshot snapshot = operationDao.snapshotAccount(accountId);
+                final List<Operation> operations = new ArrayList<>(snapshot.operations().toList());
+                Collections.reverse(operations);
+                assertConsistentHistory(operations, (int) snapshot.version());
+                assertEquals(snapshot.version() * 100, MinorUnits.of(snapshot.balance()));
+                quietService.printAccountStatement(accountId);
+                read++;
+            }
+            return read;
+        });
+
+        // Act
+        try {
+            runConcurrently(() -> service.deposit(accountId, amount));
+        } finally {
+            writing.set(false);
+        }
+
+        // Assert
+        assertTrue(snapshots.get(30, TimeUnit.SECONDS) > 0);
+        reader.shutdown();
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, operationDao.snapshotAccount(accountId).version());
+    }
+
+    private void assertConsistentHistory(List<Operation> operations, int expectedOperations) {
+        assertEquals(expectedOperations, operations.size());
+        long balance = 0;
+        for (Operation operation : operations) {
+            balance = operation.type().isDebit()
+                    ? balance - operation.amount().getMinorUnits()
+                    : balance + operation.amount().getMinorUnits();
+            assertEquals(balance, MinorUnits.of(operation.balance()));
+        }
+    }
+
+    private void runConcurrently(Callable<?> task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) task.call();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        runConcurrently(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("should keep the operations of an account in date order when the clock steps back")
+    void shouldDateOperationsInOrderWhenClockStepsBack() throws Exception {
+        // Arrange
+        final Instant start = Instant.parse("2022-10-25T15:30:00Z");
+        final Instant[] instant = {start};
+        final Clock steppingClock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return instant[0];
+            }
+        };
+        final DefaultOperationService steppingService = new DefaultOperationService(operationDao, steppingClock, new StatementGridFormatter(), lines -> {});
+        final UUID accountId = UUID.randomUUID();
+
+        // Act
+        final Operation first = steppingService.deposit(accountId, new Amount(BigDecimal.TEN));
+        instant[0] = start.minusSeconds(60);
+        final Operation second = steppingService.withdraw(accountId, new Amount(BigDecimal.ONE));
+        final List<BatchResult> batch = steppingService.applyBatch(List.of(BatchItem.deposit(accountId, BigDecimal.ONE)));
+        instant[0] = start.plusSeconds(60);
+        final Operation third = steppingService.deposit(accountId, new Amount(BigDecimal.ONE));
+
+        // Assert
+        assertEquals(first.date(), second.date());
+        assertEquals(first.date(), batch.get(0).operation().date());
+        assertEquals(LocalDateTime.ofInstant(instant[0], ZoneOffset.UTC), third.date());
+        assertEquals(List.of(first, second, batch.get(0).operation(), third), operationDao.getAllAccountOperationsById(accountId));
+    }
+}
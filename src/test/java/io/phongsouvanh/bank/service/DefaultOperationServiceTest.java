@@ -1,12 +1,20 @@
 package io.phongsouvanh.bank.service;
 
 import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
 import io.phongsouvanh.bank.exceptions.NegativeAmountException;
 import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.AccountSnapshot;
 import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationCursor;
 import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.operations.OperationFactory;
+import io.phongsouvanh.bank.operations.OperationPage;
 import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.operations.TransferFactory;
 import io.phongsouvanh.bank.statements.StatementFormatter;
+import io.phongsouvanh.bank.statements.StatementPeriod;
 import io.phongsouvanh.bank.statements.StatementPrinter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,9 +27,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -46,6 +57,12 @@ class DefaultOperationServiceTest {
         this.service = new DefaultOperationService(operationDao, clock, formatter, printer);
     }
 
+    private void givenBalance(UUID accountId, BigDecimal balance) throws Exception {
+        when(operationDao.append(eq(accountId), any())).thenAnswer(invocation ->
+                invocation.<OperationFactory<?>>getArgument(1).create(MinorUnits.of(balance))
+        );
+    }
+
     @Nested
     @DisplayName("deposit tests")
     class DepositTests {
@@ -55,25 +72,19 @@ class DefaultOperationServiceTest {
             // Arrange
             final UUID accountId = UUID.randomUUID();
             final Amount amount = new Amount(new BigDecimal(10));
-            final Operation savedOperation = new Operation(
-                    accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal(20)
-            );
             final Operation expectedOperation = new Operation(
-                    accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal(20)
+                    accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal("20.00")
             );
 
-            when(operationDao.getAccountBalanceById(accountId)).thenReturn(new BigDecimal(10));
-            when(operationDao.save(any())).thenReturn(savedOperation);
+            givenBalance(accountId, new BigDecimal(10));
 
             // Act
             final Operation operation = service.deposit(accountId, amount);
 
             // Assert
             assertEquals(operation, expectedOperation);
-            final InOrder orderVerifier = inOrder(operationDao);
-            orderVerifier.verify(operationDao).getAccountBalanceById(accountId);
-            orderVerifier.verify(operationDao).save(savedOperation);
-            orderVerifier.verifyNoMoreInteractions();
+            verify(operationDao).append(eq(accountId), any());
+            verifyNoMoreInteractions(operationDao);
         }
 
         @Test
@@ -97,25 +108,19 @@ class DefaultOperationServiceTest {
             // Arrange
             final UUID accountId = UUID.randomUUID();
             final Amount amount = new Amount(new BigDecimal(5));
-            final Operation savedOperation = new Operation(
-                    accountId, OperationType.WITHDRAWAL, amount, LocalDateTime.now(clock), new BigDecimal(5)
-            );
             final Operation expectedOperation = new Operation(
-                    accountId, OperationType.WITHDRAWAL, amount, LocalDateTime.now(clock), new BigDecimal(5)
+                    accountId, OperationType.WITHDRAWAL, amount, LocalDateTime.now(clock), new BigDecimal("5.00")
             );
 
-            when(operationDao.getAccountBalanceById(accountId)).thenReturn(new BigDecimal(10));
-            when(operationDao.save(any())).thenReturn(savedOperation);
+            givenBalance(accountId, new BigDecimal(10));
 
             // Act
             final Operation operation = service.withdraw(accountId, amount);
 
             // Assert
             assertEquals(operation, expectedOperation);
-            final InOrder orderVerifier = inOrder(operationDao);
-            orderVerifier.verify(operationDao).getAccountBalanceById(accountId);
-            orderVerifier.verify(operationDao).save(savedOperation);
-            orderVerifier.verifyNoMoreInteractions();
+            verify(operationDao).append(eq(accountId), any());
+            verifyNoMoreInteractions(operationDao);
         }
 
         @Test
@@ -131,14 +136,137 @@ class DefaultOperationServiceTest {
 
         @Test
         @DisplayName("should not operate a withdraw on account since it will make account out of balance")
-        void shouldNotOperateWithdrawSinceOutOfBalance() {
+        void shouldNotOperateWithdrawSinceOutOfBalance() throws Exception {
             final UUID accountId = UUID.randomUUID();
-            when(operationDao.getAccountBalanceById(accountId)).thenReturn(new BigDecimal(5));
+            givenBalance(accountId, new BigDecimal(5));
 
             assertThrows(OutOfBalanceException.class, () -> service.withdraw(accountId, new Amount(new BigDecimal(20))));
-            verify(operationDao).getAccountBalanceById(accountId);
+            verify(operationDao).append(eq(accountId), any());
+            verifyNoMoreInteractions(operationDao);
+        }
+    }
+
+    @Nested
+    @DisplayName("apply batch tests")
+    class ApplyBatchTests {
+        @Test
+        @DisplayName("should apply items with running balances and persist each account at once")
+        void shouldApplyBatchPerAccount() throws Exception {
+            // Arrange
+            final UUID accountId = UUID.randomUUID();
+            final UUID otherAccountId = UUID.randomUUID();
+            final List<BatchItem> items = List.of(
+                    BatchItem.deposit(accountId, new BigDecimal(10)),
+                    BatchItem.withdrawal(otherAccountId, new BigDecimal(5)),
+                    BatchItem.withdrawal(accountId, new BigDecimal(35)),
+                    BatchItem.deposit(otherAccountId, new BigDecimal(-1)),
+                    BatchItem.withdrawal(accountId, new BigDecimal(15))
+            );
+            when(operationDao.appendAll(any(), any())).thenAnswer(invocation -> {
+                final long balance = invocation.getArgument(0).equals(accountId) ? 2000 : 1000;
+                return invocation.<LongFunction<List<Operation>>>getArgument(1).apply(balance);
+            });
+
+            // Act
+            final List<BatchResult> results = service.applyBatch(items);
+
+            // Assert
+            assertEquals(items.size(), results.size());
+            assertEquals(new BigDecimal("30.00"), results.get(0).operation().balance());
+            assertEquals(new BigDecimal("5.00"), results.get(1).operation().balance());
+            assertEquals(new BigDecimal("15.00"), results.get(4).operation().balance());
+            assertInstanceOf(OutOfBalanceException.class, results.get(2).error());
+            assertInstanceOf(NegativeAmountException.class, results.get(3).error());
+            assertEquals(List.of(true, true, false, false, true), results.stream().map(BatchResult::isSuccess).toList());
+            verify(operationDao).appendAll(eq(accountId), any());
+            verify(operationDao).appendAll(eq(otherAccountId), any());
             verifyNoMoreInteractions(operationDao);
         }
+
+        @Test
+        @DisplayName("should report the items of an account the DAO fails to save as failed and keep applying the others")
+        void shouldReportFailedAccountGroups() throws Exception {
+            // Arrange
+            final UUID accountId = UUID.randomUUID();
+            final UUID failingAccountId = UUID.randomUUID();
+            final UUID lastAccountId = UUID.randomUUID();
+            final List<BatchItem> items = List.of(
+                    BatchItem.deposit(accountId, new BigDecimal(10)),
+                    BatchItem.deposit(failingAccountId, new BigDecimal(5)),
+                    BatchItem.deposit(failingAccountId, new BigDecimal(-1)),
+                    BatchItem.deposit(lastAccountId, new BigDecimal(1))
+            );
+            final IllegalStateException failure = new IllegalStateException("disk full");
+            when(operationDao.appendAll(any(), any())).thenAnswer(invocation -> {
+                final List<Operation> operations = invocation.<LongFunction<List<Operation>>>getArgument(1).apply(0);
+                if(invocation.getArgument(0).equals(failingAccountId)) throw failure;
+                return operations;
+            });
+
+            // Act
+            final List<BatchResult> results = service.applyBatch(items);
+
+            // Assert
+            assertEquals(List.of(true, false, false, true), results.stream().map(BatchResult::isSuccess).toList());
+            assertSame(failure, results.get(1).error());
+            assertSame(failure, results.get(2).error());
+            verify(operationDao).appendAll(eq(lastAccountId), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("transfer tests")
+    class TransferTests {
+        @Test
+        @DisplayName("should save both legs of a transfer from the balances of both accounts")
+        void shouldTransfer() throws Exception {
+            // Arrange
+            final UUID debitedAccountId = UUID.randomUUID();
+            final UUID creditedAccountId = UUID.randomUUID();
+            givenTransferBalances(debitedAccountId, creditedAccountId, 5000, 1000);
+
+            // Act
+            final Transfer transfer = service.transfer(debitedAccountId, creditedAccountId, new Amount(new BigDecimal(20)));
+
+            // Assert
+            assertEquals(new Operation(
+                    debitedAccountId, OperationType.TRANSFER_OUT, new Amount(new BigDecimal(20)), LocalDateTime.now(clock), new BigDecimal("30.00")
+            ), transfer.debit());
+            assertEquals(new Operation(
+                    creditedAccountId, OperationType.TRANSFER_IN, new Amount(new BigDecimal(20)), LocalDateTime.now(clock), new BigDecimal("30.00")
+            ), transfer.credit());
+        }
+
+        @Test
+        @DisplayName("should reject the transfers the debited account cannot afford and keep applying the others")
+        void shouldApplyTransfers() throws Exception {
+            // Arrange
+            final UUID debitedAccountId = UUID.randomUUID();
+            final UUID creditedAccountId = UUID.randomUUID();
+            givenTransferBalances(debitedAccountId, creditedAccountId, 5000, 1000);
+            final List<TransferItem> items = List.of(
+                    new TransferItem(debitedAccountId, creditedAccountId, new BigDecimal(50)),
+                    new TransferItem(debitedAccountId, creditedAccountId, new BigDecimal(-1)),
+                    new TransferItem(debitedAccountId, creditedAccountId, new BigDecimal(10))
+            );
+
+            // Act
+            final List<TransferResult> results = service.applyTransfers(items);
+
+            // Assert
+            assertInstanceOf(OutOfBalanceException.class, results.get(0).error());
+            assertInstanceOf(NegativeAmountException.class, results.get(1).error());
+            assertEquals(new BigDecimal("40.00"), results.get(2).transfer().debit().balance());
+            assertEquals(new BigDecimal("20.00"), results.get(2).transfer().credit().balance());
+            verify(operationDao, times(2)).appendTransfer(eq(debitedAccountId), eq(creditedAccountId), any());
+            verifyNoMoreInteractions(operationDao);
+        }
+
+        private void givenTransferBalances(UUID debitedAccountId, UUID creditedAccountId, long debitedBalance, long creditedBalance) throws Exception {
+            when(operationDao.appendTransfer(eq(debitedAccountId), eq(creditedAccountId), any())).thenAnswer(invocation ->
+                    invocation.<TransferFactory<?>>getArgument(2).create(debitedBalance, creditedBalance)
+            );
+        }
     }
 
     @Nested
@@ -154,19 +282,53 @@ class DefaultOperationServiceTest {
                 new Operation(accountId, OperationType.WITHDRAWAL, new Amount(new BigDecimal(100)), LocalDateTime.now(clock).plusMinutes(5).minusDays(5), new BigDecimal(9900)),
                 new Operation(accountId, OperationType.WITHDRAWAL, new Amount(new BigDecimal(7000)), LocalDateTime.now(clock).plusMinutes(6), new BigDecimal(2900))
             );
-            when(operationDao.getAllAccountOperationsById(accountId)).thenReturn(operations);
+            final Stream<Operation> operationStream = operations.stream();
+            final Stream<String> formattedStatement = Stream.of("statement");
+            when(operationDao.snapshotAccount(accountId)).thenReturn(new AccountSnapshot(accountId, 3, new BigDecimal(2900), () -> operationStream));
+            when(formatter.format(accountId, LocalDate.now(clock), new BigDecimal(2900), operationStream)).thenReturn(formattedStatement);
 
             // Act
             service.printAccountStatement(accountId);
 
             // Assert
             final InOrder orderVerifier = inOrder(operationDao, formatter, printer);
-            orderVerifier.verify(operationDao).getAllAccountOperationsById(accountId);
-            orderVerifier.verify(formatter).format(any());
-            orderVerifier.verify(printer).print(any());
+            orderVerifier.verify(operationDao).snapshotAccount(accountId);
+            orderVerifier.verify(formatter).format(accountId, LocalDate.now(clock), new BigDecimal(2900), operationStream);
+            orderVerifier.verify(printer).print(formattedStatement);
             orderVerifier.verifyNoMoreInteractions();
         }
 
+        @Test
+        @DisplayName("should print a period statement page by page between its opening and closing balances")
+        void shouldPrintPeriodStatement() throws Exception {
+            // Arrange
+            final UUID accountId = UUID.randomUUID();
+            final LocalDate from = LocalDate.of(2022, 10, 1);
+            final LocalDate to = LocalDate.of(2022, 10, 31);
+            final LocalDateTime start = from.atStartOfDay();
+            final LocalDateTime end = LocalDate.of(2022, 11, 1).atStartOfDay();
+            final Operation newest = new Operation(accountId, OperationType.WITHDRAWAL, new Amount(new BigDecimal(100)), start.plusDays(20), new BigDecimal(400));
+            final Operation oldest = new Operation(accountId, OperationType.DEPOSIT, new Amount(new BigDecimal(300)), start.plusDays(2), new BigDecimal(500));
+            final OperationCursor cursor = new OperationCursor(1);
+            when(operationDao.getOperations(accountId, start, end, 512, null)).thenReturn(new OperationPage(List.of(newest), cursor));
+            when(operationDao.getOperations(accountId, start, end, 512, cursor)).thenReturn(new OperationPage(List.of(oldest), null));
+            when(operationDao.getBalanceBefore(accountId, start)).thenReturn(new BigDecimal(200));
+            final StatementPeriod period = new StatementPeriod(from, to, new BigDecimal(200), new BigDecimal(400));
+            final List<List<Operation>> formattedOperations = new ArrayList<>();
+            when(formatter.format(eq(accountId), eq(LocalDate.now(clock)), eq(period), any())).thenAnswer(invocation -> {
+                formattedOperations.add(invocation.<Stream<Operation>>getArgument(3).toList());
+                return Stream.of("statement");
+            });
+
+            // Act
+            service.printAccountStatement(accountId, from, to);
+
+            // Assert
+            assertEquals(List.of(List.of(newest, oldest)), formattedOperations);
+            verify(printer).print(any(Stream.class));
+            verify(operationDao, never()).getAllAccountOperationsById(accountId);
+        }
+
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationDao;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotentOperationServiceTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2022-10-25T15:30:00Z"));
+
+    private OperationDao operationDao;
+    private IdempotencyCache cache;
+    private IdempotentOperationService service;
+
+    @BeforeEach
+    void setUp() {
+        this.operationDao = new InMemoryOperationDao();
+        this.cache = new IdempotencyCache(3, Duration.ofMinutes(10), clock);
+        this.service = new IdempotentOperationService(
+                new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), lines -> {}), cache
+        );
+    }
+
+    @Test
+    @DisplayName("should return the original operation for a replayed key without applying it twice")
+    void shouldReplayOperation() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.TEN);
+
+        // Act
+        final Operation deposit = service.deposit(accountId, amount, "deposit-1");
+        final Operation replayedDeposit = service.deposit(accountId, amount, "deposit-1");
+        final Operation withdrawal = service.withdraw(accountId, new Amount(BigDecimal.ONE), "withdrawal-1");
+        final Operation replayedWithdrawal = service.withdraw(accountId, new Amount(BigDecimal.ONE), "withdrawal-1");
+
+        // Assert
+        assertSame(deposit, replayedDeposit);
+        assertSame(withdrawal, replayedWithdrawal);
+        assertEquals(0, new BigDecimal(9).compareTo(operationDao.getAccountBalanceById(accountId)));
+        assertEquals(2, operationDao.getAllAccountOperationsById(accountId).size());
+        final IdempotencyCacheStats stats = service.cacheStats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+        assertEquals(2, stats.size());
+        assertTrue(stats.estimatedBytes() >= 2 * IdempotencyCache.ENTRY_BYTES);
+    }
+
+    @Test
+    @DisplayName("should reject a key reused for another request and apply calls without a key every time")
+    void shouldRejectReusedKey() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.TEN);
+        service.deposit(accountId, amount, "key");
+
+        // Act
+        service.deposit(accountId, amount, null);
+        service.deposit(accountId, amount, null);
+
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> service.deposit(accountId, new Amount(BigDecimal.ONE), "key"));
+        assertThrows(IllegalArgumentException.class, () -> service.deposit(UUID.randomUUID(), amount, "key"));
+        assertThrows(IllegalArgumentException.class, () -> service.withdraw(accountId, amount, "key"));
+        assertEquals(3, operationDao.getAllAccountOperationsById(accountId).size());
+    }
+
+    @Test
+    @DisplayName("should forget a failed request so that it can be retried")
+    void shouldForgetFailedRequest() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.TEN);
+
+        // Act
+        assertThrows(OutOfBalanceException.class, () -> service.withdraw(accountId, amount, "withdrawal"));
+        service.deposit(accountId, new Amount(new BigDecimal(100)));
+        final Operation withdrawal = service.withdraw(accountId, amount, "withdrawal");
+
+        // Assert
+        assertEquals(0, new BigDecimal(90).compareTo(withdrawal.balance()));
+        assertEquals(1, service.cacheStats().size());
+    }
+
+    @Test
+    @DisplayName("should evict the oldest keys beyond the maximum size and keys older than the time to live")
+    void shouldEvictEntries() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.TEN);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            service.deposit(accountId, amount, "key-" + i);
+        }
+        final IdempotencyCacheStats afterSizeEviction = service.cacheStats();
+        service.deposit(accountId, amount, "key-0");
+        clock.advance(Duration.ofMinutes(10));
+        service.deposit(accountId, amount, "key-4");
+
+        // Assert
+        assertEquals(3, afterSizeEviction.size());
+        assertEquals(2, afterSizeEviction.evictions());
+        assertEquals(7, operationDao.getAllAccountOperationsById(accountId).size());
+        final IdempotencyCacheStats stats = service.cacheStats();
+        assertEquals(0, stats.hits());
+        assertEquals(1, stats.size());
+        assertEquals(3, stats.expirations());
+        assertEquals(IdempotencyCache.ENTRY_BYTES + "key-4".length(), stats.estimatedBytes());
+    }
+
+    @Test
+    @DisplayName("should apply a request replayed concurrently only once")
+    void shouldApplyConcurrentReplaysOnce() throws Exception {
+        // Arrange
+        final int threads = 8;
+        final UUID accountId = UUID.randomUUID();
+        final Amount amount = new Amount(BigDecimal.TEN);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Operation>> results = new ArrayList<>();
+
+        // Act
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.deposit(accountId, amount, "retried");
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert
+        for (Future<Operation> result : results) {
+            assertSame(results.get(0).get(), result.get());
+        }
+        assertEquals(1, operationDao.getAllAccountOperationsById(accountId).size());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
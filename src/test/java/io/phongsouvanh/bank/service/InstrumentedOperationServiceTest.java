@@ -0,0 +1,87 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.metrics.MetricsSnapshot;
+import io.phongsouvanh.bank.metrics.OperationMetrics;
+import io.phongsouvanh.bank.metrics.OperationMetrics.Timer;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.InstrumentedOperationDao;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedOperationServiceTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+
+    private OperationMetrics metrics;
+    private OperationService service;
+
+    @BeforeEach
+    void setUp() {
+        this.metrics = new OperationMetrics(clock);
+        final InstrumentedOperationDao operationDao = new InstrumentedOperationDao(new InMemoryOperationDao(), metrics);
+        this.service = new InstrumentedOperationService(
+                new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), lines -> {}), metrics
+        );
+    }
+
+    @Test
+    @DisplayName("should count the calls of the service and of the DAO underneath")
+    void shouldCountCalls() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+
+        // Act
+        service.deposit(accountId, new Amount(BigDecimal.TEN));
+        service.deposit(accountId, new Amount(BigDecimal.TEN));
+        service.withdraw(accountId, new Amount(BigDecimal.ONE));
+        service.printAccountStatement(accountId);
+
+        // Assert
+        final MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(clock.instant(), snapshot.takenAt());
+        assertEquals(2, snapshot.latency(Timer.DEPOSIT).count());
+        assertEquals(1, snapshot.latency(Timer.WITHDRAW).count());
+        assertEquals(1, snapshot.latency(Timer.STATEMENT).count());
+        assertEquals(3, snapshot.latency(Timer.APPEND).count());
+        assertEquals(1, snapshot.latency(Timer.HISTORY).count());
+        assertEquals(0, snapshot.latency(Timer.BALANCE).count());
+        assertEquals(0, snapshot.latency(Timer.SAVE).count());
+        assertTrue(snapshot.latency(Timer.DEPOSIT).maxNanos() >= snapshot.latency(Timer.DEPOSIT).p50Nanos());
+        assertEquals(0, snapshot.outOfBalanceRejections());
+    }
+
+    @Test
+    @DisplayName("should count rejected withdrawals, alone or in a batch")
+    void shouldCountRejections() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        service.deposit(accountId, new Amount(BigDecimal.TEN));
+
+        // Act
+        assertThrows(OutOfBalanceException.class, () -> service.withdraw(accountId, new Amount(BigDecimal.TEN)));
+        service.applyBatch(List.of(
+                BatchItem.withdrawal(accountId, new BigDecimal(20)),
+                BatchItem.withdrawal(accountId, BigDecimal.ONE)
+        ));
+
+        // Assert
+        final MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.outOfBalanceRejections());
+        assertEquals(1, snapshot.latency(Timer.WITHDRAW).count());
+        assertEquals(1, snapshot.latency(Timer.BATCH).count());
+    }
+
+}
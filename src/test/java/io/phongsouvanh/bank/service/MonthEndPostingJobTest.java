@@ -0,0 +1,204 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.account.MinorUnits;
+import io.phongsouvanh.bank.feed.OperationFeed;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import io.phongsouvanh.bank.statements.RenderedStatementCache;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonthEndPostingJobTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-11-01T02:00:00Z"), ZoneId.of("UTC"));
+    private final Clock octoberClock = Clock.fixed(Instant.parse("2022-10-31T18:00:00Z"), ZoneId.of("UTC"));
+    private final YearMonth october = YearMonth.of(2022, 10);
+
+    private InMemoryOperationDao operationDao;
+    private DefaultOperationService octoberService;
+    private DefaultOperationService service;
+    private OperationFeed feed;
+    private RenderedStatementCache statementCache;
+    private MonthEndPostingJob job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.operationDao = new InMemoryOperationDao();
+        this.octoberService = new DefaultOperationService(operationDao, octoberClock, null, lines -> {});
+        this.feed = new OperationFeed();
+        this.statementCache = new RenderedStatementCache(new StatementGridFormatter());
+        this.service = new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), lines -> {}, statementCache, feed);
+        this.job = new MonthEndPostingJob(service, new BigDecimal("0.0025"), new Amount(new BigDecimal("2.00")), 16, ForkJoinPool.commonPool());
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    @Test
+    @DisplayName("should post the interest, rounded half-even to the cent, and the fee capped at the balance of every account")
+    void shouldPostInterestAndFees() throws Exception {
+        // Arrange
+        final UUID richAccountId = UUID.randomUUID();
+        final UUID poorAccountId = UUID.randomUUID();
+        octoberService.deposit(richAccountId, new Amount(new BigDecimal("1002.00")));
+        octoberService.deposit(poorAccountId, new Amount(new BigDecimal("1.00")));
+
+        // Act
+        final MonthEndPostingReport report = job.run(october);
+
+        // Assert
+        final List<Operation> rich = operationDao.getAllAccountOperationsById(richAccountId);
+        assertEquals(OperationType.INTEREST, rich.get(1).type());
+        assertEquals(new BigDecimal("2.50"), rich.get(1).amount().getValue());
+        assertEquals(new BigDecimal("1004.50"), rich.get(1).balance());
+        assertEquals(OperationType.FEE, rich.get(2).type());
+        assertEquals(new BigDecimal("1002.50"), operationDao.getAccountBalanceById(richAccountId));
+        assertEquals(new BigDecimal("0.00"), operationDao.getAccountBalanceById(poorAccountId));
+        assertEquals(2, report.posted());
+        assertEquals(MinorUnits.of(new BigDecimal("2.50")), report.interestMinorUnits());
+        assertEquals(MinorUnits.of(new BigDecimal("3.00")), report.feesMinorUnits());
+    }
+
+    @Test
+    @DisplayName("should skip the accounts already posted when a period is run again")
+    void shouldBeIdempotentPerPeriod() throws Exception {
+        // Arrange
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            final UUID accountId = UUID.randomUUID();
+            accountIds.add(accountId);
+            octoberService.deposit(accountId, new Amount(new BigDecimal(i * 100)));
+        }
+        final MonthEndPostingReport first = job.run(october);
+
+        // Act
+        final UUID newAccountId = UUID.randomUUID();
+        octoberService.deposit(newAccountId, new Amount(new BigDecimal("100")));
+        final MonthEndPostingReport second = job.run(october);
+
+        // Assert
+        assertEquals(100, first.posted());
+        assertEquals(Map.of(), first.failures());
+        assertEquals(1, second.posted());
+        assertEquals(100, second.skipped());
+        assertEquals(101, second.accounts());
+        for (UUID accountId : accountIds) {
+            assertEquals(3, operationDao.getAllAccountOperationsById(accountId).size());
+        }
+        assertTrue(second.accountsPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("should post every account once when runs of the same period overlap")
+    void shouldPostOnceWhenRunsOverlap() throws Exception {
+        // Arrange
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            final UUID accountId = UUID.randomUUID();
+            accountIds.add(accountId);
+            octoberService.deposit(accountId, new Amount(new BigDecimal(i * 100)));
+        }
+        final ForkJoinPool otherPool = new ForkJoinPool(4);
+        final MonthEndPostingJob otherJob = new MonthEndPostingJob(service, new BigDecimal("0.0025"), new Amount(new BigDecimal("2.00")), 16, otherPool);
+        final ExecutorService runner = Executors.newFixedThreadPool(2);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        // Act
+        final Future<MonthEndPostingReport> first = runner.submit(() -> {
+            start.await();
+            return job.run(october);
+        });
+        final Future<MonthEndPostingReport> second = runner.submit(() -> {
+            start.await();
+            return otherJob.run(october);
+        });
+        start.countDown();
+        final MonthEndPostingReport firstReport = first.get(10, TimeUnit.SECONDS);
+        final MonthEndPostingReport secondReport = second.get(10, TimeUnit.SECONDS);
+        runner.shutdown();
+        otherPool.shutdown();
+
+        // Assert
+        assertEquals(500, firstReport.posted() + secondReport.posted());
+        assertEquals(500, firstReport.skipped() + secondReport.skipped());
+        for (UUID accountId : accountIds) {
+            assertEquals(3, operationDao.getAllAccountOperationsById(accountId).size());
+        }
+    }
+
+    @Test
+    @DisplayName("should earn interest on the balance at the end of the period, but charge the fee on the current balance")
+    void shouldEarnInterestOnPeriodEndBalance() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        octoberService.deposit(accountId, new Amount(new BigDecimal("400.00")));
+        service.deposit(accountId, new Amount(new BigDecimal("600.00")));
+
+        // Act
+        job.run(october);
+
+        // Assert
+        final List<Operation> operations = operationDao.getAllAccountOperationsById(accountId);
+        assertEquals(new BigDecimal("1.00"), operations.get(2).amount().getValue());
+        assertEquals(new BigDecimal("1001.00"), operations.get(2).balance());
+        assertEquals(new BigDecimal("999.00"), operations.get(3).balance());
+    }
+
+    @Test
+    @DisplayName("should publish the postings to the feed and the statement cache of the service")
+    void shouldPostThroughService() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        octoberService.deposit(accountId, new Amount(new BigDecimal("1000.00")));
+        service.printAccountStatement(accountId);
+        final int cached = statementCache.size();
+
+        // Act
+        job.run(october);
+        final List<String> printed = new ArrayList<>();
+        new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), printed::addAll, statementCache, null)
+                .printAccountStatement(accountId);
+        final List<String> expected = new ArrayList<>();
+        new DefaultOperationService(operationDao, clock, new StatementGridFormatter(), expected::addAll).printAccountStatement(accountId);
+
+        // Assert
+        assertEquals(2, feed.publishedSequence());
+        assertEquals(1, cached);
+        assertEquals(expected, printed);
+    }
+
+    @Test
+    @DisplayName("should only post a period during the following month")
+    void shouldRejectOtherPeriods() {
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> job.run(YearMonth.of(2022, 11)));
+        assertThrows(IllegalArgumentException.class, () -> job.run(YearMonth.of(2022, 9)));
+    }
+
+    @Test
+    @DisplayName("should reject interest and fees in operation batches")
+    void shouldRejectPostingTypesInBatches() {
+        // Act
+        final List<BatchResult> results = service.applyBatch(List.of(new BatchItem(UUID.randomUUID(), OperationType.INTEREST, BigDecimal.ONE)));
+
+        // Assert
+        assertFalse(results.get(0).isSuccess());
+    }
+}
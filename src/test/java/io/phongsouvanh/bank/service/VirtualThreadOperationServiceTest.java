@@ -0,0 +1,225 @@
+package io.phongsouvanh.bank.service;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.exceptions.OutOfBalanceException;
+import io.phongsouvanh.bank.operations.InMemoryOperationDao;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.Transfer;
+import io.phongsouvanh.bank.statements.StatementGridFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadOperationServiceTest {
+
+    private InMemoryOperationDao operationDao;
+    private DefaultOperationService delegate;
+    private VirtualThreadOperationService service;
+
+    @BeforeEach
+    void setUp() {
+        this.operationDao = new InMemoryOperationDao();
+        this.delegate = new DefaultOperationService(operationDao, Clock.systemUTC(), new StatementGridFormatter(), lines -> {});
+        this.service = new VirtualThreadOperationService(delegate, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    @DisplayName("should run the operations of an account in submission order")
+    void shouldKeepAccountOrder() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+        final List<CompletableFuture<Operation>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 1; i <= 500; i++) {
+            futures.add(service.deposit(accountId, new Amount(new BigDecimal(i))));
+        }
+        final CompletableFuture<Operation> withdrawal = service.withdraw(accountId, new Amount(new BigDecimal(125_000)));
+        withdrawal.get(10, TimeUnit.SECONDS);
+
+        // Assert
+        final List<Operation> operations = operationDao.getAllAccountOperationsById(accountId);
+        for (int i = 0; i < futures.size(); i++) {
+            assertSame(futures.get(i).join(), operations.get(i));
+            assertEquals(new BigDecimal(i + 1), operations.get(i).amount().getValue());
+        }
+        assertEquals(new BigDecimal("250.00"), withdrawal.join().balance());
+    }
+
+    @Test
+    @DisplayName("should run the operations of different accounts concurrently")
+    void shouldRunAccountsConcurrently() throws Exception {
+        // Arrange
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final UUID blockedAccountId = UUID.randomUUID();
+        final UUID otherAccountId = UUID.randomUUID();
+        service.close();
+        service = new VirtualThreadOperationService(new OperationServiceAdapter(delegate) {
+            @Override
+            public Operation deposit(UUID accountId, Amount amount) {
+                if(accountId.equals(blockedAccountId)) await(blocked);
+                return super.deposit(accountId, amount);
+            }
+        }, 10);
+
+        // Act
+        final CompletableFuture<Operation> blockedDeposit = service.deposit(blockedAccountId, new Amount(BigDecimal.TEN));
+        final CompletableFuture<Operation> queuedDeposit = service.deposit(blockedAccountId, new Amount(BigDecimal.ONE));
+        final Operation otherDeposit = service.deposit(otherAccountId, new Amount(BigDecimal.ONE)).get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(new BigDecimal("1.00"), otherDeposit.balance());
+        assertFalse(blockedDeposit.isDone());
+        assertFalse(queuedDeposit.isDone());
+        blocked.countDown();
+        assertEquals(new BigDecimal("11.00"), queuedDeposit.get(10, TimeUnit.SECONDS).balance());
+    }
+
+    @Test
+    @DisplayName("should block submitters once the pending calls reach the limit")
+    void shouldApplyBackpressure() throws Exception {
+        // Arrange
+        final CountDownLatch blocked = new CountDownLatch(1);
+        service.close();
+        service = new VirtualThreadOperationService(new OperationServiceAdapter(delegate) {
+            @Override
+            public Operation deposit(UUID accountId, Amount amount) {
+                await(blocked);
+                return super.deposit(accountId, amount);
+            }
+        }, 2);
+        service.deposit(UUID.randomUUID(), new Amount(BigDecimal.ONE));
+        service.deposit(UUID.randomUUID(), new Amount(BigDecimal.ONE));
+        final ExecutorService submitter = Executors.newSingleThreadExecutor();
+
+        // Act
+        final Future<CompletableFuture<Operation>> third = submitter.submit(() -> service.deposit(UUID.randomUUID(), new Amount(BigDecimal.ONE)));
+
+        // Assert
+        assertThrows(TimeoutException.class, () -> third.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, service.availableCapacity());
+        blocked.countDown();
+        assertEquals(new BigDecimal("1.00"), third.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS).balance());
+        submitter.shutdown();
+    }
+
+    @Test
+    @DisplayName("should order transfers and batches with the calls of each of their accounts, whatever their direction")
+    void shouldOrderCallsOnSeveralAccounts() throws Exception {
+        // Arrange
+        final List<CompletableFuture<?>> futures = new ArrayList<>();
+        final List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            accountIds.add(UUID.randomUUID());
+        }
+
+        // Act
+        for (int round = 0; round < 100; round++) {
+            final UUID from = accountIds.get(round % accountIds.size());
+            final UUID to = accountIds.get((round + 1) % accountIds.size());
+            futures.add(service.deposit(from, new Amount(BigDecimal.TEN)));
+            futures.add(service.transfer(from, to, new Amount(new BigDecimal(5))));
+            futures.add(service.transfer(to, from, new Amount(BigDecimal.ONE)));
+            futures.add(service.applyBatch(List.of(BatchItem.withdrawal(to, new BigDecimal(2)), BatchItem.deposit(from, BigDecimal.ONE))));
+            futures.add(service.applyTransfers(List.of(new TransferItem(to, from, BigDecimal.ONE))));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        // Assert
+        for (CompletableFuture<?> future : futures) {
+            if(future.join() instanceof List<?> results) {
+                results.forEach(result -> assertTrue(result instanceof BatchResult batch ? batch.isSuccess() : ((TransferResult) result).isSuccess()));
+            }
+        }
+        final BigDecimal total = accountIds.stream().map(operationDao::getAccountBalanceById).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(new BigDecimal("900.00"), total);
+    }
+
+    @Test
+    @DisplayName("should complete exceptionally on rejection and after closing")
+    void shouldCompleteExceptionally() throws Exception {
+        // Arrange
+        final UUID accountId = UUID.randomUUID();
+
+        // Act
+        final CompletableFuture<Operation> withdrawal = service.withdraw(accountId, new Amount(BigDecimal.ONE));
+        service.close();
+
+        // Assert
+        final ExecutionException rejection = assertThrows(ExecutionException.class, withdrawal::get);
+        assertInstanceOf(OutOfBalanceException.class, rejection.getCause());
+        final Amount amount = new Amount(BigDecimal.ONE);
+        final ExecutionException closed = assertThrows(ExecutionException.class, () -> service.deposit(accountId, amount).get());
+        assertInstanceOf(RejectedExecutionException.class, closed.getCause());
+        assertEquals(1_000, service.availableCapacity());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class OperationServiceAdapter implements OperationService {
+
+        private final OperationService delegate;
+
+        OperationServiceAdapter(OperationService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Operation deposit(UUID accountId, Amount amount) {
+            return delegate.deposit(accountId, amount);
+        }
+
+        @Override
+        public Operation withdraw(UUID accountId, Amount amount) throws OutOfBalanceException {
+            return delegate.withdraw(accountId, amount);
+        }
+
+        @Override
+        public void printAccountStatement(UUID accountId) {
+            delegate.printAccountStatement(accountId);
+        }
+
+        @Override
+        public void printAccountStatement(UUID accountId, LocalDate from, LocalDate to) {
+            delegate.printAccountStatement(accountId, from, to);
+        }
+
+        @Override
+        public List<BatchResult> applyBatch(List<BatchItem> items) {
+            return delegate.applyBatch(items);
+        }
+
+        @Override
+        public Transfer transfer(UUID debitedAccountId, UUID creditedAccountId, Amount amount) throws OutOfBalanceException {
+            return delegate.transfer(debitedAccountId, creditedAccountId, amount);
+        }
+
+        @Override
+        public List<TransferResult> applyTransfers(List<TransferItem> items) {
+            return delegate.applyTransfers(items);
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+package io.phongsouvanh.bank.statements;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.AccountSnapshot;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderedStatementCacheTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+    private final StatementGridFormatter formatter = new StatementGridFormatter();
+
+    private UUID accountId;
+    private List<Operation> history;
+    private AtomicInteger loads;
+    private Supplier<AccountSnapshot> snapshot;
+
+    @BeforeEach
+    void setUp() {
+        this.accountId = UUID.randomUUID();
+        this.history = new ArrayList<>();
+        this.loads = new AtomicInteger();
+        this.snapshot = () -> {
+            loads.incrementAndGet();
+            return snapshot(accountId, List.copyOf(history));
+        };
+    }
+
+    @Test
+    @DisplayName("should format the rows once and append the ones of new operations")
+    void shouldAppendNewOperations() throws Exception {
+        // Arrange
+        final RenderedStatementCache cache = new RenderedStatementCache(formatter);
+        history.add(operation(OperationType.DEPOSIT, 100, 100, 0));
+        history.add(operation(OperationType.WITHDRAWAL, 30, 70, 1));
+
+        // Act
+        final List<String> first = format(cache);
+        final Operation deposit = operation(OperationType.DEPOSIT, 5, 75, 2);
+        history.add(deposit);
+        cache.record(deposit, 2);
+        cache.record(deposit, 2);
+        final List<String> second = format(cache);
+
+        // Assert
+        assertEquals(expected(), second);
+        assertNotEquals(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("should format the rows again when an operation does not follow the cached ones")
+    void shouldReloadAfterGap() throws Exception {
+        // Arrange
+        final RenderedStatementCache cache = new RenderedStatementCache(formatter);
+        history.add(operation(OperationType.DEPOSIT, 100, 100, 0));
+        format(cache);
+        final Operation missed = operation(OperationType.DEPOSIT, 10, 110, 1);
+        final Operation recorded = operation(OperationType.DEPOSIT, 10, 120, 2);
+        history.add(missed);
+        history.add(recorded);
+
+        // Act
+        cache.record(recorded, 2);
+        final List<String> statement = format(cache);
+
+        // Assert
+        assertEquals(expected(), statement);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("should evict the least recently printed accounts beyond the memory bound")
+    void shouldEvictBeyondMemoryBound() throws Exception {
+        // Arrange
+        final long bound = 2 * (RenderedStatementCache.ENTRY_BYTES + RenderedStatementCache.ROW_BYTES + 2 * 104);
+        final RenderedStatementCache cache = new RenderedStatementCache(formatter, bound);
+        history.add(operation(OperationType.DEPOSIT, 100, 100, 0));
+        final Operation other = new Operation(UUID.randomUUID(), OperationType.DEPOSIT, amount(1), LocalDateTime.now(clock), new BigDecimal(1));
+        final Supplier<AccountSnapshot> otherHistory = () -> snapshot(other.accountId(), List.of(other));
+
+        // Act
+        format(cache);
+        cache.format(UUID.randomUUID(), LocalDate.now(clock), otherHistory).close();
+        cache.format(UUID.randomUUID(), LocalDate.now(clock), otherHistory).close();
+        format(cache);
+
+        // Assert
+        assertEquals(2, loads.get());
+        assertTrue(cache.estimatedBytes() <= bound, "estimated bytes: " + cache.estimatedBytes());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("should ignore the operations already in the snapshot loaded when they are recorded late")
+    void shouldIgnoreOperationsRecordedAfterLoading() throws Exception {
+        // Arrange
+        final RenderedStatementCache cache = new RenderedStatementCache(formatter);
+        final Operation first = operation(OperationType.DEPOSIT, 5, 5, 0);
+        final Operation deposit = operation(OperationType.DEPOSIT, 5, 10, 1);
+        final Operation withdrawal = operation(OperationType.WITHDRAWAL, 5, 5, 2);
+        history.addAll(List.of(first, deposit, withdrawal));
+
+        // Act
+        format(cache);
+        cache.record(deposit, 1);
+        cache.record(withdrawal, 2);
+        final List<String> statement = format(cache);
+
+        // Assert
+        assertEquals(expected(), statement);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("should format the rows again when operations are recorded in reverse order")
+    void shouldReloadAfterReverseRecords() throws Exception {
+        // Arrange
+        final RenderedStatementCache cache = new RenderedStatementCache(formatter);
+        history.add(operation(OperationType.DEPOSIT, 5, 5, 0));
+        format(cache);
+        final Operation deposit = operation(OperationType.DEPOSIT, 5, 10, 1);
+        final Operation withdrawal = operation(OperationType.WITHDRAWAL, 5, 5, 2);
+        history.addAll(List.of(deposit, withdrawal));
+
+        // Act
+        cache.record(withdrawal, 2);
+        cache.record(deposit, 1);
+        final List<String> statement = format(cache);
+
+        // Assert
+        assertEquals(expected(), statement);
+        assertEquals(2, loads.get());
+    }
+
+    private List<String> format(RenderedStatementCache cache) {
+        try (Stream<String> statement = cache.format(accountId, LocalDate.now(clock), snapshot)) {
+            return statement.toList();
+        }
+    }
+
+    private List<String> expected() {
+        BigDecimal balance = history.get(history.size() - 1).balance();
+        try (Stream<String> statement = formatter.format(accountId, LocalDate.now(clock), balance, newestFirst(history))) {
+            return statement.toList();
+        }
+    }
+
+    private static AccountSnapshot snapshot(UUID accountId, List<Operation> operations) {
+        if(operations.isEmpty()) return AccountSnapshot.empty(accountId);
+        return new AccountSnapshot(accountId, operations.size(), operations.get(operations.size() - 1).balance(),
+                () -> newestFirst(operations));
+    }
+
+    private static Stream<Operation> newestFirst(List<Operation> operations) {
+        List<Operation> copy = new ArrayList<>(operations);
+        Collections.reverse(copy);
+        return copy.stream();
+    }
+
+    private Operation operation(OperationType type, int amount, int balance, int minutes) throws Exception {
+        return new Operation(accountId, type, amount(amount), LocalDateTime.now(clock).plusMinutes(minutes), new BigDecimal(balance));
+    }
+
+    private static Amount amount(int value) throws Exception {
+        return new Amount(new BigDecimal(value));
+    }
+}
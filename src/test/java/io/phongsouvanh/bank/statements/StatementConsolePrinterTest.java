@@ -6,8 +6,10 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -49,6 +51,15 @@ class StatementConsolePrinterTest {
         assertEquals(formattedStatement, Arrays.stream(outputStream.toString().split(System.lineSeparator())).toList() );
     }
 
+    @Test
+    @DisplayName("should encode lines in the charset of the console")
+    void shouldPrintInConsoleCharset() {
+        System.setOut(new PrintStream(outputStream, false, StandardCharsets.UTF_16LE));
+
+        statementConsolePrinter.print(List.of("|  Balance              2900.00€  |"));
+        assertEquals("|  Balance              2900.00€  |" + System.lineSeparator(), outputStream.toString(StandardCharsets.UTF_16LE));
+    }
+
     @Test
     @DisplayName("should print nothing if no list was passed")
     void shouldPrintNothing() {
@@ -56,4 +67,11 @@ class StatementConsolePrinterTest {
         assertEquals("", outputStream.toString());
     }
 
+    @Test
+    @DisplayName("should print every streamed line")
+    void shouldPrintStreamedLines() {
+        statementConsolePrinter.print(Stream.of("first line", "second line"));
+        assertEquals(List.of("first line", "second line"), Arrays.stream(outputStream.toString().split(System.lineSeparator())).toList());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package io.phongsouvanh.bank.statements;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementFilePrinterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("should write every line in UTF-8 and replace the previous content")
+    void shouldWriteLines() throws Exception {
+        // Arrange
+        final Path file = directory.resolve("statement.txt");
+        Files.writeString(file, "previous statement, much longer than the next one");
+        final List<String> lines = List.of("|  Balance              2900.00€  |", "+----+");
+
+        // Act
+        try (StatementFilePrinter printer = new StatementFilePrinter(file)) {
+            printer.print(lines);
+
+            // Assert
+            assertEquals(lines, Files.readAllLines(file, StandardCharsets.UTF_8));
+            assertEquals(Files.size(file), printer.bytesWritten());
+        }
+    }
+
+    @Test
+    @DisplayName("should stream statements larger than its buffer")
+    void shouldStreamLargeStatements() throws Exception {
+        // Arrange
+        final Path file = directory.resolve("statement.txt");
+        final List<String> lines = IntStream.range(0, 10_000).mapToObj(i -> "|  DEPOSIT  " + i + "€  |").toList();
+
+        // Act
+        try (StatementFilePrinter printer = new StatementFilePrinter(file)) {
+            printer.print(lines.stream());
+        }
+
+        // Assert
+        assertTrue(Files.size(file) > StatementFilePrinter.BUFFER_SIZE);
+        assertEquals(lines, Files.readAllLines(file, StandardCharsets.UTF_8));
+        try (Stream<String> written = Files.lines(file)) {
+            assertEquals(lines.size(), written.count());
+        }
+    }
+
+    @Test
+    @DisplayName("should return its buffers to the pool once, however often it is closed, and refuse to print afterwards")
+    void shouldCloseOnce() throws Exception {
+        // Arrange
+        final StatementFilePrinter printer = new StatementFilePrinter(directory.resolve("statement.txt"));
+        final int pooled = StatementFilePrinter.POOL.size();
+
+        // Act
+        printer.print(List.of("+----+"));
+        printer.close();
+        printer.close();
+
+        // Assert
+        assertEquals(pooled + 1, StatementFilePrinter.POOL.size());
+        assertThrows(IllegalStateException.class, () -> printer.print(List.of("+----+")));
+    }
+
+}
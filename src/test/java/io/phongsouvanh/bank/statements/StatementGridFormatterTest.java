@@ -6,10 +6,14 @@ import io.phongsouvanh.bank.operations.OperationType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,6 +62,40 @@ class StatementGridFormatterTest {
         assertEquals(expectedStatement, resultStatement);
     }
 
+    @Test
+    @DisplayName("should format a period statement with its opening and closing balances")
+    void shouldFormatPeriodStatement() throws Exception {
+        final UUID accountId = UUID.nameUUIDFromBytes(new byte[]{42});
+        final StatementPeriod period = new StatementPeriod(
+                LocalDate.of(2022, 10, 1), LocalDate.of(2022, 10, 31), new BigDecimal(500), new BigDecimal(400)
+        );
+        final Stream<Operation> operations = Stream.of(
+            new Operation(accountId, OperationType.WITHDRAWAL, new Amount(new BigDecimal(100)), LocalDateTime.now(clock), new BigDecimal(400))
+        );
+        final List<String> expectedStatement = Arrays.asList(
+                "+------------------------------------------------------------------------------------------------------+",
+                "|                                                                                                      |",
+                "|                                   ACCOUNT STATEMENT OF 2022-10-25                                    |",
+                "|                                                                                                      |",
+                "+------------------------------------------------------------------------------------------------------+",
+                "|                                           ACCOUNT DETAILS                                            |",
+                "+------------------------------------------------------------------------------------------------------+",
+                "|  Account Number       3389dae3-61af-39b0-8c9c-8e7057f60cc6                                           |",
+                "|  Period               2022-10-01 to 2022-10-31                                                       |",
+                "|  Opening Balance      500.00€                                                                        |",
+                "|  Closing Balance      400.00€                                                                        |",
+                "+------------------------------------------------------------------------------------------------------+",
+                "|                                                                                                      |",
+                "|  TYPE            DATE                      AMOUNT                    BALANCE                         |",
+                "+------------------------------------------------------------------------------------------------------+",
+                "|  WITHDRAWAL      2022-10-25 15:30:00       -100.00€                  400.00€                         |",
+                "+------------------------------------------------------------------------------------------------------+"
+            );
+
+        final List<String> resultStatement = statementGridFormatter.format(accountId, LocalDate.now(clock), period, operations).toList();
+        assertEquals(expectedStatement, resultStatement);
+    }
+
     @Test
     @DisplayName("should format statement without operations")
     void shouldFormatStatementWithoutOperations() {
@@ -86,4 +124,38 @@ class StatementGridFormatterTest {
         assertEquals(expectedStatement, resultStatement);
     }
 
+    @Test
+    @DisplayName("should format statement lazily while operations are streamed")
+    void shouldFormatStatementLazily() throws Exception {
+        final UUID accountId = UUID.nameUUIDFromBytes(new byte[]{42});
+        final Amount amount = new Amount(new BigDecimal(100));
+        final Stream<Operation> endlessOperations = Stream.iterate(
+                new Operation(accountId, OperationType.DEPOSIT, amount, LocalDateTime.now(clock), new BigDecimal(100)),
+                operation -> new Operation(accountId, OperationType.DEPOSIT, amount, operation.date().minusMinutes(1), operation.balance())
+        );
+
+        final List<String> firstLines = statementGridFormatter.format(accountId, LocalDate.now(clock), new BigDecimal(2900), endlessOperations)
+                .limit(15)
+                .toList();
+
+        assertEquals("|  Balance              2900.00€                                                                       |", firstLines.get(8));
+        assertEquals("|  DEPOSIT         2022-10-25 15:30:00       +100.00€                  100.00€                         |", firstLines.get(13));
+        assertEquals("|  DEPOSIT         2022-10-25 15:29:00       +100.00€                  100.00€                         |", firstLines.get(14));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "2900", "-12.5", "1.005", "2.345", "1E+3", "123456789012345678.9", "99999999999999999.99"})
+    @DisplayName("should render balances exactly as the padded String.format layout")
+    void shouldRenderBalancesAsStringFormat(String balance) throws Exception {
+        final UUID accountId = UUID.nameUUIDFromBytes(new byte[]{42});
+        final BigDecimal value = new BigDecimal(balance);
+        final String rendered = value.setScale(2, RoundingMode.HALF_EVEN) + "€";
+        final Operation operation = new Operation(accountId, OperationType.WITHDRAWAL, new Amount(new BigDecimal("12.3")), LocalDateTime.now(clock), value);
+
+        final List<String> resultStatement = statementGridFormatter.format(new Statement(accountId, LocalDate.now(clock), List.of(operation)));
+
+        assertEquals(String.format("|  %-20s %-77s  |", "Balance", rendered), resultStatement.get(8));
+        assertEquals(String.format("|  %-15s %-25s %-25s %-30s  |", "WITHDRAWAL", "2022-10-25 15:30:00", "-12.30€", rendered), resultStatement.get(13));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package io.phongsouvanh.bank.statements;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementStreamPrinterTest {
+
+    @Test
+    @DisplayName("should write each statement in UTF-8 with as few writes as possible and flush it once")
+    void shouldBufferStatements() {
+        // Arrange
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final int[] writes = new int[1];
+        final int[] flushes = new int[1];
+        final StatementStreamPrinter printer = new StatementStreamPrinter(new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                writes[0]++;
+                outputStream.write(bytes, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        });
+        final List<String> small = List.of("|  Balance              2900.00€  |", "+----+");
+        final List<String> large = IntStream.range(0, 5_000).mapToObj(i -> "|  DEPOSIT  " + i + "€  |").toList();
+
+        // Act
+        printer.print(small);
+        printer.print(large.stream());
+
+        // Assert
+        final List<String> lines = Arrays.asList(outputStream.toString(StandardCharsets.UTF_8).split(System.lineSeparator()));
+        assertEquals(small, lines.subList(0, 2));
+        assertEquals(large, lines.subList(2, lines.size()));
+        assertEquals(2, flushes[0]);
+        assertEquals(1 + (outputStream.size() - 1) / StatementStreamPrinter.BUFFER_SIZE, writes[0], 1);
+    }
+
+    @Test
+    @DisplayName("should discard the lines of a statement whose stream failed")
+    void shouldDiscardFailedStatement() {
+        // Arrange
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final StatementStreamPrinter printer = new StatementStreamPrinter(outputStream);
+        final Stream<String> failing = Stream.of("first line", "second line").map(line -> {
+            if(line.startsWith("second")) throw new IllegalStateException("query failed");
+            return line;
+        });
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> printer.print(failing));
+        printer.print(List.of("next statement"));
+
+        // Assert
+        assertEquals("next statement" + System.lineSeparator(), outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+}
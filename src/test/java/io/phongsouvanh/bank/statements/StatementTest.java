@@ -0,0 +1,67 @@
+package io.phongsouvanh.bank.statements;
+
+import io.phongsouvanh.bank.account.Amount;
+import io.phongsouvanh.bank.operations.Operation;
+import io.phongsouvanh.bank.operations.OperationType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementTest {
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-10-25T15:30:00Z"), ZoneId.of("UTC"));
+    private final UUID accountId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("should list operations most recent first without modifying the given list")
+    void shouldSortWithoutModifyingGivenList() throws Exception {
+        // Arrange
+        final Operation oldest = operation(0, 10);
+        final Operation middle = operation(5, 20);
+        final Operation newest = operation(10, 30);
+        final List<Operation> operations = new ArrayList<>(List.of(middle, newest, oldest));
+
+        // Act
+        final Statement statement = new Statement(accountId, LocalDate.now(clock), operations);
+
+        // Assert
+        assertEquals(List.of(newest, middle, oldest), statement.getOperations());
+        assertEquals(List.of(middle, newest, oldest), operations);
+        assertEquals(new BigDecimal(30), statement.getBalance());
+        assertThrows(UnsupportedOperationException.class, () -> statement.getOperations().add(oldest));
+    }
+
+    @Test
+    @DisplayName("should keep operations ordered when added one by one")
+    void shouldKeepOperationsOrderedOnAdd() throws Exception {
+        // Arrange
+        final Statement statement = new Statement(accountId, LocalDate.now(clock));
+        final Operation first = operation(0, 10);
+        final Operation second = operation(5, 20);
+        final Operation sameDateAsSecond = operation(5, 25);
+        final Operation last = operation(10, 30);
+
+        // Act
+        statement.add(second);
+        statement.add(last);
+        statement.add(first);
+        statement.add(sameDateAsSecond);
+
+        // Assert
+        assertEquals(List.of(last, second, sameDateAsSecond, first), statement.getOperations());
+        assertEquals(new BigDecimal(30), statement.getBalance());
+        assertEquals(BigDecimal.ZERO, new Statement(accountId, LocalDate.now(clock)).getBalance());
+    }
+
+    private Operation operation(int minutes, int balance) throws Exception {
+        return new Operation(
+                accountId, OperationType.DEPOSIT, new Amount(BigDecimal.TEN), LocalDateTime.now(clock).plusMinutes(minutes), new BigDecimal(balance)
+        );
+    }
+
+}